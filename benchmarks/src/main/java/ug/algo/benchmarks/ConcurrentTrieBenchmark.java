@@ -0,0 +1,209 @@
+package ug.algo.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ug.algo.trie.ConcurrentTrie;
+import ug.algo.trie.Trie;
+
+/**
+ * Throughput of a trie shared by several threads: ConcurrentTrie against a
+ * Trie behind a global lock, and behind a read-write lock.
+ *
+ * searchOnly runs 4 readers; run it again with -t 1, -t 2, -t 8 to see how
+ * the throughput scales with the readers. The mixed group runs 3 readers
+ * and 1 writer, which adds and then removes keys that are not in the
+ * dictionary, so its size does not change; change the mix with -tg, e.g.
+ * -tg 1,1 or -tg 7,1.
+ *
+ * @author Umberto
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConcurrentTrieBenchmark {
+
+	private static final int SAMPLE = 4096;
+
+	/**
+	 * The operations measured, whatever the synchronization.
+	 */
+	private interface Dictionary {
+
+		void add(String word);
+
+		boolean remove(String word);
+
+		boolean search(String word);
+	}
+
+	public enum Implementation {
+		CONCURRENT, GLOBAL_LOCK, READ_WRITE_LOCK
+	}
+
+	@Param({ "100000", "350000" })
+	public int dictionarySize;
+
+	@Param
+	public Implementation implementation;
+
+	private Dictionary dictionary;
+	private String[] hits;
+	// keys not in the dictionary, added and removed by the writers
+	private String[] writes;
+
+	/**
+	 * The position of a thread in the samples, from a random start so the
+	 * threads do not go through the same keys.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int next = ThreadLocalRandom.current().nextInt(SAMPLE);
+		private boolean added;
+
+		int next() {
+			next = (next + 1) & (SAMPLE - 1);
+			return next;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		List<String> keys = Keys.generate(dictionarySize + SAMPLE, Keys.NATURAL);
+		List<String> loaded = keys.subList(0, dictionarySize);
+		dictionary = newDictionary(implementation);
+		for (String key : loaded) {
+			dictionary.add(key);
+		}
+		hits = loaded.subList(0, SAMPLE).toArray(new String[SAMPLE]);
+		writes = keys.subList(dictionarySize, keys.size()).toArray(new String[SAMPLE]);
+	}
+
+	private static Dictionary newDictionary(Implementation implementation) {
+		switch (implementation) {
+		case CONCURRENT:
+			final ConcurrentTrie concurrent = new ConcurrentTrie(true, StandardCharsets.UTF_8);
+			return new Dictionary() {
+
+				@Override
+				public void add(String word) {
+					concurrent.add(word);
+				}
+
+				@Override
+				public boolean remove(String word) {
+					return concurrent.remove(word);
+				}
+
+				@Override
+				public boolean search(String word) {
+					return concurrent.search(word);
+				}
+			};
+		case GLOBAL_LOCK:
+			final Trie synchronizedTrie = new Trie(true, StandardCharsets.UTF_8);
+			return new Dictionary() {
+
+				@Override
+				public synchronized void add(String word) {
+					synchronizedTrie.add(word);
+				}
+
+				@Override
+				public synchronized boolean remove(String word) {
+					return synchronizedTrie.remove(word);
+				}
+
+				@Override
+				public synchronized boolean search(String word) {
+					return synchronizedTrie.search(word);
+				}
+			};
+		default:
+			final Trie trie = new Trie(true, StandardCharsets.UTF_8);
+			final ReadWriteLock lock = new ReentrantReadWriteLock();
+			return new Dictionary() {
+
+				@Override
+				public void add(String word) {
+					lock.writeLock().lock();
+					try {
+						trie.add(word);
+					} finally {
+						lock.writeLock().unlock();
+					}
+				}
+
+				@Override
+				public boolean remove(String word) {
+					lock.writeLock().lock();
+					try {
+						return trie.remove(word);
+					} finally {
+						lock.writeLock().unlock();
+					}
+				}
+
+				@Override
+				public boolean search(String word) {
+					lock.readLock().lock();
+					try {
+						return trie.search(word);
+					} finally {
+						lock.readLock().unlock();
+					}
+				}
+			};
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean searchOnly(Cursor cursor) {
+		return dictionary.search(hits[cursor.next()]);
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public boolean search(Cursor cursor) {
+		return dictionary.search(hits[cursor.next()]);
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public boolean write(Cursor cursor) {
+		// add a key, then remove it at the next invocation
+		cursor.added = !cursor.added;
+		if (cursor.added) {
+			dictionary.add(writes[cursor.next()]);
+			return true;
+		}
+		return dictionary.remove(writes[cursor.next]);
+	}
+}
@@ -0,0 +1,115 @@
+package ug.algo.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Dictionaries used by the benchmarks. They are always built with the same
+ * seed, so every run and every child map sees the same keys.
+ *
+ * @author Umberto
+ *
+ */
+final class Keys {
+
+	/**
+	 * Key length meaning the words of the dictionary file.
+	 */
+	static final String NATURAL = "natural";
+
+	/**
+	 * The dictionary file, relative to the benchmarks directory by default.
+	 */
+	static final String WORDS = System.getProperty("trie.words", "../Input/words.txt");
+
+	private static final long SEED = 42;
+
+	private Keys() {
+	}
+
+	/**
+	 * Return size distinct keys, in random order.
+	 *
+	 * @param size
+	 * @param keyLength
+	 *            {@link #NATURAL} for words of the dictionary file, or the
+	 *            length of random keys over the letters a-z
+	 * @return a list of size keys
+	 */
+	static List<String> generate(int size, String keyLength) {
+		Random random = new Random(SEED);
+		Set<String> keys = new LinkedHashSet<String>(size * 2);
+		if (NATURAL.equals(keyLength)) {
+			List<String> words = readWords();
+			Collections.shuffle(words, random);
+			for (String word : words) {
+				if (keys.size() == size) {
+					break;
+				}
+				if (!word.isEmpty()) {
+					keys.add(word);
+				}
+			}
+			if (keys.size() < size) {
+				throw new IllegalArgumentException(WORDS + " has only " + keys.size() + " distinct words");
+			}
+		} else {
+			int length = Integer.parseInt(keyLength);
+			char[] key = new char[length];
+			while (keys.size() < size) {
+				for (int i = 0; i < length; i++) {
+					key[i] = (char) ('a' + random.nextInt(26));
+				}
+				keys.add(new String(key));
+			}
+		}
+		return new ArrayList<String>(keys);
+	}
+
+	/**
+	 * Return the keys changed so that most of them are not in the
+	 * dictionary: the last char is replaced.
+	 *
+	 * @param keys
+	 * @return a list of keys
+	 */
+	static List<String> misses(List<String> keys) {
+		List<String> misses = new ArrayList<String>(keys.size());
+		for (String key : keys) {
+			misses.add(key.substring(0, key.length() - 1) + '#');
+		}
+		return misses;
+	}
+
+	/**
+	 * Return the first length chars of every key.
+	 *
+	 * @param keys
+	 * @param length
+	 * @return a list of prefixes
+	 */
+	static List<String> prefixes(List<String> keys, int length) {
+		List<String> prefixes = new ArrayList<String>(keys.size());
+		for (String key : keys) {
+			prefixes.add(key.substring(0, Math.min(length, key.length())));
+		}
+		return prefixes;
+	}
+
+	private static List<String> readWords() {
+		try {
+			return Files.readAllLines(Paths.get(WORDS), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + WORDS + ", set -Dtrie.words", e);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package ug.algo.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ug.algo.trie.Trie;
+
+/**
+ * Time of a batch of queries, with the batch methods of Trie and with a loop
+ * over the single key methods. Every invocation takes the next batch of a
+ * fixed sample; divide by batchSize to get the time per key.
+ *
+ * @author Umberto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TrieBatchBenchmark {
+
+	private static final int BATCHES = 64;
+
+	@Param({ "350000" })
+	public int dictionarySize;
+
+	@Param({ "100", "1000", "10000" })
+	public int batchSize;
+
+	private Trie trie;
+	private List<List<String>> batches;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		List<String> keys = Keys.generate(dictionarySize, Keys.NATURAL);
+		trie = new Trie(true, StandardCharsets.UTF_8);
+		for (String key : keys) {
+			trie.add(key);
+		}
+		Random random = new Random(42);
+		batches = new ArrayList<List<String>>(BATCHES);
+		for (int i = 0; i < BATCHES; i++) {
+			List<String> batch = new ArrayList<String>(batchSize);
+			for (int j = 0; j < batchSize; j++) {
+				batch.add(keys.get(random.nextInt(keys.size())));
+			}
+			batches.add(batch);
+		}
+	}
+
+	private List<String> next() {
+		next = (next + 1) & (BATCHES - 1);
+		return batches.get(next);
+	}
+
+	@Benchmark
+	public int searchLoop() {
+		int found = 0;
+		for (String key : next()) {
+			if (trie.search(key)) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public boolean[] searchAll() {
+		return trie.searchAll(next());
+	}
+
+	@Benchmark
+	public boolean[] searchAllParallel() {
+		return trie.searchAll(next(), ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public int countWordStartsWithLoop() {
+		int count = 0;
+		for (String key : next()) {
+			count += trie.countWordStartsWith(key);
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int[] countWordStartsWithAll() {
+		return trie.countWordStartsWithAll(next());
+	}
+}
@@ -0,0 +1,107 @@
+package ug.algo.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ug.algo.trie.ChildMapType;
+import ug.algo.trie.Trie;
+
+/**
+ * Time of the queries on a loaded Trie. Every invocation takes the next key
+ * of a fixed sample, so the branches and the cache misses are not those of a
+ * single key.
+ *
+ * Run with -prof gc to get the allocation rate of each query.
+ *
+ * @author Umberto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TrieBenchmark {
+
+	private static final int SAMPLE = 1024;
+
+	@Param({ "10000", "100000", "350000" })
+	public int dictionarySize;
+
+	@Param({ Keys.NATURAL, "8", "16" })
+	public String keyLength;
+
+	@Param
+	public ChildMapType childMap;
+
+	private Trie trie;
+	private String[] hits;
+	private String[] misses;
+	private String[] prefixes;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		List<String> keys = Keys.generate(dictionarySize, keyLength);
+		trie = new Trie(true, StandardCharsets.UTF_8, childMap);
+		for (String key : keys) {
+			trie.add(key);
+		}
+		List<String> sample = keys.subList(0, SAMPLE);
+		hits = sample.toArray(new String[SAMPLE]);
+		misses = Keys.misses(sample).toArray(new String[SAMPLE]);
+		prefixes = Keys.prefixes(sample, 3).toArray(new String[SAMPLE]);
+	}
+
+	private int next() {
+		next = (next + 1) & (SAMPLE - 1);
+		return next;
+	}
+
+	@Benchmark
+	public boolean searchHit() {
+		return trie.search(hits[next()]);
+	}
+
+	@Benchmark
+	public boolean searchMiss() {
+		return trie.search(misses[next()]);
+	}
+
+	@Benchmark
+	public boolean startsWith() {
+		return trie.startsWith(prefixes[next()]);
+	}
+
+	@Benchmark
+	public int countWordStartsWith() {
+		return trie.countWordStartsWith(prefixes[next()]);
+	}
+
+	@Benchmark
+	public void getWordStartsWith(Blackhole blackhole) {
+		// count() would use the size of the stream without enumerating
+		trie.getWordStartsWith(prefixes[next()]).forEach(blackhole::consume);
+	}
+
+	@Benchmark
+	public Map<String, Integer> getSimilarityMap() {
+		return trie.getSimilarityMap(hits[next()], 1);
+	}
+}
@@ -0,0 +1,45 @@
+package ug.algo.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import ug.algo.trie.ChildMapType;
+import ug.algo.trie.Trie;
+
+/**
+ * Live-heap footprint of a loaded Trie, for every dictionary and child map
+ * of the benchmarks: the size of all the objects reachable from the trie,
+ * measured with JOL.
+ *
+ * Run with java -cp target/benchmarks.jar ug.algo.benchmarks.TrieFootprint
+ * (add -Djdk.attach.allowAttachSelf on JDK 9 and later).
+ *
+ * @author Umberto
+ *
+ */
+public class TrieFootprint {
+
+	private static final int[] DICTIONARY_SIZES = { 10000, 100000, 350000 };
+	private static final String[] KEY_LENGTHS = { Keys.NATURAL, "8", "16" };
+
+	public static void main(String[] args) {
+		System.out.println(String.format("%-10s %-10s %-18s %14s %12s", "size", "keyLength", "childMap", "bytes",
+				"bytes/word"));
+		for (int size : DICTIONARY_SIZES) {
+			for (String keyLength : KEY_LENGTHS) {
+				List<String> keys = Keys.generate(size, keyLength);
+				for (ChildMapType childMap : ChildMapType.values()) {
+					Trie trie = new Trie(true, StandardCharsets.UTF_8, childMap);
+					for (String key : keys) {
+						trie.add(key);
+					}
+					long bytes = GraphLayout.parseInstance(trie).totalSize();
+					System.out.println(String.format("%-10d %-10s %-18s %14d %12.1f", size, keyLength, childMap,
+							bytes, (double) bytes / trie.getNumberOfWords()));
+				}
+			}
+		}
+	}
+}
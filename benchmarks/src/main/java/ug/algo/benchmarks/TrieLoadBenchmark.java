@@ -0,0 +1,73 @@
+package ug.algo.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ug.algo.trie.ChildMapType;
+import ug.algo.trie.Trie;
+
+/**
+ * Time to load a whole dictionary into an empty Trie. Each operation builds
+ * a new trie, so it is measured one shot at a time.
+ *
+ * @author Umberto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TrieLoadBenchmark {
+
+	@Param({ "10000", "100000", "350000" })
+	public int dictionarySize;
+
+	@Param({ Keys.NATURAL, "8", "16" })
+	public String keyLength;
+
+	@Param
+	public ChildMapType childMap;
+
+	private List<String> keys;
+	private List<String> sortedKeys;
+
+	@Setup
+	public void setUp() {
+		keys = Keys.generate(dictionarySize, keyLength);
+		sortedKeys = new ArrayList<String>(keys);
+		Collections.sort(sortedKeys);
+	}
+
+	@Benchmark
+	public Trie add() {
+		Trie trie = new Trie(true, StandardCharsets.UTF_8, childMap);
+		for (String key : keys) {
+			trie.add(key);
+		}
+		return trie;
+	}
+
+	@Benchmark
+	public Trie bulkLoad() {
+		Trie trie = new Trie(true, StandardCharsets.UTF_8, childMap);
+		trie.bulkLoad(sortedKeys.iterator());
+		return trie;
+	}
+}
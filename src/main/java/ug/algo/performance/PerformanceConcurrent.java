@@ -0,0 +1,111 @@
+package ug.algo.performance;
+
+import ug.algo.trie.ConcurrentTrie;
+import ug.algo.trie.Trie;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+public class PerformanceConcurrent {
+
+	private static final int LOOKUPS_PER_THREAD = 2000000;
+
+	public static void main(String[] args) throws Exception {
+
+		List<String> words = readWords("Input/words.txt");
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			System.out.println("");
+			System.out.println("Threads: " + threads);
+
+			/**
+			 * Global lock around Trie
+			 */
+			Trie trie = new Trie(true, StandardCharsets.UTF_8);
+			final int n = threads;
+			double elapsedTime = run(threads, t -> {
+				for (int i = t; i < words.size(); i += n) {
+					synchronized (trie) {
+						trie.add(words.get(i));
+					}
+				}
+			});
+			System.out.println("(Synchronized Trie) Loading " + trie.getNumberOfWords() + " words in milliseconds: "
+					+ elapsedTime);
+			elapsedTime = run(threads, t -> {
+				int found = 0;
+				for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+					String word = words.get((i * 31 + t) % words.size());
+					synchronized (trie) {
+						found += trie.countWordStartsWith(word);
+					}
+				}
+				blackhole(found);
+			});
+			System.out.println("(Synchronized Trie) Lookups per second: "
+					+ (long) (threads * (double) LOOKUPS_PER_THREAD / (elapsedTime / 1000.0)));
+
+			/**
+			 * ConcurrentTrie
+			 */
+			ConcurrentTrie concurrentTrie = new ConcurrentTrie(true, StandardCharsets.UTF_8);
+			elapsedTime = run(threads, t -> {
+				for (int i = t; i < words.size(); i += n) {
+					concurrentTrie.add(words.get(i));
+				}
+			});
+			System.out.println("(ConcurrentTrie) Loading " + concurrentTrie.getNumberOfWords()
+					+ " words in milliseconds: " + elapsedTime);
+			elapsedTime = run(threads, t -> {
+				int found = 0;
+				for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+					found += concurrentTrie.countWordStartsWith(words.get((i * 31 + t) % words.size()));
+				}
+				blackhole(found);
+			});
+			System.out.println("(ConcurrentTrie) Lookups per second: "
+					+ (long) (threads * (double) LOOKUPS_PER_THREAD / (elapsedTime / 1000.0)));
+		}
+	}
+
+	/**
+	 * Run task on threads threads, passing the thread number.
+	 *
+	 * @return Elapsed Time in milliseconds
+	 */
+	private static double run(int threads, IntConsumer task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			long startTime = System.nanoTime();
+			Future<?>[] futures = new Future<?>[threads];
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				futures[t] = executor.submit(() -> task.accept(thread));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			return (System.nanoTime() - startTime) / 1e6;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void blackhole(int value) {
+		if (value == 42) {
+			System.out.print("");
+		}
+	}
+
+	private static List<String> readWords(String fileName) throws IOException {
+		return Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,117 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * The part of {@link Trie2IntMap} and {@link Trie2LongMap} that does not
+ * depend on the primitive type: the value of a key is held unboxed in a long
+ * field of its node, which the int map narrows. Because of the alignment of
+ * the node, the long takes no more room than an int would.
+ *
+ * As in the fastutil maps, a key not in the map has the default return
+ * value, 0 unless set.
+ *
+ * @author Umberto
+ *
+ */
+abstract class AbstractTrie2PrimitiveMap extends AbstractTrieMap<AbstractTrie2PrimitiveMap.PrimitiveNode> {
+
+	/**
+	 * A node with the value of the key ending at it.
+	 */
+	static final class PrimitiveNode extends AbstractTrieMap.MapNode<PrimitiveNode> {
+
+		long value;
+
+		PrimitiveNode(ChildMapType childMapType) {
+			super(childMapType);
+		}
+	}
+
+	long defRetValue;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param childMapType
+	 *            the map holding the children of the nodes
+	 */
+	AbstractTrie2PrimitiveMap(boolean caseSensitive, Charset charset, ChildMapType childMapType) {
+		super(caseSensitive, charset, childMapType);
+	}
+
+	@Override
+	final PrimitiveNode newNode(ChildMapType childMapType) {
+		return new PrimitiveNode(childMapType);
+	}
+
+	/**
+	 * @param key
+	 * @return the value, the default return value if the key is not in the
+	 *         map
+	 */
+	final long getValue(CharSequence key) {
+		PrimitiveNode node = findKey(key);
+		return node == null ? defRetValue : node.value;
+	}
+
+	/**
+	 * Map a key to a value, or add the value to the one of the key.
+	 *
+	 * @param key
+	 * @param value
+	 * @param add
+	 *            set to add value, a key not in the map starting from the
+	 *            default return value
+	 * @return the previous value, the default return value if the key was
+	 *         not in the map
+	 */
+	final long putValue(CharSequence key, long value, boolean add) {
+		PrimitiveNode node = findKey(key);
+		long previous = defRetValue;
+		if (node == null) {
+			node = insert(key);
+		} else {
+			previous = node.value;
+		}
+		node.value = add ? previous + value : value;
+		return previous;
+	}
+
+	/**
+	 * Map a key to value if it is not in the map, otherwise to the result of
+	 * function applied to its value and value.
+	 *
+	 * @param key
+	 * @param value
+	 * @param function
+	 * @return the new value
+	 */
+	final long mergeValue(CharSequence key, long value, LongBinaryOperator function) {
+		PrimitiveNode node = findKey(key);
+		if (node == null) {
+			insert(key).value = value;
+			return value;
+		}
+		node.value = function.applyAsLong(node.value, value);
+		return node.value;
+	}
+
+	/**
+	 * @param key
+	 * @return the value, the default return value if the key was not in the
+	 *         map
+	 */
+	final long removeValue(CharSequence key) {
+		PrimitiveNode node = findKey(key);
+		if (node == null) {
+			return defRetValue;
+		}
+		delete(key);
+		return node.value;
+	}
+}
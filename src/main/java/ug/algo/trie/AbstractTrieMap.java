@@ -0,0 +1,293 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The structure shared by the tries carrying a value on the node where each
+ * key ends ({@link TrieMap}, {@link Trie2IntMap}, {@link Trie2LongMap}):
+ * keys are normalized as in {@link Trie}, and each node counts the keys
+ * ending at or below it. Unlike a Trie, the empty key is a key, stored on
+ * the root, so the count of the root is the size of the map.
+ *
+ * The subclasses hold the values in their own node class, so a primitive
+ * value is not boxed.
+ *
+ * @author Umberto
+ *
+ * @param <N>
+ *            the class of the nodes
+ */
+abstract class AbstractTrieMap<N extends AbstractTrieMap.MapNode<N>> {
+
+	/**
+	 * A node: its children, how many keys end at or below it and if a key
+	 * ends at it.
+	 */
+	static class MapNode<N extends MapNode<N>> {
+
+		final Char2ObjectMap<N> children;
+		int count;
+		boolean terminal;
+
+		MapNode(ChildMapType childMapType) {
+			this.children = childMapType.newMap();
+		}
+	}
+
+	final N root;
+	// If this is a case sensitive trie
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final ChildMapType childMapType;
+	final KeyNormalizer normalizer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param childMapType
+	 *            the map holding the children of the nodes
+	 */
+	AbstractTrieMap(boolean caseSensitive, Charset charset, ChildMapType childMapType) {
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.childMapType = childMapType;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+		this.root = newNode(childMapType);
+	}
+
+	/**
+	 * @param childMapType
+	 * @return a new node without value
+	 */
+	abstract N newNode(ChildMapType childMapType);
+
+	/**
+	 * Search a key, normalizing it char by char.
+	 *
+	 * @param key
+	 * @return the last key's node, null if not found
+	 */
+	final N find(CharSequence key) {
+		N node = root;
+		for (int i = 0; i < key.length() && node != null; i++) {
+			if (!normalizer.isDropped(key, i)) {
+				node = node.children.get(normalizer.charAt(key, i));
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Search a key that is in the map.
+	 *
+	 * @param key
+	 * @return the key's node, null if the key is not in the map
+	 */
+	final N findKey(CharSequence key) {
+		N node = find(key);
+		return node != null && node.terminal ? node : null;
+	}
+
+	/**
+	 * Inserts a key that is not in the map, creating the nodes it needs.
+	 *
+	 * @param key
+	 * @return the key's node
+	 */
+	final N insert(CharSequence key) {
+		N node = root;
+		node.count++;
+		for (int i = 0; i < key.length(); i++) {
+			if (normalizer.isDropped(key, i)) {
+				continue;
+			}
+			char c = normalizer.charAt(key, i);
+			N child = node.children.get(c);
+			if (child == null) {
+				child = newNode(childMapType);
+				node.children.put(c, child);
+			}
+			child.count++;
+			node = child;
+		}
+		node.terminal = true;
+		return node;
+	}
+
+	/**
+	 * Removes a key that is in the map, dropping the nodes no other key goes
+	 * through. The subclass clears the value of the key's node.
+	 *
+	 * @param key
+	 */
+	final void delete(CharSequence key) {
+		N node = root;
+		node.count--;
+		for (int i = 0; i < key.length(); i++) {
+			if (normalizer.isDropped(key, i)) {
+				continue;
+			}
+			char c = normalizer.charAt(key, i);
+			N child = node.children.get(c);
+			if (--child.count == 0) {
+				// the rest of the path belongs only to the removed key
+				node.children.remove(c);
+				child.terminal = false;
+				return;
+			}
+			node = child;
+		}
+		node.terminal = false;
+	}
+
+	/**
+	 * Return the keys starting with prefix, the prefix itself included, with
+	 * their nodes. The Stream is lazy and sized.
+	 *
+	 * @param prefix
+	 * @param mapper
+	 *            builds an element of the stream from the key and its node;
+	 *            the key is a buffer that is only valid during the call
+	 * @return a Stream of the elements built
+	 */
+	final <T> Stream<T> stream(CharSequence prefix, BiFunction<CharSequence, N, T> mapper) {
+		N node = find(prefix);
+		if (node == null) {
+			return Stream.empty();
+		}
+		Iterator<T> iterator = new KeyIterator<T>(node, normalizer.normalize(prefix), mapper);
+		return StreamSupport.stream(Spliterators.spliterator(iterator, node.count, Spliterator.ORDERED), false);
+	}
+
+	/**
+	 * Depth-first iterator over the keys ending at or below a node.
+	 */
+	private final class KeyIterator<T> implements Iterator<T> {
+
+		private final StringBuilder key;
+		private final BiFunction<CharSequence, N, T> mapper;
+		// iterators over the children of each node of the path
+		private final ArrayDeque<Iterator<Char2ObjectMap.Entry<N>>> stack;
+		private N next;
+
+		KeyIterator(N start, String prefix, BiFunction<CharSequence, N, T> mapper) {
+			this.key = new StringBuilder(prefix);
+			this.mapper = mapper;
+			this.stack = new ArrayDeque<Iterator<Char2ObjectMap.Entry<N>>>();
+			stack.push(start.children.char2ObjectEntrySet().iterator());
+			if (start.terminal) {
+				next = start;
+			} else {
+				advance();
+			}
+		}
+
+		/**
+		 * Move to the next node where a key ends.
+		 */
+		private void advance() {
+			next = null;
+			while (!stack.isEmpty()) {
+				Iterator<Char2ObjectMap.Entry<N>> children = stack.peek();
+				if (!children.hasNext()) {
+					stack.pop();
+					if (!stack.isEmpty()) {
+						key.setLength(key.length() - 1);
+					}
+					continue;
+				}
+				Char2ObjectMap.Entry<N> entry = children.next();
+				N child = entry.getValue();
+				key.append(entry.getCharKey());
+				stack.push(child.children.char2ObjectEntrySet().iterator());
+				if (child.terminal) {
+					next = child;
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			T element = mapper.apply(key, next);
+			advance();
+			return element;
+		}
+	}
+
+	/**
+	 * @return the number of keys
+	 */
+	public int size() {
+		return root.count;
+	}
+
+	public boolean isEmpty() {
+		return root.count == 0;
+	}
+
+	/**
+	 * Returns if the key is in the map.
+	 *
+	 * @param key
+	 * @return true|false
+	 */
+	public boolean containsKey(CharSequence key) {
+		return findKey(key) != null;
+	}
+
+	/**
+	 * Return how many keys start with prefix, the prefix itself included.
+	 *
+	 * @param prefix
+	 * @return how many keys start with prefix
+	 */
+	public int countKeysStartingWith(CharSequence prefix) {
+		N node = find(prefix);
+		return node == null ? 0 : node.count;
+	}
+
+	/**
+	 * Return the keys starting with prefix, the prefix itself included. The
+	 * Stream is lazy and sized.
+	 *
+	 * @param prefix
+	 * @return a Stream of the keys starting with prefix
+	 */
+	public Stream<String> keysWithPrefix(CharSequence prefix) {
+		return stream(prefix, (key, node) -> key.toString());
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public ChildMapType getChildMapType() {
+		return childMapType;
+	}
+}
@@ -0,0 +1,466 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Trie that keeps its nodes in primitive arrays (struct-of-arrays) instead
+ * of allocating a {@link Node} and a child map per character.
+ *
+ * Every node is an int index into parallel arrays holding its character, the
+ * number of words passing through it, its flags and the indexes of its parent,
+ * first child and next sibling. Siblings are kept sorted by character, so
+ * words are enumerated in the same order as {@link Trie}. Removed nodes are
+ * recycled through a free list.
+ *
+ * It exposes the same operations as {@link Trie}.
+ *
+ * @author Umberto
+ *
+ */
+public class ArrayTrie {
+
+	// Index used to mark a missing node
+	private static final int NIL = -1;
+	// Index of the dummy root node
+	private static final int ROOT = 0;
+	// Flags
+	private static final byte LEAF = 1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Nodes storage
+	private char[] labels;
+	// to count how many words starting with prefix
+	private int[] counts;
+	private byte[] flags;
+	private int[] parents;
+	private int[] firstChild;
+	private int[] nextSibling;
+
+	// First never used slot
+	private int size;
+	// Head of the list of removed slots, linked through nextSibling
+	private int freeHead;
+	// Number of removed slots waiting to be reused
+	private int freeCount;
+
+	// Current number of unique words in trie
+	private int numOfwords;
+	// If this is a case sensitive trie
+	private boolean caseSensitive;
+	private Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public ArrayTrie(boolean caseSensitive, Charset charset) {
+		this(caseSensitive, charset, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param expectedNodes
+	 *            initial capacity in nodes, used to avoid resizing when the
+	 *            size of the dictionary is known
+	 */
+	public ArrayTrie(boolean caseSensitive, Charset charset, int expectedNodes) {
+		int capacity = Math.max(expectedNodes, 1);
+		labels = new char[capacity];
+		counts = new int[capacity];
+		flags = new byte[capacity];
+		parents = new int[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		freeHead = NIL;
+		freeCount = 0;
+		size = 0;
+		// root
+		newNode((char) 0, NIL);
+		this.numOfwords = 0;
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+	}
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word
+	 */
+	public void add(String word) {
+
+		word = preprocessWord(word);
+
+		// To avoid duplicates
+		if (word.isEmpty() || search(word, false)) {
+			return;
+		}
+
+		int node = ROOT;
+		for (int i = 0; i < word.length(); i++) {
+			node = getOrCreateChild(node, word.charAt(i));
+			// how many words starting with prefix
+			counts[node]++;
+		}
+		flags[node] |= LEAF;
+		this.numOfwords++;
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(String word) {
+
+		word = preprocessWord(word);
+
+		if (!search(word, false)) {
+			return false;
+		}
+
+		int node = ROOT;
+		for (int i = 0; i < word.length(); i++) {
+			int child = findChild(node, word.charAt(i));
+			if (--counts[child] == 0) {
+				// No other word goes through this node: the rest of the path
+				// belongs only to the removed word.
+				unlink(node, child);
+				freePath(child, word, i + 1);
+				break;
+			}
+			node = child;
+			if (i == word.length() - 1) {
+				flags[node] &= ~LEAF;
+			}
+		}
+
+		this.numOfwords--;
+
+		return true;
+	}
+
+	/**
+	 * Search a word in the trie.
+	 *
+	 * @param word
+	 * @return the last word's node or NIL
+	 */
+	private int searchNode(String word) {
+		if (word.isEmpty()) {
+			return NIL;
+		}
+		int node = ROOT;
+		for (int i = 0; i < word.length() && node != NIL; i++) {
+			node = findChild(node, word.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		return startsWith(prefix, true);
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @param doPreprocess
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix, boolean doPreprocess) {
+		if (doPreprocess) {
+			prefix = preprocessWord(prefix);
+		}
+		return searchNode(prefix) != NIL;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		return search(word, true);
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @param doPreprocess
+	 * @return true|false
+	 */
+	public boolean search(String word, boolean doPreprocess) {
+		if (doPreprocess) {
+			word = preprocessWord(word);
+		}
+		int node = searchNode(word);
+		return node != NIL && (flags[node] & LEAF) != 0;
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		int node = searchNode(preprocessWord(prefix));
+		return node == NIL ? 0 : counts[node];
+	}
+
+	/**
+	 * Return words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+
+		prefix = preprocessWord(prefix);
+
+		int node = searchNode(prefix);
+		if (node == NIL) {
+			return Stream.empty();
+		}
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new WordIterator(node, prefix),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Pre-order iterator over the words below a node. It walks the
+	 * first-child/next-sibling links, so it needs no stack: the word is kept in
+	 * a buffer whose length is the depth of the current node.
+	 */
+	private class WordIterator implements Iterator<String> {
+
+		private final int start;
+		private final StringBuilder buffer;
+		private final int baseLength;
+		private int current;
+
+		WordIterator(int start, String prefix) {
+			this.start = start;
+			this.buffer = new StringBuilder(prefix);
+			this.baseLength = prefix.length();
+			this.current = start;
+			advance();
+		}
+
+		private void advance() {
+			do {
+				int child = firstChild[current];
+				if (child != NIL) {
+					buffer.append(labels[child]);
+					current = child;
+					continue;
+				}
+				// climb until a node with a next sibling
+				while (current != start && nextSibling[current] == NIL) {
+					current = parents[current];
+					buffer.setLength(buffer.length() - 1);
+				}
+				if (current == start) {
+					current = NIL;
+					return;
+				}
+				current = nextSibling[current];
+				buffer.setCharAt(buffer.length() - 1, labels[current]);
+			} while ((flags[current] & LEAF) == 0);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return current != NIL;
+		}
+
+		@Override
+		public String next() {
+			if (current == NIL) {
+				throw new NoSuchElementException();
+			}
+			String word = buffer.toString();
+			advance();
+			return word;
+		}
+	}
+
+	/**
+	 * Return the child of node labelled with c.
+	 *
+	 * @param node
+	 * @param c
+	 * @return the child or NIL
+	 */
+	private int findChild(int node, char c) {
+		int child = firstChild[node];
+		// siblings are sorted
+		while (child != NIL && labels[child] < c) {
+			child = nextSibling[child];
+		}
+		return (child != NIL && labels[child] == c) ? child : NIL;
+	}
+
+	/**
+	 * Return the child of node labelled with c, creating it in order if it
+	 * does not exist.
+	 *
+	 * @param node
+	 * @param c
+	 * @return the child
+	 */
+	private int getOrCreateChild(int node, char c) {
+		int previous = NIL;
+		int child = firstChild[node];
+		while (child != NIL && labels[child] < c) {
+			previous = child;
+			child = nextSibling[child];
+		}
+		if (child != NIL && labels[child] == c) {
+			return child;
+		}
+		int created = newNode(c, node);
+		nextSibling[created] = child;
+		if (previous == NIL) {
+			firstChild[node] = created;
+		} else {
+			nextSibling[previous] = created;
+		}
+		return created;
+	}
+
+	/**
+	 * Detach child from the children list of node.
+	 *
+	 * @param node
+	 * @param child
+	 */
+	private void unlink(int node, int child) {
+		int current = firstChild[node];
+		if (current == child) {
+			firstChild[node] = nextSibling[child];
+			return;
+		}
+		while (nextSibling[current] != child) {
+			current = nextSibling[current];
+		}
+		nextSibling[current] = nextSibling[child];
+	}
+
+	/**
+	 * Release node and the chain below it that spells word from index from.
+	 *
+	 * @param node
+	 * @param word
+	 * @param from
+	 */
+	private void freePath(int node, String word, int from) {
+		int next = node;
+		for (int i = from; next != NIL; i++) {
+			int current = next;
+			next = i < word.length() ? firstChild[current] : NIL;
+			freeNode(current);
+		}
+	}
+
+	private int newNode(char c, int parent) {
+		int node;
+		if (freeHead != NIL) {
+			node = freeHead;
+			freeHead = nextSibling[node];
+			freeCount--;
+		} else {
+			if (size == labels.length) {
+				grow();
+			}
+			node = size++;
+		}
+		labels[node] = c;
+		counts[node] = 0;
+		flags[node] = 0;
+		parents[node] = parent;
+		firstChild[node] = NIL;
+		nextSibling[node] = NIL;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		parents[node] = NIL;
+		firstChild[node] = NIL;
+		counts[node] = 0;
+		flags[node] = 0;
+		nextSibling[node] = freeHead;
+		freeHead = node;
+		freeCount++;
+	}
+
+	private void grow() {
+		int capacity = labels.length + (labels.length >> 1) + 1;
+		labels = Arrays.copyOf(labels, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		nextSibling = Arrays.copyOf(nextSibling, capacity);
+	}
+
+	/**
+	 * Encode the word and lowerCase if the word is case-sensitive
+	 *
+	 * @param word
+	 * @return
+	 */
+	private String preprocessWord(String word) {
+		return normalizer.normalize(word);
+	}
+
+	/**
+	 * Return the number of nodes currently used, root included.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNumberOfNodes() {
+		return size - freeCount;
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
@@ -0,0 +1,127 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resolves a batch of normalized keys to their nodes, visiting the keys in
+ * sorted order: the path of the previous key is kept, so a key only descends
+ * the chars after its common prefix with the previous one.
+ *
+ * On a fork-join pool the sorted batch is split in halves down to
+ * {@link #THRESHOLD} keys, each half starting from the root; without a pool
+ * the whole batch is walked in the calling thread. The trie must not be
+ * modified during the lookup.
+ *
+ * @author Umberto
+ *
+ */
+class BatchLookup extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	// keys below which a batch is not split
+	static final int THRESHOLD = 512;
+
+	private final Node root;
+	private final String[] keys;
+	private final int[] order;
+	private final Node[] found;
+	private final int from;
+	private final int to;
+	// if the batch is split, only when running on a pool
+	private final boolean split;
+
+	private BatchLookup(Node root, String[] keys, int[] order, Node[] found, int from, int to, boolean split) {
+		this.root = root;
+		this.keys = keys;
+		this.order = order;
+		this.found = found;
+		this.from = from;
+		this.to = to;
+		this.split = split;
+	}
+
+	/**
+	 * Return the node of each key, null if the key is empty or not found.
+	 *
+	 * @param root
+	 * @param keys
+	 *            the normalized keys
+	 * @param pool
+	 *            the pool to run on, null to run in the calling thread
+	 * @return the node of keys[i] at i
+	 */
+	static Node[] lookup(Node root, String[] keys, ForkJoinPool pool) {
+		int[] order = sortedOrder(keys);
+		Node[] found = new Node[keys.length];
+		if (pool == null || keys.length <= THRESHOLD) {
+			// invokeAll would fork onto the common pool
+			new BatchLookup(root, keys, order, found, 0, keys.length, false).compute();
+		} else {
+			pool.invoke(new BatchLookup(root, keys, order, found, 0, keys.length, true));
+		}
+		return found;
+	}
+
+	/**
+	 * Return the indexes of keys, in the order of the keys.
+	 *
+	 * @param keys
+	 * @return the sorted indexes
+	 */
+	static int[] sortedOrder(final String[] keys) {
+		int[] order = new int[keys.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		IntArrays.quickSort(order, new AbstractIntComparator() {
+			@Override
+			public int compare(int a, int b) {
+				return keys[a].compareTo(keys[b]);
+			}
+		});
+		return order;
+	}
+
+	@Override
+	protected void compute() {
+		if (split && to - from > THRESHOLD) {
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchLookup(root, keys, order, found, from, middle, true),
+					new BatchLookup(root, keys, order, found, middle, to, true));
+			return;
+		}
+		// path of the previous key, as deep as it was found
+		Node[] path = new Node[16];
+		int depth = 0;
+		String previous = "";
+		for (int k = from; k < to; k++) {
+			String key = keys[order[k]];
+			int common = 0;
+			int limit = Math.min(depth, key.length());
+			while (common < limit && previous.charAt(common) == key.charAt(common)) {
+				common++;
+			}
+			depth = common;
+			Node node = depth == 0 ? root : path[depth - 1];
+			while (depth < key.length()) {
+				node = node.children.get(key.charAt(depth));
+				if (node == null) {
+					break;
+				}
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, depth * 2);
+				}
+				path[depth++] = node;
+			}
+			found[order[k]] = key.isEmpty() || depth < key.length() ? null : path[depth - 1];
+			previous = key;
+		}
+	}
+
+}
@@ -0,0 +1,757 @@
+package ug.algo.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Trie whose labels are the bytes of the keys encoded with its charset,
+ * instead of UTF-16 chars: with UTF-8 and mostly ASCII data a label takes one
+ * byte, and a node has at most 256 children.
+ *
+ * Nodes are int indexes into parallel arrays, like {@link ArrayTrie}. The
+ * children of a node are kept in two compact arrays, their labels sorted as
+ * unsigned bytes and their indexes, searched by binary search, so there is
+ * no map per node. Removed nodes are recycled through a free list.
+ *
+ * Keys can be given as CharSequence, byte[] or ByteBuffer. Strings are
+ * normalized as in {@link Trie} and, with UTF-8, ISO-8859-1 and US-ASCII,
+ * encoded char by char during the descent without allocating. Bytes are
+ * taken as they are, without decoding: a case insensitive trie folds the
+ * ASCII letters byte by byte, and only decodes the keys containing other
+ * bytes or using other charsets.
+ *
+ * @author Umberto
+ *
+ */
+public class ByteTrie {
+
+	// Index used to mark a missing node
+	private static final int NIL = -1;
+	// Index of the dummy root node
+	private static final int ROOT = 0;
+	// Flags
+	private static final byte LEAF = 1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final byte[] NO_LABELS = new byte[0];
+	private static final int[] NO_CHILDREN = new int[0];
+
+	// Nodes storage
+	private byte[] labels;
+	// to count how many words starting with prefix
+	private int[] counts;
+	private byte[] flags;
+	// parent of a node, next free slot for a removed one
+	private int[] parents;
+	// labels of the children, sorted as unsigned bytes
+	private byte[][] childLabels;
+	private int[][] children;
+	private int[] degrees;
+
+	// First never used slot
+	private int size;
+	// Head of the list of removed slots, linked through parents
+	private int freeHead;
+	// Number of removed slots waiting to be reused
+	private int freeCount;
+
+	// Current number of unique words in trie
+	private int numOfwords;
+	// If this is a case sensitive trie
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+	// Encoding done char by char: UTF-8, or one byte per char
+	private final boolean utf8;
+	private final boolean singleByte;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public ByteTrie(boolean caseSensitive, Charset charset) {
+		this(caseSensitive, charset, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param expectedNodes
+	 *            initial capacity in nodes, used to avoid resizing when the
+	 *            size of the dictionary is known
+	 */
+	public ByteTrie(boolean caseSensitive, Charset charset, int expectedNodes) {
+		int capacity = Math.max(expectedNodes, 1);
+		labels = new byte[capacity];
+		counts = new int[capacity];
+		flags = new byte[capacity];
+		parents = new int[capacity];
+		childLabels = new byte[capacity][];
+		children = new int[capacity][];
+		degrees = new int[capacity];
+		freeHead = NIL;
+		freeCount = 0;
+		size = 0;
+		// root
+		newNode((byte) 0, NIL);
+		this.numOfwords = 0;
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+		this.utf8 = charset.equals(StandardCharsets.UTF_8);
+		this.singleByte = charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word
+	 */
+	public void add(CharSequence word) {
+		insert(encode(word));
+	}
+
+	/**
+	 * Inserts a word, already encoded with the charset of the trie.
+	 *
+	 * @param word
+	 */
+	public void add(byte[] word) {
+		insert(normalize(word, 0, word.length));
+	}
+
+	/**
+	 * Inserts the remaining bytes of a buffer, already encoded with the
+	 * charset of the trie. The position of the buffer is not changed.
+	 *
+	 * @param word
+	 */
+	public void add(ByteBuffer word) {
+		if (word.hasArray()) {
+			insert(normalize(word.array(), word.arrayOffset() + word.position(), word.remaining()));
+		} else {
+			byte[] bytes = new byte[word.remaining()];
+			word.duplicate().get(bytes);
+			insert(normalize(bytes, 0, bytes.length));
+		}
+	}
+
+	/**
+	 * Inserts a normalized key.
+	 *
+	 * @param key
+	 */
+	private void insert(byte[] key) {
+
+		// To avoid duplicates
+		if (key.length == 0 || isLeaf(find(key))) {
+			return;
+		}
+
+		int node = ROOT;
+		for (byte label : key) {
+			node = getOrCreateChild(node, label);
+			// how many words starting with prefix
+			counts[node]++;
+		}
+		flags[node] |= LEAF;
+		this.numOfwords++;
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(CharSequence word) {
+		return delete(encode(word));
+	}
+
+	/**
+	 * Removes a word, encoded with the charset of the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(byte[] word) {
+		return delete(normalize(word, 0, word.length));
+	}
+
+	/**
+	 * Removes a normalized key.
+	 *
+	 * @param key
+	 * @return true if the key was in the trie
+	 */
+	private boolean delete(byte[] key) {
+
+		if (!isLeaf(find(key))) {
+			return false;
+		}
+
+		int node = ROOT;
+		for (int i = 0; i < key.length; i++) {
+			int child = findChild(node, key[i]);
+			if (--counts[child] == 0) {
+				// No other word goes through this node: the rest of the path
+				// belongs only to the removed word.
+				unlink(node, key[i]);
+				freePath(child, key, i + 1);
+				break;
+			}
+			node = child;
+			if (i == key.length - 1) {
+				flags[node] &= ~LEAF;
+			}
+		}
+
+		this.numOfwords--;
+
+		return true;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(CharSequence word) {
+		return isLeaf(descend(word));
+	}
+
+	/**
+	 * Returns if the word, encoded with the charset of the trie, is in the
+	 * trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(byte[] word) {
+		return isLeaf(descend(word, 0, word.length));
+	}
+
+	/**
+	 * Returns if the remaining bytes of the buffer, encoded with the charset
+	 * of the trie, are a word of the trie. The position of the buffer is not
+	 * changed.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(ByteBuffer word) {
+		return isLeaf(descend(word));
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(CharSequence prefix) {
+		return descend(prefix) != NIL;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix, encoded with the charset of the trie.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(byte[] prefix) {
+		return descend(prefix, 0, prefix.length) != NIL;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the
+	 * remaining bytes of the buffer.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(ByteBuffer prefix) {
+		return descend(prefix) != NIL;
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(CharSequence prefix) {
+		int node = descend(prefix);
+		return node == NIL ? 0 : counts[node];
+	}
+
+	/**
+	 * Return how many words starting with prefix, encoded with the charset of
+	 * the trie.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(byte[] prefix) {
+		int node = descend(prefix, 0, prefix.length);
+		return node == NIL ? 0 : counts[node];
+	}
+
+	/**
+	 * Return how many words starting with the remaining bytes of the buffer.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(ByteBuffer prefix) {
+		int node = descend(prefix);
+		return node == NIL ? 0 : counts[node];
+	}
+
+	/**
+	 * Return words starting with prefix, decoded with the charset of the
+	 * trie, in the order of their bytes.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(CharSequence prefix) {
+		return getWordStartsWith(encode(prefix));
+	}
+
+	/**
+	 * Return words starting with prefix, encoded with the charset of the
+	 * trie.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(byte[] prefix) {
+
+		prefix = normalize(prefix, 0, prefix.length);
+
+		int node = find(prefix);
+		if (node == NIL) {
+			return Stream.empty();
+		}
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new WordIterator(node, prefix),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Pre-order iterator over the words below a node, keeping the bytes of
+	 * the current word in a buffer and, for each level, the index of the
+	 * child being visited.
+	 */
+	private class WordIterator implements Iterator<String> {
+
+		private byte[] buffer;
+		private int[] path;
+		private int[] positions;
+		// number of bytes of the current word below the prefix
+		private int depth;
+		private final int baseLength;
+		private String next;
+
+		WordIterator(int start, byte[] prefix) {
+			this.baseLength = prefix.length;
+			this.buffer = Arrays.copyOf(prefix, prefix.length + 16);
+			this.path = new int[16];
+			this.positions = new int[16];
+			this.path[0] = start;
+			this.positions[0] = 0;
+			this.depth = 0;
+			advance();
+		}
+
+		private void advance() {
+			while (depth >= 0) {
+				int node = path[depth];
+				int position = positions[depth]++;
+				if (position == degrees[node]) {
+					depth--;
+					continue;
+				}
+				int child = children[node][position];
+				depth++;
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, depth * 2);
+					positions = Arrays.copyOf(positions, depth * 2);
+				}
+				if (baseLength + depth > buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				buffer[baseLength + depth - 1] = labels[child];
+				path[depth] = child;
+				positions[depth] = 0;
+				if ((flags[child] & LEAF) != 0) {
+					next = new String(buffer, 0, baseLength + depth, charset);
+					return;
+				}
+			}
+			next = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public String next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			String word = next;
+			advance();
+			return word;
+		}
+	}
+
+	/**
+	 * Search a normalized key.
+	 *
+	 * @param key
+	 * @return the last key's node or NIL
+	 */
+	private int find(byte[] key) {
+		if (key.length == 0) {
+			return NIL;
+		}
+		int node = ROOT;
+		for (int i = 0; i < key.length && node != NIL; i++) {
+			node = findChild(node, key[i]);
+		}
+		return node;
+	}
+
+	/**
+	 * Search a key given as chars. With the charsets encoded char by char
+	 * nothing is allocated.
+	 *
+	 * @param key
+	 * @return the last key's node or NIL
+	 */
+	private int descend(CharSequence key) {
+		if (!isAsciiCompatible()) {
+			return find(encode(key));
+		}
+		int length = key.length();
+		if (length == 0) {
+			return NIL;
+		}
+		int node = ROOT;
+		for (int i = 0; i < length && node != NIL; i++) {
+			if (normalizer.isDropped(key, i)) {
+				continue;
+			}
+			char c = normalizer.charAt(key, i);
+			if (singleByte || c < 0x80) {
+				// the normalizer already replaced the chars out of the charset
+				node = findChild(node, (byte) c);
+			} else if (c < 0x800) {
+				node = findChild(node, (byte) (0xC0 | (c >> 6)));
+				node = node == NIL ? NIL : findChild(node, (byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c)) {
+				// paired, or the normalizer would have replaced it
+				int codePoint = Character.toCodePoint(c, normalizer.charAt(key, ++i));
+				node = findChild(node, (byte) (0xF0 | (codePoint >> 18)));
+				node = node == NIL ? NIL : findChild(node, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				node = node == NIL ? NIL : findChild(node, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				node = node == NIL ? NIL : findChild(node, (byte) (0x80 | (codePoint & 0x3F)));
+			} else {
+				node = findChild(node, (byte) (0xE0 | (c >> 12)));
+				node = node == NIL ? NIL : findChild(node, (byte) (0x80 | ((c >> 6) & 0x3F)));
+				node = node == NIL ? NIL : findChild(node, (byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Search a key given as bytes, folding the ASCII letters if the trie is
+	 * case insensitive.
+	 *
+	 * @param key
+	 * @param offset
+	 * @param length
+	 * @return the last key's node or NIL
+	 */
+	private int descend(byte[] key, int offset, int length) {
+		if (length == 0) {
+			return NIL;
+		}
+		if (!caseSensitive && !isFoldable(key, offset, length)) {
+			return descend(new String(key, offset, length, charset));
+		}
+		int node = ROOT;
+		for (int i = offset; i < offset + length && node != NIL; i++) {
+			node = findChild(node, caseSensitive ? key[i] : fold(key[i]));
+		}
+		return node;
+	}
+
+	/**
+	 * Search the remaining bytes of a buffer, without changing its position.
+	 *
+	 * @param key
+	 * @return the last key's node or NIL
+	 */
+	private int descend(ByteBuffer key) {
+		if (key.hasArray()) {
+			return descend(key.array(), key.arrayOffset() + key.position(), key.remaining());
+		}
+		if (!key.hasRemaining()) {
+			return NIL;
+		}
+		int node = ROOT;
+		for (int i = key.position(); i < key.limit() && node != NIL; i++) {
+			byte b = key.get(i);
+			if (!caseSensitive && (b < 0 || !isAsciiCompatible())) {
+				return descend(charset.decode(key.duplicate()));
+			}
+			node = findChild(node, caseSensitive ? b : fold(b));
+		}
+		return node;
+	}
+
+	/**
+	 * Normalize a key given as chars and encode it.
+	 *
+	 * @param key
+	 * @return the bytes of the key
+	 */
+	private byte[] encode(CharSequence key) {
+		return normalizer.normalize(key).getBytes(charset);
+	}
+
+	/**
+	 * Return a normalized copy of a key given as bytes.
+	 *
+	 * @param key
+	 * @param offset
+	 * @param length
+	 * @return the bytes of the key
+	 */
+	private byte[] normalize(byte[] key, int offset, int length) {
+		if (caseSensitive) {
+			return Arrays.copyOfRange(key, offset, offset + length);
+		}
+		if (!isFoldable(key, offset, length)) {
+			return encode(new String(key, offset, length, charset));
+		}
+		byte[] folded = new byte[length];
+		for (int i = 0; i < length; i++) {
+			folded[i] = fold(key[offset + i]);
+		}
+		return folded;
+	}
+
+	/**
+	 * Returns if the case of the key can be folded byte by byte: the charset
+	 * encodes ASCII as itself and the key contains only ASCII bytes.
+	 */
+	private boolean isFoldable(byte[] key, int offset, int length) {
+		if (!isAsciiCompatible()) {
+			return false;
+		}
+		for (int i = offset; i < offset + length; i++) {
+			if (key[i] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isAsciiCompatible() {
+		return utf8 || singleByte;
+	}
+
+	private static byte fold(byte b) {
+		return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+	}
+
+	private boolean isLeaf(int node) {
+		return node != NIL && (flags[node] & LEAF) != 0;
+	}
+
+	/**
+	 * Return the child of node labelled with label.
+	 *
+	 * @param node
+	 * @param label
+	 * @return the child or NIL
+	 */
+	private int findChild(int node, byte label) {
+		int index = indexOf(node, label);
+		return index >= 0 ? children[node][index] : NIL;
+	}
+
+	/**
+	 * Binary search of label among the children of node.
+	 *
+	 * @param node
+	 * @param label
+	 * @return the index of the child, or (-(insertion point) - 1)
+	 */
+	private int indexOf(int node, byte label) {
+		byte[] keys = childLabels[node];
+		int key = label & 0xFF;
+		int low = 0;
+		int high = degrees[node] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int value = keys[middle] & 0xFF;
+			if (value < key) {
+				low = middle + 1;
+			} else if (value > key) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Return the child of node labelled with label, creating it in order if
+	 * it does not exist.
+	 *
+	 * @param node
+	 * @param label
+	 * @return the child
+	 */
+	private int getOrCreateChild(int node, byte label) {
+		int index = indexOf(node, label);
+		if (index >= 0) {
+			return children[node][index];
+		}
+		int created = newNode(label, node);
+		int at = -index - 1;
+		int degree = degrees[node];
+		if (degree == childLabels[node].length) {
+			int capacity = Math.min(Math.max(2, degree * 2), 256);
+			childLabels[node] = Arrays.copyOf(childLabels[node], capacity);
+			children[node] = Arrays.copyOf(children[node], capacity);
+		}
+		System.arraycopy(childLabels[node], at, childLabels[node], at + 1, degree - at);
+		System.arraycopy(children[node], at, children[node], at + 1, degree - at);
+		childLabels[node][at] = label;
+		children[node][at] = created;
+		degrees[node]++;
+		return created;
+	}
+
+	/**
+	 * Detach the child labelled with label from node.
+	 *
+	 * @param node
+	 * @param label
+	 */
+	private void unlink(int node, byte label) {
+		int at = indexOf(node, label);
+		int degree = --degrees[node];
+		System.arraycopy(childLabels[node], at + 1, childLabels[node], at, degree - at);
+		System.arraycopy(children[node], at + 1, children[node], at, degree - at);
+	}
+
+	/**
+	 * Release node and the chain below it that spells key from index from.
+	 *
+	 * @param node
+	 * @param key
+	 * @param from
+	 */
+	private void freePath(int node, byte[] key, int from) {
+		int next = node;
+		for (int i = from; next != NIL; i++) {
+			int current = next;
+			next = i < key.length ? findChild(current, key[i]) : NIL;
+			freeNode(current);
+		}
+	}
+
+	private int newNode(byte label, int parent) {
+		int node;
+		if (freeHead != NIL) {
+			node = freeHead;
+			freeHead = parents[node];
+			freeCount--;
+		} else {
+			if (size == labels.length) {
+				grow();
+			}
+			node = size++;
+		}
+		labels[node] = label;
+		counts[node] = 0;
+		flags[node] = 0;
+		parents[node] = parent;
+		childLabels[node] = NO_LABELS;
+		children[node] = NO_CHILDREN;
+		degrees[node] = 0;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		childLabels[node] = null;
+		children[node] = null;
+		degrees[node] = 0;
+		counts[node] = 0;
+		flags[node] = 0;
+		parents[node] = freeHead;
+		freeHead = node;
+		freeCount++;
+	}
+
+	private void grow() {
+		int capacity = labels.length + (labels.length >> 1) + 1;
+		labels = Arrays.copyOf(labels, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+		childLabels = Arrays.copyOf(childLabels, capacity);
+		children = Arrays.copyOf(children, capacity);
+		degrees = Arrays.copyOf(degrees, capacity);
+	}
+
+	/**
+	 * Return the number of nodes currently used, root included.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNumberOfNodes() {
+		return size - freeCount;
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
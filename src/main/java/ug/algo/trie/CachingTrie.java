@@ -0,0 +1,402 @@
+package ug.algo.trie;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ug.algo.trie.TrieStats.Operation;
+
+/**
+ * A bounded cache of the results of countWordStartsWith, getWordStartsWith
+ * and getSimilarityMap in front of a {@link Trie}, for skewed traffic where
+ * a few prefixes make most of the queries.
+ *
+ * The results are kept in least recently used order and keyed by the
+ * operation, the normalized prefix or word and the maximum distance. The
+ * trie must be modified through this class: add and remove only drop the
+ * results the word changes, that is the counts and the word lists of the
+ * prefixes of the word, and the similarity maps of the words within their
+ * maximum distance from it.
+ *
+ * The cached word lists and maps are unmodifiable. Like Trie, this class is
+ * not thread safe.
+ *
+ * @author Umberto
+ *
+ */
+public class CachingTrie {
+
+	/**
+	 * The key of a cached result.
+	 */
+	private static final class Key {
+
+		private final Operation operation;
+		private final String prefix;
+		private final int maxDistance;
+
+		Key(Operation operation, String prefix, int maxDistance) {
+			this.operation = operation;
+			this.prefix = prefix;
+			this.maxDistance = maxDistance;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return operation == other.operation && maxDistance == other.maxDistance && prefix.equals(other.prefix);
+		}
+
+		@Override
+		public int hashCode() {
+			return (operation.hashCode() * 31 + prefix.hashCode()) * 31 + maxDistance;
+		}
+	}
+
+	private final Trie trie;
+	private final int capacity;
+	private final LinkedHashMap<Key, Object> cache;
+	// keys of the cached similarity maps, checked one by one on a change
+	private final Set<Key> similarityKeys = new HashSet<Key>();
+	private final long[] hits = new long[Operation.values().length];
+	private final long[] misses = new long[Operation.values().length];
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param trie
+	 *            the trie, to be modified only through this cache from now on
+	 * @param capacity
+	 *            the maximum number of cached results
+	 */
+	public CachingTrie(Trie trie, final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.trie = trie;
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+				if (size() <= capacity) {
+					return false;
+				}
+				evictions++;
+				if (eldest.getKey().operation == Operation.SIMILARITY) {
+					similarityKeys.remove(eldest.getKey());
+				}
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Inserts a word into the trie, dropping the results it changes.
+	 *
+	 * @param word
+	 */
+	public void add(String word) {
+		String key = trie.normalizer().normalize(word);
+		if (!key.isEmpty() && !trie.search(key)) {
+			trie.add(key);
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * Inserts a word with a weight into the trie, dropping the results it
+	 * changes. The weight alone changes no cached result.
+	 *
+	 * @param word
+	 * @param weight
+	 */
+	public void add(String word, long weight) {
+		String key = trie.normalizer().normalize(word);
+		boolean added = !key.isEmpty() && !trie.search(key);
+		trie.add(key, weight);
+		if (added) {
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * Inserts a batch of words into the trie, dropping the results changed
+	 * by the words that were not in it.
+	 *
+	 * @param words
+	 */
+	public void addAll(Collection<String> words) {
+		boolean[] found = trie.searchAll(words);
+		trie.addAll(words);
+		int i = 0;
+		for (String word : words) {
+			if (!found[i++]) {
+				invalidate(trie.normalizer().normalize(word));
+			}
+		}
+	}
+
+	/**
+	 * Removes a word from the trie, dropping the results it changes.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(String word) {
+		String key = trie.normalizer().normalize(word);
+		if (!trie.search(key)) {
+			return false;
+		}
+		trie.remove(key);
+		invalidate(key);
+		return true;
+	}
+
+	/**
+	 * Drop the results changed by adding or removing word.
+	 *
+	 * @param word
+	 *            the normalized word
+	 */
+	private void invalidate(String word) {
+		if (word.isEmpty()) {
+			return;
+		}
+		for (int i = 1; i <= word.length(); i++) {
+			String prefix = word.substring(0, i);
+			drop(new Key(Operation.COUNT_WORD_STARTS_WITH, prefix, 0));
+			// the prefix itself is not a word starting with the prefix
+			if (i < word.length()) {
+				drop(new Key(Operation.GET_WORD_STARTS_WITH, prefix, 0));
+			}
+		}
+		for (Iterator<Key> keys = similarityKeys.iterator(); keys.hasNext();) {
+			Key key = keys.next();
+			if (isWithin(key.prefix, word, key.maxDistance)) {
+				keys.remove();
+				cache.remove(key);
+				invalidations++;
+			}
+		}
+	}
+
+	private void drop(Key key) {
+		if (cache.remove(key) != null) {
+			invalidations++;
+		}
+	}
+
+	/**
+	 * Returns if the Levenshtein distance between a and b is at most
+	 * maxDistance, stopping at the first row entirely above it.
+	 *
+	 * @param a
+	 * @param b
+	 * @param maxDistance
+	 * @return true|false
+	 */
+	private static boolean isWithin(String a, String b, int maxDistance) {
+		if (Math.abs(a.length() - b.length()) > maxDistance) {
+			return false;
+		}
+		int columns = b.length() + 1;
+		int[] previousRow = new int[columns];
+		int[] currentRow = new int[columns];
+		for (int i = 0; i < columns; i++) {
+			previousRow[i] = i;
+		}
+		for (int r = 1; r <= a.length(); r++) {
+			if (Levenshtein.nextRow(b, a.charAt(r - 1), previousRow, currentRow) > maxDistance) {
+				return false;
+			}
+			int[] row = previousRow;
+			previousRow = currentRow;
+			currentRow = row;
+		}
+		return previousRow[columns - 1] <= maxDistance;
+	}
+
+	/**
+	 * Return the cached result of key, counting a hit or a miss.
+	 *
+	 * @param key
+	 * @return the result, null if it is not cached
+	 */
+	private Object lookup(Key key) {
+		Object result = cache.get(key);
+		if (result == null) {
+			misses[key.operation.ordinal()]++;
+		} else {
+			hits[key.operation.ordinal()]++;
+		}
+		return result;
+	}
+
+	/**
+	 * Return how many words starting with prefix, from the cache when
+	 * possible.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		Key key = new Key(Operation.COUNT_WORD_STARTS_WITH, trie.normalizer().normalize(prefix), 0);
+		Integer count = (Integer) lookup(key);
+		if (count == null) {
+			count = trie.countWordStartsWith(key.prefix);
+			cache.put(key, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Return words starting with prefix, from the cache when possible. A
+	 * miss collects all the words, so the Stream is not lazy.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	@SuppressWarnings("unchecked")
+	public Stream<String> getWordStartsWith(String prefix) {
+		Key key = new Key(Operation.GET_WORD_STARTS_WITH, trie.normalizer().normalize(prefix), 0);
+		List<String> words = (List<String>) lookup(key);
+		if (words == null) {
+			words = Collections.unmodifiableList(trie.getWordStartsWith(key.prefix).collect(Collectors.toList()));
+			cache.put(key, words);
+		}
+		return words.stream();
+	}
+
+	/**
+	 * Return the words less than maxDistance from word with their distance,
+	 * from the cache when possible.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return an unmodifiable map of the words found and their distance
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Integer> getSimilarityMap(String word, int maxDistance) {
+		Key key = new Key(Operation.SIMILARITY, trie.normalizer().normalize(word), maxDistance);
+		Map<String, Integer> words = (Map<String, Integer>) lookup(key);
+		if (words == null) {
+			words = Collections.unmodifiableMap(trie.getSimilarityMap(key.prefix, maxDistance));
+			similarityKeys.add(key);
+			cache.put(key, words);
+		}
+		return words;
+	}
+
+	public boolean search(String word) {
+		return trie.search(word);
+	}
+
+	public boolean startsWith(String prefix) {
+		return trie.startsWith(prefix);
+	}
+
+	/**
+	 * Drop every cached result, for instance after the trie has been modified
+	 * directly.
+	 */
+	public void invalidateAll() {
+		invalidations += cache.size();
+		cache.clear();
+		similarityKeys.clear();
+	}
+
+	/**
+	 * @return the trie, which must not be modified directly
+	 */
+	public Trie getTrie() {
+		return trie;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of cached results
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * @param operation
+	 * @return the queries of operation answered from the cache
+	 */
+	public long getHits(Operation operation) {
+		return hits[operation.ordinal()];
+	}
+
+	/**
+	 * @param operation
+	 * @return the queries of operation answered by the trie
+	 */
+	public long getMisses(Operation operation) {
+		return misses[operation.ordinal()];
+	}
+
+	/**
+	 * @return the queries answered from the cache
+	 */
+	public long getHits() {
+		long total = 0;
+		for (long count : hits) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the queries answered by the trie
+	 */
+	public long getMisses() {
+		long total = 0;
+		for (long count : misses) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the fraction of the queries answered from the cache, 0 before
+	 *         the first query
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long queries = hits + getMisses();
+		return queries == 0 ? 0 : (double) hits / queries;
+	}
+
+	/**
+	 * @return the results dropped to stay within the capacity
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the results dropped because a word changed them
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+}
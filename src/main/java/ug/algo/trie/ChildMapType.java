@@ -0,0 +1,106 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.chars.Char2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectRBTreeMap;
+
+/**
+ * The map holding the children of a {@link Node}, or of a node of the
+ * tries carrying values ({@link TrieMap}, {@link Trie2IntMap},
+ * {@link Trie2LongMap}).
+ *
+ * The tree maps keep the children sorted, so the words are enumerated in
+ * alphabetical order. The hash maps are faster to search but enumerate the
+ * words in hash order (OPEN_HASH) or in insertion order (LINKED_OPEN_HASH).
+ *
+ * @author Umberto
+ *
+ */
+public enum ChildMapType {
+
+	AVL {
+		@Override
+		<N> Char2ObjectMap<N> newMap() {
+			return new Char2ObjectAVLTreeMap<N>();
+		}
+
+		@Override
+		long estimateBytes(int size) {
+			return TREE_MAP_BYTES + size * TREE_ENTRY_BYTES;
+		}
+	},
+	RB {
+		@Override
+		<N> Char2ObjectMap<N> newMap() {
+			return new Char2ObjectRBTreeMap<N>();
+		}
+
+		@Override
+		long estimateBytes(int size) {
+			return TREE_MAP_BYTES + size * TREE_ENTRY_BYTES;
+		}
+	},
+	OPEN_HASH {
+		@Override
+		<N> Char2ObjectMap<N> newMap() {
+			// most nodes have one or two children
+			return new Char2ObjectOpenHashMap<N>(2);
+		}
+
+		@Override
+		long estimateBytes(int size) {
+			int n = HashCommon.arraySize(Math.max(size, 2), HASH_LOAD_FACTOR) + 1;
+			return HASH_MAP_BYTES + array(2L * n) + array(4L * n);
+		}
+	},
+	LINKED_OPEN_HASH {
+		@Override
+		<N> Char2ObjectMap<N> newMap() {
+			return new Char2ObjectLinkedOpenHashMap<N>(2);
+		}
+
+		@Override
+		long estimateBytes(int size) {
+			int n = HashCommon.arraySize(Math.max(size, 2), HASH_LOAD_FACTOR) + 1;
+			return HASH_MAP_BYTES + 8 + array(2L * n) + array(4L * n) + array(8L * n);
+		}
+	};
+
+	// rough sizes with compressed references: header, fields and padding
+	private static final long TREE_MAP_BYTES = 64;
+	private static final long TREE_ENTRY_BYTES = 32;
+	private static final long HASH_MAP_BYTES = 56;
+	private static final float HASH_LOAD_FACTOR = 0.75f;
+
+	/**
+	 * @return a new empty map of children
+	 */
+	abstract <N> Char2ObjectMap<N> newMap();
+
+	/**
+	 * Estimate the bytes of a map of children, its entries included but not
+	 * the nodes.
+	 *
+	 * @param size
+	 *            the number of children
+	 * @return the estimated bytes
+	 */
+	abstract long estimateBytes(int size);
+
+	/**
+	 * @return the bytes of an array holding length bytes of data
+	 */
+	private static long array(long length) {
+		return (16 + length + 7) & ~7L;
+	}
+
+	/**
+	 * @return if the children are kept in alphabetical order
+	 */
+	public boolean isSorted() {
+		return this == AVL || this == RB;
+	}
+}
@@ -0,0 +1,399 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe Trie. Readers never lock nor write: they only follow volatile
+ * references. Writers update each node independently with compare-and-set, so
+ * writers on different branches never wait for each other.
+ *
+ * The children of a node are an immutable sorted array that is replaced as a
+ * whole when a child is added or removed. A word is inserted by incrementing
+ * the counts along its path and then setting the leaf flag of its last node;
+ * it is removed by clearing the flag and then decrementing the counts. A node
+ * whose count drops to zero is marked dead (count -1) and unlinked, and a
+ * writer that meets a dead node starts again from the root.
+ *
+ * Counts are updated right before/after the leaf flag, so while a word is
+ * being added or removed countWordStartsWith may briefly disagree with
+ * search.
+ *
+ * @author Umberto
+ *
+ */
+public class ConcurrentTrie {
+
+	// Count of a node unlinked from its parent
+	private static final int DEAD = -1;
+
+	private static final class Children {
+
+		static final Children EMPTY = new Children(new char[0], new CNode[0]);
+
+		final char[] keys;
+		final CNode[] nodes;
+
+		Children(char[] keys, CNode[] nodes) {
+			this.keys = keys;
+			this.nodes = nodes;
+		}
+
+		CNode get(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			return i >= 0 ? nodes[i] : null;
+		}
+
+		/**
+		 * Return a copy with node stored under c.
+		 */
+		Children with(char c, CNode node) {
+			int i = Arrays.binarySearch(keys, c);
+			if (i >= 0) {
+				CNode[] n = nodes.clone();
+				n[i] = node;
+				return new Children(keys, n);
+			}
+			int at = -i - 1;
+			char[] k = new char[keys.length + 1];
+			CNode[] n = new CNode[nodes.length + 1];
+			System.arraycopy(keys, 0, k, 0, at);
+			System.arraycopy(nodes, 0, n, 0, at);
+			k[at] = c;
+			n[at] = node;
+			System.arraycopy(keys, at, k, at + 1, keys.length - at);
+			System.arraycopy(nodes, at, n, at + 1, nodes.length - at);
+			return new Children(k, n);
+		}
+
+		/**
+		 * Return a copy without the child stored under c.
+		 */
+		Children without(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			char[] k = new char[keys.length - 1];
+			CNode[] n = new CNode[nodes.length - 1];
+			System.arraycopy(keys, 0, k, 0, i);
+			System.arraycopy(nodes, 0, n, 0, i);
+			System.arraycopy(keys, i + 1, k, i, keys.length - i - 1);
+			System.arraycopy(nodes, i + 1, n, i, nodes.length - i - 1);
+			return new Children(k, n);
+		}
+	}
+
+	private static final class CNode {
+
+		final char c;
+		// to count how many words starting with prefix, DEAD once unlinked
+		volatile int count;
+		volatile int leaf;
+		volatile Children children = Children.EMPTY;
+
+		CNode(char c) {
+			this.c = c;
+		}
+	}
+
+	private static final AtomicIntegerFieldUpdater<CNode> COUNT = AtomicIntegerFieldUpdater.newUpdater(CNode.class,
+			"count");
+	private static final AtomicIntegerFieldUpdater<CNode> LEAF = AtomicIntegerFieldUpdater.newUpdater(CNode.class,
+			"leaf");
+	private static final AtomicReferenceFieldUpdater<CNode, Children> CHILDREN = AtomicReferenceFieldUpdater
+			.newUpdater(CNode.class, Children.class, "children");
+
+	// Dummy node, never dead
+	private final CNode root;
+	// Current number of unique words in trie
+	private final LongAdder numOfwords;
+	// If this is a case sensitive trie
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public ConcurrentTrie(boolean caseSensitive, Charset charset) {
+		this.root = new CNode((char) 0);
+		this.numOfwords = new LongAdder();
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+	}
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word
+	 */
+	public void add(String word) {
+
+		word = preprocessWord(word);
+
+		if (word.isEmpty()) {
+			return;
+		}
+
+		CNode[] path = new CNode[word.length()];
+		while (true) {
+			CNode node = root;
+			for (int i = 0; i < word.length(); i++) {
+				node = getOrCreateChild(node, word.charAt(i));
+				path[i] = node;
+			}
+			// reserve the path, so that no node on it can die
+			int reserved = 0;
+			while (reserved < path.length && increment(path[reserved])) {
+				reserved++;
+			}
+			if (reserved < path.length) {
+				// a node died under us: roll back and retry
+				release(path, reserved);
+				continue;
+			}
+			if (LEAF.compareAndSet(path[path.length - 1], 0, 1)) {
+				numOfwords.increment();
+			} else {
+				// To avoid duplicates
+				release(path, path.length);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(String word) {
+
+		word = preprocessWord(word);
+
+		if (word.isEmpty()) {
+			return false;
+		}
+
+		CNode[] path = new CNode[word.length()];
+		CNode node = root;
+		for (int i = 0; i < word.length(); i++) {
+			node = node.children.get(word.charAt(i));
+			if (node == null) {
+				return false;
+			}
+			path[i] = node;
+		}
+		if (!LEAF.compareAndSet(node, 1, 0)) {
+			return false;
+		}
+		numOfwords.decrement();
+		release(path, path.length);
+		return true;
+	}
+
+	/**
+	 * Increment the count of a node that is not dead.
+	 *
+	 * @param node
+	 * @return false if the node is dead
+	 */
+	private static boolean increment(CNode node) {
+		while (true) {
+			int count = node.count;
+			if (count == DEAD) {
+				return false;
+			}
+			if (COUNT.compareAndSet(node, count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Decrement the counts of the first length nodes of path, from the
+	 * deepest one, unlinking the nodes left without words.
+	 *
+	 * @param path
+	 * @param length
+	 */
+	private void release(CNode[] path, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			CNode node = path[i];
+			if (COUNT.decrementAndGet(node) == 0 && COUNT.compareAndSet(node, 0, DEAD)) {
+				unlink(i == 0 ? root : path[i - 1], node);
+			}
+		}
+	}
+
+	/**
+	 * Remove node from the children of parent, if it is still there.
+	 *
+	 * @param parent
+	 * @param node
+	 */
+	private static void unlink(CNode parent, CNode node) {
+		while (true) {
+			Children children = parent.children;
+			if (children.get(node.c) != node) {
+				return;
+			}
+			if (CHILDREN.compareAndSet(parent, children, children.without(node.c))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Return the live child of node labelled with c, replacing it if it is
+	 * missing or dead.
+	 *
+	 * @param node
+	 * @param c
+	 * @return the child
+	 */
+	private static CNode getOrCreateChild(CNode node, char c) {
+		CNode created = null;
+		while (true) {
+			Children children = node.children;
+			CNode child = children.get(c);
+			if (child != null && child.count != DEAD) {
+				return child;
+			}
+			if (created == null) {
+				created = new CNode(c);
+			}
+			if (CHILDREN.compareAndSet(node, children, children.with(c, created))) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Search a word in the trie.
+	 *
+	 * @param word
+	 * @return the last word's node or null
+	 */
+	private CNode searchNode(String word) {
+		if (word.isEmpty()) {
+			return null;
+		}
+		CNode node = root;
+		for (int i = 0; i < word.length(); i++) {
+			node = node.children.get(word.charAt(i));
+			if (node == null) {
+				return null;
+			}
+		}
+		return node.count > 0 ? node : null;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		return searchNode(preprocessWord(prefix)) != null;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		CNode node = searchNode(preprocessWord(word));
+		return node != null && node.leaf == 1;
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		CNode node = searchNode(preprocessWord(prefix));
+		return node == null ? 0 : Math.max(node.count, 0);
+	}
+
+	/**
+	 * Return words starting with prefix. The words are collected from a
+	 * weakly consistent view: words added or removed during the call may or
+	 * may not be returned.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+		prefix = preprocessWord(prefix);
+		CNode node = searchNode(prefix);
+		if (node == null) {
+			return Stream.empty();
+		}
+		List<String> words = new ArrayList<String>();
+		collectWords(node, new StringBuilder(prefix), words);
+		return words.stream();
+	}
+
+	/**
+	 * Depth-first search collecting the words below node.
+	 *
+	 * @param node
+	 * @param path
+	 * @param words
+	 */
+	private void collectWords(CNode node, StringBuilder path, List<String> words) {
+		int length = path.length();
+		CNode[] children = node.children.nodes;
+		for (CNode child : children) {
+			if (child.count <= 0) {
+				continue;
+			}
+			path.append(child.c);
+			if (child.leaf == 1) {
+				words.add(path.toString());
+			}
+			collectWords(child, path, words);
+			path.setLength(length);
+		}
+	}
+
+	/**
+	 * Encode the word and lowerCase if the word is case-sensitive
+	 *
+	 * @param word
+	 * @return
+	 */
+	private String preprocessWord(String word) {
+		return normalizer.normalize(word);
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords.intValue();
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
@@ -0,0 +1,377 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.chars.CharArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable directed acyclic word graph (minimal acyclic automaton) built
+ * from a {@link Trie} with {@link Trie#toDawg()}.
+ *
+ * Two nodes of the trie are merged into one state when they accept the same
+ * suffixes: same leaf flag and, for every char, children merged into the same
+ * state. The nodes are registered bottom-up with a hash of these signatures,
+ * so every common ending ("-ing", "-tion"...) is stored once. The number of
+ * words accepted from a state only depends on its suffixes, so it is kept
+ * per state and prefix counting works as in the trie.
+ *
+ * The edges of a state are stored sorted by char in two flat arrays, and
+ * searched by binary search.
+ *
+ * @author Umberto
+ *
+ */
+public class Dawg {
+
+	private static final int NONE = -1;
+
+	// first edge and number of edges of each state
+	private final int[] firstEdge;
+	private final int[] edgeCounts;
+	// to count how many words starting with prefix
+	private final int[] counts;
+	private final BitSet leaves;
+	private final char[] labels;
+	private final int[] targets;
+	private final int root;
+	private final int numOfTrieNodes;
+
+	private final int numOfwords;
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * The state of a trie node: its leaf flag, then the char and the state of
+	 * each child.
+	 */
+	private static final class Signature {
+
+		private final int[] values;
+		private final int hash;
+
+		Signature(int[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Signature && Arrays.equals(values, ((Signature) other).values);
+		}
+	}
+
+	/**
+	 * Builds the states, edges and counts while minimizing.
+	 */
+	private static final class Builder {
+
+		private final Map<Signature, Integer> registry = new HashMap<Signature, Integer>();
+		private final IntArrayList firstEdge = new IntArrayList();
+		private final IntArrayList edgeCounts = new IntArrayList();
+		private final IntArrayList counts = new IntArrayList();
+		private final BitSet leaves = new BitSet();
+		private final CharArrayList labels = new CharArrayList();
+		private final IntArrayList targets = new IntArrayList();
+		private int nodes;
+
+		/**
+		 * Return the state of node, registering the states below it first.
+		 *
+		 * @param node
+		 * @param isRoot
+		 *            the root gets its own state
+		 * @return the state of node
+		 */
+		int register(Node node, boolean isRoot) {
+			nodes++;
+			// children maps may not be sorted
+			char[] chars = node.children.keySet().toCharArray();
+			Arrays.sort(chars);
+			int[] values = new int[1 + 2 * chars.length];
+			values[0] = node.isLeaf() && !isRoot ? 1 : 0;
+			int count = values[0];
+			for (int i = 0; i < chars.length; i++) {
+				int target = register(node.children.get(chars[i]), false);
+				values[1 + 2 * i] = chars[i];
+				values[2 + 2 * i] = target;
+				count += counts.getInt(target);
+			}
+
+			Signature signature = new Signature(values);
+			if (!isRoot) {
+				Integer state = registry.get(signature);
+				if (state != null) {
+					return state;
+				}
+			}
+
+			int state = counts.size();
+			counts.add(count);
+			if (values[0] == 1) {
+				leaves.set(state);
+			}
+			firstEdge.add(labels.size());
+			edgeCounts.add(chars.length);
+			for (int i = 0; i < chars.length; i++) {
+				labels.add(chars[i]);
+				targets.add(values[2 + 2 * i]);
+			}
+			if (!isRoot) {
+				registry.put(signature, state);
+			}
+			return state;
+		}
+	}
+
+	/**
+	 * Build the minimal word graph of the trie below root.
+	 *
+	 * @param root
+	 * @param numOfwords
+	 * @param caseSensitive
+	 * @param charset
+	 */
+	Dawg(Node root, int numOfwords, boolean caseSensitive, Charset charset) {
+		Builder builder = new Builder();
+		this.root = builder.register(root, true);
+		this.firstEdge = builder.firstEdge.toIntArray();
+		this.edgeCounts = builder.edgeCounts.toIntArray();
+		this.counts = builder.counts.toIntArray();
+		this.leaves = builder.leaves;
+		this.labels = builder.labels.toCharArray();
+		this.targets = builder.targets.toIntArray();
+		this.numOfTrieNodes = builder.nodes;
+		this.numOfwords = numOfwords;
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+	}
+
+	/**
+	 * Move from state with the char c.
+	 *
+	 * @param state
+	 * @param c
+	 * @return the next state or NONE
+	 */
+	private int transition(int state, char c) {
+		int low = firstEdge[state];
+		int high = low + edgeCounts[state] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = labels[middle];
+			if (label < c) {
+				low = middle + 1;
+			} else if (label > c) {
+				high = middle - 1;
+			} else {
+				return targets[middle];
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Search a key, normalizing it char by char.
+	 *
+	 * @param key
+	 * @return the last key's state or NONE
+	 */
+	private int searchState(CharSequence key) {
+		if (key.length() == 0) {
+			return NONE;
+		}
+		int state = root;
+		for (int i = 0; i < key.length() && state != NONE; i++) {
+			if (!normalizer.isDropped(key, i)) {
+				state = transition(state, normalizer.charAt(key, i));
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Returns if there is any word in the graph that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(CharSequence prefix) {
+		return searchState(prefix) != NONE;
+	}
+
+	/**
+	 * Returns if the word is in the graph.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(CharSequence word) {
+		int state = searchState(word);
+		return state != NONE && leaves.get(state);
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(CharSequence prefix) {
+		int state = searchState(prefix);
+		return state != NONE ? counts[state] : 0;
+	}
+
+	/**
+	 * Return words starting with prefix, in char order. The Stream is lazy
+	 * and sized.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(CharSequence prefix) {
+		String start = normalizer.normalize(prefix);
+		int state = searchState(start);
+		if (state == NONE) {
+			return Stream.empty();
+		}
+		// the prefix itself is not returned
+		long size = counts[state] - (leaves.get(state) ? 1 : 0);
+		return StreamSupport.stream(Spliterators.spliterator(new WordIterator(state, start), size,
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Pre-order iterator over the words below a state, keeping the state of
+	 * each level.
+	 */
+	private class WordIterator extends PreOrderWordIterator {
+
+		private int[] states = new int[16];
+
+		WordIterator(int start, String prefix) {
+			super(prefix);
+			this.states[0] = start;
+			start();
+		}
+
+		@Override
+		int degree(int depth) {
+			return edgeCounts[states[depth]];
+		}
+
+		@Override
+		char enter(int depth, int position) {
+			int edge = firstEdge[states[depth - 1]] + position;
+			states[depth] = targets[edge];
+			return labels[edge];
+		}
+
+		@Override
+		boolean isWord(int depth) {
+			return leaves.get(states[depth]);
+		}
+
+		@Override
+		void grow(int capacity) {
+			states = Arrays.copyOf(states, capacity);
+		}
+	}
+
+	/**
+	 * The search function returns a list of all words that are less than the
+	 * given maximum distance from the target word, using Levenshtein distance,
+	 * as {@link Trie#getSimilarityMap(String, int)}. A shared state is visited
+	 * once per path leading to it, since its rows depend on the path.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return a map of the words found and their distance
+	 */
+	public Map<String, Integer> getSimilarityMap(CharSequence word, int maxDistance) {
+		SimilaritySearch search = new SimilaritySearch(normalizer.normalize(word), maxDistance);
+		searchSimilar(search, root, 0);
+		return search.getResults();
+	}
+
+	/**
+	 * Build the rows of the targets of state, at depth + 1, from the row of
+	 * state, then recursively search them.
+	 *
+	 * @param search
+	 * @param state
+	 * @param depth
+	 *            number of chars read to reach state
+	 */
+	private void searchSimilar(SimilaritySearch search, int state, int depth) {
+		int end = firstEdge[state] + edgeCounts[state];
+		for (int edge = firstEdge[state]; edge < end; edge++) {
+			int target = targets[edge];
+			if (search.visit(labels[edge], depth, leaves.get(target))) {
+				searchSimilar(search, target, depth + 1);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of states, root included.
+	 *
+	 * @return number of states
+	 */
+	public int getNumberOfStates() {
+		return counts.length;
+	}
+
+	public int getNumberOfEdges() {
+		return labels.length;
+	}
+
+	/**
+	 * Return the number of nodes of the trie the graph was built from, root
+	 * included.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNumberOfTrieNodes() {
+		return numOfTrieNodes;
+	}
+
+	/**
+	 * Return the fraction of the nodes of the trie removed by the
+	 * minimization.
+	 *
+	 * @return 1 - states / trie nodes
+	 */
+	public double getReduction() {
+		return 1.0 - (double) getNumberOfStates() / numOfTrieNodes;
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
@@ -0,0 +1,416 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An immutable double-array trie (https://linux.thai.net/~thep/datrie/datrie.html)
+ * built from a {@link Trie} with {@link Trie#freeze()}.
+ *
+ * Every state s moves with the character c to the state t = BASE[s] + code(c),
+ * and the move is valid only if CHECK[t] == s, so each character of a lookup
+ * costs one array access instead of an AVL descent. Characters are remapped to
+ * a dense alphabet, ordered like the chars themselves, to keep the arrays
+ * compact. The number of words below each state is kept in COUNT, so prefix
+ * counting is constant-time per character as well.
+ *
+ * @author Umberto
+ *
+ */
+public class FrozenTrie {
+
+	// CHECK value of a free slot
+	private static final int FREE = -1;
+	// CHECK value of the root slot
+	private static final int ROOT_CHECK = -2;
+	private static final int ROOT = 0;
+	// Free list terminator, also used for slots out of the free list
+	private static final int NOT_LISTED = -1;
+	// Times a free slot may fail as first child position before being skipped
+	private static final int MAX_FAILURES = 16;
+
+	// Dense code (1..alphabet.length) of each char, 0 if the char is not used
+	private final char[] codes;
+	// Chars sorted by code - 1
+	private final char[] alphabet;
+
+	private int[] base;
+	private int[] check;
+	// to count how many words starting with prefix
+	private int[] counts;
+	private BitSet leaves;
+
+	// Free slots, only used while building
+	private int[] nextFree;
+	private int[] prevFree;
+	private byte[] failures;
+	private int freeHead;
+	private int freeTail;
+
+	private final int numOfwords;
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * Build a double-array trie from the nodes below root.
+	 *
+	 * @param root
+	 * @param numOfwords
+	 * @param caseSensitive
+	 * @param charset
+	 */
+	FrozenTrie(Node root, int numOfwords, boolean caseSensitive, Charset charset) {
+		this.numOfwords = numOfwords;
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, this.charset);
+
+		BitSet used = new BitSet(Character.MAX_VALUE + 1);
+		int nodes = collectAlphabet(root, used);
+		this.alphabet = new char[used.cardinality()];
+		this.codes = new char[Character.MAX_VALUE + 1];
+		int code = 0;
+		for (int c = used.nextSetBit(0); c >= 0; c = used.nextSetBit(c + 1)) {
+			alphabet[code] = (char) c;
+			codes[c] = (char) ++code;
+		}
+
+		build(root, nodes);
+	}
+
+	/**
+	 * Collect the chars used below node.
+	 *
+	 * @param node
+	 * @param used
+	 * @return the number of nodes below node, node included
+	 */
+	private static int collectAlphabet(Node node, BitSet used) {
+		int nodes = 1;
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			Node current = stack.pop();
+			for (Node child : current.children.values()) {
+				used.set(child.getC());
+				stack.push(child);
+				nodes++;
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Place the states breadth first, choosing for each state the first BASE
+	 * whose slots are free for all of its children. Candidates are taken from
+	 * a list of the free slots, and a slot that keeps failing as position of
+	 * a first child is dropped from the list so it is not tried again.
+	 *
+	 * @param root
+	 * @param nodes
+	 */
+	private void build(Node root, int nodes) {
+		int capacity = Math.max(nodes + alphabet.length + 1, 2);
+		base = new int[capacity];
+		check = new int[capacity];
+		counts = new int[capacity];
+		leaves = new BitSet(capacity);
+		nextFree = new int[capacity];
+		prevFree = new int[capacity];
+		failures = new byte[capacity];
+		check[ROOT] = ROOT_CHECK;
+		counts[ROOT] = numOfwords;
+		prevFree[ROOT] = NOT_LISTED;
+		freeHead = NOT_LISTED;
+		freeTail = NOT_LISTED;
+		appendFree(1, capacity);
+
+		int last = ROOT;
+		int[] childCodes = new int[alphabet.length];
+
+		ArrayDeque<Node> nodeQueue = new ArrayDeque<Node>();
+		ArrayDeque<Integer> stateQueue = new ArrayDeque<Integer>();
+		nodeQueue.add(root);
+		stateQueue.add(ROOT);
+
+		while (!nodeQueue.isEmpty()) {
+			Node node = nodeQueue.poll();
+			int state = stateQueue.poll();
+
+			int n = 0;
+			for (Char2ObjectMap.Entry<Node> entry : node.children.char2ObjectEntrySet()) {
+				childCodes[n++] = codes[entry.getCharKey()];
+			}
+			if (n == 0) {
+				continue;
+			}
+			// the children of a hash map come in any order
+			Arrays.sort(childCodes, 0, n);
+
+			int b = findBase(childCodes, n);
+			base[state] = b;
+
+			for (Char2ObjectMap.Entry<Node> entry : node.children.char2ObjectEntrySet()) {
+				Node child = entry.getValue();
+				int t = b + codes[entry.getCharKey()];
+				occupy(t, state);
+				counts[t] = child.getCount();
+				if (child.isLeaf()) {
+					leaves.set(t);
+				}
+				last = Math.max(last, t);
+				nodeQueue.add(child);
+				stateQueue.add(t);
+			}
+		}
+
+		int length = last + 1;
+		base = Arrays.copyOf(base, length);
+		check = Arrays.copyOf(check, length);
+		counts = Arrays.copyOf(counts, length);
+		nextFree = null;
+		prevFree = null;
+		failures = null;
+	}
+
+	/**
+	 * Return the first BASE whose slots are free for all the codes.
+	 */
+	private int findBase(int[] childCodes, int n) {
+		int f = freeHead;
+		while (true) {
+			if (f == NOT_LISTED) {
+				// no free slot left, add a new block at the end
+				f = check.length;
+				grow(check.length + Math.max(check.length >> 1, childCodes[n - 1] + 1));
+			}
+			int b = f - childCodes[0];
+			if (b >= 1 && b + childCodes[n - 1] >= check.length) {
+				grow(b + childCodes[n - 1] + 1 + (check.length >> 1));
+			}
+			int next = nextFree[f];
+			if (b >= 1) {
+				if (fits(b, childCodes, n)) {
+					return b;
+				}
+				if (++failures[f] > MAX_FAILURES) {
+					unlistFree(f);
+				}
+			}
+			f = next;
+		}
+	}
+
+	/**
+	 * Returns if the slots b + code are free for all the codes.
+	 */
+	private boolean fits(int b, int[] childCodes, int n) {
+		for (int i = 0; i < n; i++) {
+			if (check[b + childCodes[i]] != FREE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void occupy(int t, int state) {
+		check[t] = state;
+		if (prevFree[t] != NOT_LISTED || freeHead == t) {
+			unlistFree(t);
+		}
+	}
+
+	private void unlistFree(int t) {
+		int prev = prevFree[t];
+		int next = nextFree[t];
+		if (prev == NOT_LISTED) {
+			freeHead = next;
+		} else {
+			nextFree[prev] = next;
+		}
+		if (next == NOT_LISTED) {
+			freeTail = prev;
+		} else {
+			prevFree[next] = prev;
+		}
+		prevFree[t] = NOT_LISTED;
+		nextFree[t] = NOT_LISTED;
+	}
+
+	/**
+	 * Add the slots [from, to) at the end of the free list.
+	 */
+	private void appendFree(int from, int to) {
+		Arrays.fill(check, from, to, FREE);
+		for (int t = from; t < to; t++) {
+			prevFree[t] = freeTail;
+			nextFree[t] = NOT_LISTED;
+			if (freeTail == NOT_LISTED) {
+				freeHead = t;
+			} else {
+				nextFree[freeTail] = t;
+			}
+			freeTail = t;
+		}
+	}
+
+	private void grow(int capacity) {
+		int old = check.length;
+		base = Arrays.copyOf(base, capacity);
+		check = Arrays.copyOf(check, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		nextFree = Arrays.copyOf(nextFree, capacity);
+		prevFree = Arrays.copyOf(prevFree, capacity);
+		failures = Arrays.copyOf(failures, capacity);
+		appendFree(old, capacity);
+	}
+
+	/**
+	 * Move from state with the char c.
+	 *
+	 * @param state
+	 * @param c
+	 * @return the next state or -1
+	 */
+	private int transition(int state, char c) {
+		int code = codes[c];
+		if (code == 0) {
+			return -1;
+		}
+		int t = base[state] + code;
+		return (t < check.length && check[t] == state) ? t : -1;
+	}
+
+	/**
+	 * Search a word in the trie.
+	 *
+	 * @param word
+	 * @return the last word's state or -1
+	 */
+	private int searchState(String word) {
+		if (word.isEmpty()) {
+			return -1;
+		}
+		int state = ROOT;
+		for (int i = 0; i < word.length() && state >= 0; i++) {
+			state = transition(state, word.charAt(i));
+		}
+		return state;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		return searchState(preprocessWord(prefix)) >= 0;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		int state = searchState(preprocessWord(word));
+		return state >= 0 && leaves.get(state);
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		int state = searchState(preprocessWord(prefix));
+		return state >= 0 ? counts[state] : 0;
+	}
+
+	/**
+	 * Return words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+		prefix = preprocessWord(prefix);
+		int state = searchState(prefix);
+		if (state < 0) {
+			return Stream.empty();
+		}
+		List<String> words = new ArrayList<String>(counts[state]);
+		collectWords(state, new StringBuilder(prefix), words);
+		return words.stream();
+	}
+
+	/**
+	 * Depth-first search collecting the words below state, in char order.
+	 *
+	 * @param state
+	 * @param buffer
+	 * @param words
+	 */
+	private void collectWords(int state, StringBuilder buffer, List<String> words) {
+		int b = base[state];
+		if (b == 0) {
+			return;
+		}
+		int length = buffer.length();
+		for (int code = 1; code <= alphabet.length && b + code < check.length; code++) {
+			int t = b + code;
+			if (check[t] == state) {
+				buffer.append(alphabet[code - 1]);
+				if (leaves.get(t)) {
+					words.add(buffer.toString());
+				}
+				collectWords(t, buffer, words);
+				buffer.setLength(length);
+			}
+		}
+	}
+
+	/**
+	 * Encode the word and lowerCase if the word is case-sensitive
+	 *
+	 * @param word
+	 * @return
+	 */
+	private String preprocessWord(String word) {
+		return normalizer.normalize(word);
+	}
+
+	/**
+	 * Return the length of the BASE/CHECK arrays.
+	 *
+	 * @return the number of slots
+	 */
+	public int getNumberOfSlots() {
+		return check.length;
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
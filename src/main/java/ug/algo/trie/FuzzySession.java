@@ -0,0 +1,280 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ug.algo.trie.TrieStats.Operation;
+
+/**
+ * An as-you-type Levenshtein search over a {@link Trie}: the query grows one
+ * char at a time and {@link #getSimilarityMap()} returns the same words as
+ * {@link Trie#getSimilarityMap(String, int)} called with the whole query.
+ *
+ * The session keeps every node the search has reached, with its row of the
+ * distance matrix. The cell of a row for a query prefix only depends on
+ * that prefix, so typing a char only adds one cell to each row, computed
+ * from the row of the parent, and expands the nodes whose new cell is now
+ * within the maximum distance: a keystroke costs O(nodes reached) instead
+ * of O(nodes reached * query length). Since a row never loses a cell, a
+ * node expanded for a prefix is expanded for every longer one, and
+ * {@link #pop()} only has to drop the nodes reached by the last char.
+ *
+ * A session must be reset after the trie is modified, and it is not thread
+ * safe.
+ *
+ * @author Umberto
+ *
+ */
+public class FuzzySession {
+
+	/**
+	 * A node reached by the search and its row, whose cell i is the distance
+	 * between the word of the node and the first i chars of the query.
+	 */
+	private static final class Entry {
+
+		private final Node node;
+		private final Entry parent;
+		private final int depth;
+		private int[] row;
+		// if the entries of the children have been created
+		private boolean expanded;
+
+		Entry(Node node, Entry parent, int depth, int capacity) {
+			this.node = node;
+			this.parent = parent;
+			this.depth = depth;
+			this.row = new int[capacity];
+		}
+	}
+
+	private final Trie trie;
+	private final KeyNormalizer normalizer;
+	private final int maxDistance;
+	// chars as typed, and normalized
+	private final StringBuilder typed = new StringBuilder();
+	private final StringBuilder query = new StringBuilder();
+	// parents before children
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private final Entry root;
+	// for each query length, the entries and the expanded entries before it
+	private int[] entriesBefore = new int[16];
+	private int[] expandedBefore = new int[16];
+	// indexes of the entries expanded by a char typed after their creation
+	private final IntArrayList expanded = new IntArrayList();
+	private long visited;
+
+	FuzzySession(Trie trie, Node root, KeyNormalizer normalizer, int maxDistance) {
+		this.trie = trie;
+		this.normalizer = normalizer;
+		this.maxDistance = maxDistance;
+		this.root = new Entry(root, null, 0, 16);
+		entries.add(this.root);
+		// the empty word is at distance 0 from the empty query
+		expand(this.root);
+	}
+
+	/**
+	 * Type a char at the end of the query.
+	 *
+	 * @param c
+	 * @return this session
+	 */
+	public FuzzySession push(char c) {
+		TrieMetrics metrics = trie.metrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+		visited = 0;
+		int last = typed.length() - 1;
+		typed.append(c);
+		if (Character.isLowSurrogate(c) && last >= 0 && Character.isHighSurrogate(typed.charAt(last))) {
+			// the high surrogate was normalized as unpaired
+			truncate(query.length() - 1);
+			extend(last);
+		}
+		extend(last + 1);
+		if (metrics != null) {
+			metrics.record(Operation.SIMILARITY, start);
+			metrics.recordNodesVisited(visited);
+		}
+		return this;
+	}
+
+	/**
+	 * Type chars at the end of the query.
+	 *
+	 * @param chars
+	 * @return this session
+	 */
+	public FuzzySession push(CharSequence chars) {
+		for (int i = 0; i < chars.length(); i++) {
+			push(chars.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * Erase the last char of the query, going back to the nodes and rows of
+	 * the query without it.
+	 *
+	 * @return false if the query was empty
+	 */
+	public boolean pop() {
+		int last = typed.length() - 1;
+		if (last < 0) {
+			return false;
+		}
+		if (last > 0 && Character.isLowSurrogate(typed.charAt(last))
+				&& Character.isHighSurrogate(typed.charAt(last - 1))) {
+			// the high surrogate is unpaired again
+			truncate(query.length() - (normalizer.isDropped(typed, last) ? 1 : 2));
+			typed.setLength(last);
+			extend(last - 1);
+		} else {
+			truncate(query.length() - 1);
+			typed.setLength(last);
+		}
+		return true;
+	}
+
+	/**
+	 * Erase the whole query.
+	 */
+	public void reset() {
+		truncate(0);
+		typed.setLength(0);
+	}
+
+	/**
+	 * Add the cell of the typed char at i to every row, and expand the
+	 * entries it brings within the maximum distance. A dropped char adds no
+	 * cell.
+	 *
+	 * @param i
+	 */
+	private void extend(int i) {
+		if (normalizer.isDropped(typed, i)) {
+			return;
+		}
+		char c = normalizer.charAt(typed, i);
+		query.append(c);
+		int column = query.length();
+		if (column == entriesBefore.length) {
+			entriesBefore = Arrays.copyOf(entriesBefore, entriesBefore.length * 2);
+			expandedBefore = Arrays.copyOf(expandedBefore, expandedBefore.length * 2);
+		}
+		int size = entries.size();
+		entriesBefore[column] = size;
+		expandedBefore[column] = expanded.size();
+		for (int e = 0; e < size; e++) {
+			Entry entry = entries.get(e);
+			if (column == entry.row.length) {
+				entry.row = Arrays.copyOf(entry.row, entry.row.length * 2);
+			}
+			int[] row = entry.row;
+			if (entry.parent == null) {
+				row[column] = column;
+			} else {
+				int[] previousRow = entry.parent.row;
+				int insertCost = row[column - 1] + 1;
+				int deleteCost = previousRow[column] + 1;
+				int replaceCost = previousRow[column - 1] + (entry.node.getC() != c ? 1 : 0);
+				row[column] = Math.min(insertCost, Math.min(deleteCost, replaceCost));
+			}
+			visited++;
+			if (!entry.expanded && row[column] <= maxDistance) {
+				expanded.add(e);
+				expand(entry);
+			}
+		}
+	}
+
+	/**
+	 * Create the entries of the children of entry, with their whole rows,
+	 * and expand those within the maximum distance.
+	 *
+	 * @param entry
+	 */
+	private void expand(Entry entry) {
+		entry.expanded = true;
+		for (Node child : entry.node.children.values()) {
+			Entry next = new Entry(child, entry, entry.depth + 1, entry.row.length);
+			entries.add(next);
+			visited++;
+			if (Levenshtein.nextRow(query, child.getC(), entry.row, next.row) <= maxDistance) {
+				expand(next);
+			}
+		}
+	}
+
+	/**
+	 * Keep the first length chars of the normalized query.
+	 *
+	 * @param length
+	 */
+	private void truncate(int length) {
+		if (length >= query.length()) {
+			return;
+		}
+		entries.subList(entriesBefore[length + 1], entries.size()).clear();
+		for (int i = expandedBefore[length + 1]; i < expanded.size(); i++) {
+			int e = expanded.getInt(i);
+			// an entry created by a dropped char is already gone
+			if (e < entries.size()) {
+				entries.get(e).expanded = false;
+			}
+		}
+		expanded.size(expandedBefore[length + 1]);
+		query.setLength(length);
+	}
+
+	/**
+	 * Return the words less than the maximum distance from the query, with
+	 * their distance, as {@link Trie#getSimilarityMap(String, int)}.
+	 *
+	 * @return a map of the words found and their distance
+	 */
+	public Map<String, Integer> getSimilarityMap() {
+		Map<String, Integer> results = new HashMap<String, Integer>();
+		int column = query.length();
+		char[] word = new char[16];
+		for (int e = 1; e < entries.size(); e++) {
+			Entry entry = entries.get(e);
+			int distance = entry.row[column];
+			if (distance <= maxDistance && entry.node.isLeaf()) {
+				if (entry.depth > word.length) {
+					word = new char[Math.max(entry.depth, word.length * 2)];
+				}
+				Entry at = entry;
+				for (int i = entry.depth - 1; i >= 0; i--) {
+					word[i] = at.node.getC();
+					at = at.parent;
+				}
+				results.put(new String(word, 0, entry.depth), distance);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @return the query, normalized
+	 */
+	public String getQuery() {
+		return query.toString();
+	}
+
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * @return the number of nodes the search has reached, the root included
+	 */
+	public int getNumberOfEntries() {
+		return entries.size();
+	}
+}
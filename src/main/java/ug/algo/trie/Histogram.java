@@ -0,0 +1,82 @@
+package ug.algo.trie;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative long values (latencies in
+ * nanoseconds, numbers of nodes...) with buckets of logarithmic size, as in
+ * HdrHistogram: values below 16 have their own bucket, then every power of
+ * two is divided in 16 buckets, so a value is known within 1/16 (6.25%) of
+ * itself with less than a thousand buckets for the whole long range.
+ *
+ * Recording a value costs a few increments, without locks nor allocations.
+ *
+ * @author Umberto
+ *
+ */
+class Histogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Record a value, negative values are recorded as 0.
+	 *
+	 * @param value
+	 */
+	void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return a copy of the values recorded so far
+	 */
+	TrieStats.Distribution snapshot() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = buckets.get(i);
+		}
+		return new TrieStats.Distribution(copy, count.sum(), sum.sum(), max.get());
+	}
+
+	/**
+	 * @param value
+	 * @return the index of the bucket of value
+	 */
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @param bucket
+	 * @return the highest value of the bucket
+	 */
+	static long highestValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+		long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowest = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		return lowest + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
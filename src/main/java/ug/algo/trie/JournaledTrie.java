@@ -0,0 +1,758 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A {@link Trie} surviving restarts and crashes: every add and remove is
+ * appended to a journal before it is applied, and {@link #open(Path, Trie)}
+ * rebuilds the trie from the latest checkpoint and the journal written after
+ * it.
+ *
+ * The records are buffered and written in groups of batchSize, or when
+ * {@link #commit()} is called, and the {@link SyncPolicy} tells when the
+ * journal is forced to the disk. The records still buffered are lost by a
+ * crash. Every checkpointInterval records the whole trie is written to a
+ * new checkpoint, which replaces the previous one with an atomic rename, and
+ * the journal is emptied, so recovery replays at most checkpointInterval
+ * records. The checkpoint and the journal carry a generation: a journal
+ * older than the checkpoint, left by a crash during a checkpoint, is
+ * ignored. Recovery stops at the first torn or corrupted record, and the
+ * journal is truncated there.
+ *
+ * The directory holds two files, big-endian, where varint is an unsigned
+ * LEB128 number and the weights are zigzag encoded:
+ *
+ * <pre>
+ * journal:
+ * int    magic ("TRJL")
+ * int    version
+ * long   generation
+ * then for each record:
+ * byte   operation (1 add, 2 add with weight, 3 remove)
+ * varint length of the word, followed by its chars as varints
+ * varint weight, for an add with weight
+ * int    CRC32 of the record
+ *
+ * checkpoint:
+ * int    magic ("TRCP")
+ * int    version
+ * int    flags (1 = case sensitive)
+ * short  length of the charset name, followed by its US-ASCII bytes
+ * long   generation
+ * int    number of words
+ * then for each word, in order:
+ * varint chars shared with the previous word
+ * varint length of the rest, followed by its chars as varints
+ * varint weight
+ * and finally:
+ * int    CRC32 of the whole checkpoint
+ * </pre>
+ *
+ * The trie must be modified through this class. Like Trie, this class is
+ * not thread safe.
+ *
+ * @author Umberto
+ *
+ */
+public class JournaledTrie implements Closeable {
+
+	/**
+	 * When the journal is forced to the disk.
+	 */
+	public enum SyncPolicy {
+		/**
+		 * Never: the records written survive a crash of the process, not of
+		 * the machine.
+		 */
+		NEVER,
+		/**
+		 * After each group of records written.
+		 */
+		COMMIT,
+		/**
+		 * After each add or remove, written on its own.
+		 */
+		ALWAYS
+	}
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 100000;
+
+	static final String JOURNAL = "journal";
+	static final String CHECKPOINT = "checkpoint";
+	private static final int JOURNAL_MAGIC = 0x54524A4C;
+	private static final int CHECKPOINT_MAGIC = 0x54524350;
+	private static final int VERSION = 1;
+	private static final int JOURNAL_HEADER = 16;
+	private static final int CASE_SENSITIVE = 1;
+
+	private static final byte ADD = 1;
+	private static final byte ADD_WEIGHT = 2;
+	private static final byte REMOVE = 3;
+
+	private final Trie trie;
+	private final Path directory;
+	private final SyncPolicy syncPolicy;
+	private final int batchSize;
+	private final int checkpointInterval;
+	private FileChannel journal;
+	// records not written yet
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+	private int pending;
+	// the record being encoded
+	private byte[] record = new byte[64];
+	private int recordLength;
+	private final CRC32 crc = new CRC32();
+	private long generation;
+	// records in the journal, buffered ones included
+	private long records;
+	private int replayed;
+	private long journalSize;
+
+	private JournaledTrie(Trie trie, Path directory, SyncPolicy syncPolicy, int batchSize, int checkpointInterval) {
+		this.trie = trie;
+		this.directory = directory;
+		this.syncPolicy = syncPolicy;
+		this.batchSize = batchSize;
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * Recover the trie kept in directory, with the default policy and
+	 * intervals. The directory is created if needed.
+	 *
+	 * @param directory
+	 * @param trie
+	 *            an empty trie to recover into, to be modified only through
+	 *            the returned object from now on
+	 * @return the journaled trie
+	 * @throws IOException
+	 *             if the files cannot be read or written, or are not valid
+	 */
+	public static JournaledTrie open(Path directory, Trie trie) throws IOException {
+		return open(directory, trie, SyncPolicy.COMMIT, DEFAULT_BATCH_SIZE, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * Recover the trie kept in directory: load the checkpoint, if any, and
+	 * replay the journal written after it. The directory is created if
+	 * needed.
+	 *
+	 * @param directory
+	 * @param trie
+	 *            an empty trie to recover into, to be modified only through
+	 *            the returned object from now on
+	 * @param syncPolicy
+	 *            when the journal is forced to the disk
+	 * @param batchSize
+	 *            the records buffered before they are written
+	 * @param checkpointInterval
+	 *            the records written between two checkpoints
+	 * @return the journaled trie
+	 * @throws IOException
+	 *             if the files cannot be read or written, or are not valid
+	 */
+	public static JournaledTrie open(Path directory, Trie trie, SyncPolicy syncPolicy, int batchSize,
+			int checkpointInterval) throws IOException {
+		if (trie.getNumberOfWords() > 0) {
+			throw new IllegalArgumentException("The trie to recover into must be empty");
+		}
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		if (checkpointInterval <= 0) {
+			throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+		}
+		Files.createDirectories(directory);
+		JournaledTrie journaled = new JournaledTrie(trie, directory, syncPolicy, batchSize, checkpointInterval);
+		Path checkpoint = directory.resolve(CHECKPOINT);
+		if (Files.exists(checkpoint)) {
+			journaled.generation = loadCheckpoint(checkpoint, trie);
+		}
+		journaled.recover();
+		return journaled;
+	}
+
+	/**
+	 * Read the checkpoint into trie.
+	 *
+	 * @param path
+	 * @param trie
+	 * @return the generation of the checkpoint
+	 * @throws IOException
+	 */
+	private static long loadCheckpoint(Path path, Trie trie) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		ByteBuffer data = ByteBuffer.wrap(bytes);
+		if (bytes.length < 30 || data.getInt() != CHECKPOINT_MAGIC) {
+			throw new IOException("Not a trie checkpoint: " + path);
+		}
+		int version = data.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported trie checkpoint version " + version);
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(bytes, 0, bytes.length - 4);
+		if ((int) checksum.getValue() != data.getInt(bytes.length - 4)) {
+			throw new IOException("Corrupted trie checkpoint: " + path);
+		}
+		boolean caseSensitive = (data.getInt() & CASE_SENSITIVE) != 0;
+		byte[] charsetName = new byte[data.getShort()];
+		data.get(charsetName);
+		Charset charset = Charset.forName(new String(charsetName, StandardCharsets.US_ASCII));
+		if (caseSensitive != trie.isCaseSensitive() || !charset.equals(trie.getCharset())) {
+			throw new IOException("The checkpoint was written by a " + (caseSensitive ? "case sensitive " : "")
+					+ charset.name() + " trie: " + path);
+		}
+		long generation = data.getLong();
+		String[] words = new String[data.getInt()];
+		// most words weigh 0, the others are set after the load
+		IntArrayList weighted = new IntArrayList();
+		LongArrayList weights = new LongArrayList();
+		char[] word = new char[16];
+		for (int i = 0; i < words.length; i++) {
+			int common = (int) readVarint(data);
+			int length = common + (int) readVarint(data);
+			if (length > word.length) {
+				word = Arrays.copyOf(word, Math.max(length, word.length * 2));
+			}
+			for (int j = common; j < length; j++) {
+				word[j] = (char) readVarint(data);
+			}
+			words[i] = new String(word, 0, length);
+			long weight = decodeWeight(readVarint(data));
+			if (weight != 0) {
+				weighted.add(i);
+				weights.add(weight);
+			}
+		}
+		trie.bulkLoad(Arrays.asList(words).iterator());
+		for (int i = 0; i < weighted.size(); i++) {
+			trie.add(words[weighted.getInt(i)], weights.getLong(i));
+		}
+		return generation;
+	}
+
+	/**
+	 * Replay the journal of the current generation, and open it for
+	 * appending after its last valid record.
+	 *
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+		Path path = directory.resolve(JOURNAL);
+		int end = 0;
+		if (Files.exists(path)) {
+			ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+			// a shorter journal was torn while it was created
+			if (data.remaining() >= JOURNAL_HEADER) {
+				if (data.getInt() != JOURNAL_MAGIC) {
+					throw new IOException("Not a trie journal: " + path);
+				}
+				int version = data.getInt();
+				if (version != VERSION) {
+					throw new IOException("Unsupported trie journal version " + version);
+				}
+				long journalGeneration = data.getLong();
+				if (journalGeneration > generation) {
+					throw new IOException("The journal is newer than the checkpoint: " + path);
+				}
+				// an older journal is already in the checkpoint
+				if (journalGeneration == generation) {
+					end = replay(data);
+				}
+			}
+		}
+		journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		if (end == 0) {
+			restartJournal();
+		} else {
+			journal.truncate(end);
+			journal.position(end);
+			journalSize = end;
+		}
+	}
+
+	/**
+	 * Apply the records of the journal after its header, up to the first torn
+	 * or corrupted one.
+	 *
+	 * @param data
+	 * @return the end of the last valid record
+	 */
+	private int replay(ByteBuffer data) {
+		int end = data.position();
+		char[] word = new char[16];
+		try {
+			while (data.hasRemaining()) {
+				int start = data.position();
+				byte operation = data.get();
+				int length = (int) readVarint(data);
+				if (length < 0 || length > data.remaining()) {
+					break;
+				}
+				if (length > word.length) {
+					word = Arrays.copyOf(word, Math.max(length, word.length * 2));
+				}
+				for (int i = 0; i < length; i++) {
+					word[i] = (char) readVarint(data);
+				}
+				long weight = operation == ADD_WEIGHT ? decodeWeight(readVarint(data)) : 0;
+				int recordEnd = data.position();
+				crc.reset();
+				crc.update(data.array(), start, recordEnd - start);
+				if ((int) crc.getValue() != data.getInt()) {
+					break;
+				}
+				String key = new String(word, 0, length);
+				if (operation == ADD) {
+					trie.add(key);
+				} else if (operation == ADD_WEIGHT) {
+					trie.add(key, weight);
+				} else if (operation == REMOVE) {
+					trie.remove(key);
+				} else {
+					break;
+				}
+				end = data.position();
+				records++;
+				replayed++;
+			}
+		} catch (BufferUnderflowException e) {
+			// the last record is torn
+		}
+		return end;
+	}
+
+	/**
+	 * Empty the journal and write the header of the current generation.
+	 *
+	 * @throws IOException
+	 */
+	private void restartJournal() throws IOException {
+		journal.truncate(0);
+		journal.position(0);
+		ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER);
+		header.putInt(JOURNAL_MAGIC).putInt(VERSION).putLong(generation).flip();
+		while (header.hasRemaining()) {
+			journal.write(header);
+		}
+		if (syncPolicy != SyncPolicy.NEVER) {
+			journal.force(false);
+		}
+		journalSize = JOURNAL_HEADER;
+		records = 0;
+	}
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word
+	 * @throws IOException
+	 *             if the journal cannot be written
+	 */
+	public void add(String word) throws IOException {
+		String key = trie.normalizer().normalize(word);
+		if (key.isEmpty() || trie.search(key)) {
+			return;
+		}
+		append(ADD, key, 0);
+		trie.add(key);
+		appended();
+	}
+
+	/**
+	 * Inserts a word with a weight into the trie, as
+	 * {@link Trie#add(String, long)}.
+	 *
+	 * @param word
+	 * @param weight
+	 * @throws IOException
+	 *             if the journal cannot be written
+	 */
+	public void add(String word, long weight) throws IOException {
+		String key = trie.normalizer().normalize(word);
+		if (key.isEmpty()) {
+			return;
+		}
+		append(ADD_WEIGHT, key, weight);
+		trie.add(key, weight);
+		appended();
+	}
+
+	/**
+	 * Inserts a batch of words into the trie with {@link Trie#addAll}, after
+	 * journaling those not in it.
+	 *
+	 * @param words
+	 * @throws IOException
+	 *             if the journal cannot be written
+	 */
+	public void addAll(Collection<? extends CharSequence> words) throws IOException {
+		boolean[] found = trie.searchAll(words);
+		int i = 0;
+		for (CharSequence word : words) {
+			if (!found[i++]) {
+				String key = trie.normalizer().normalize(word);
+				if (!key.isEmpty()) {
+					append(ADD, key, 0);
+				}
+			}
+		}
+		trie.addAll(words);
+		appended();
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 * @throws IOException
+	 *             if the journal cannot be written
+	 */
+	public boolean remove(String word) throws IOException {
+		String key = trie.normalizer().normalize(word);
+		if (!trie.search(key)) {
+			return false;
+		}
+		append(REMOVE, key, 0);
+		trie.remove(key);
+		appended();
+		return true;
+	}
+
+	/**
+	 * Encode a record and buffer it, writing the buffer first if it is full.
+	 *
+	 * @param operation
+	 * @param key
+	 *            the normalized word
+	 * @param weight
+	 * @throws IOException
+	 */
+	private void append(byte operation, String key, long weight) throws IOException {
+		recordLength = 0;
+		putByte(operation);
+		putVarint(key.length());
+		for (int i = 0; i < key.length(); i++) {
+			putVarint(key.charAt(i));
+		}
+		if (operation == ADD_WEIGHT) {
+			putVarint(encodeWeight(weight));
+		}
+		crc.reset();
+		crc.update(record, 0, recordLength);
+		int checksum = (int) crc.getValue();
+
+		if (buffer.remaining() < recordLength + 4) {
+			write();
+			if (buffer.capacity() < recordLength + 4) {
+				buffer = ByteBuffer.allocate(recordLength + 4);
+			}
+		}
+		buffer.put(record, 0, recordLength).putInt(checksum);
+		pending++;
+		records++;
+	}
+
+	/**
+	 * Write the records of a full group, or of every add or remove with
+	 * {@link SyncPolicy#ALWAYS}, and checkpoint when the interval is reached.
+	 *
+	 * @throws IOException
+	 */
+	private void appended() throws IOException {
+		if (syncPolicy == SyncPolicy.ALWAYS || pending >= batchSize) {
+			commit();
+		}
+		if (records >= checkpointInterval) {
+			checkpoint();
+		}
+	}
+
+	private void putByte(int b) {
+		if (recordLength == record.length) {
+			record = Arrays.copyOf(record, record.length * 2);
+		}
+		record[recordLength++] = (byte) b;
+	}
+
+	private void putVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			putByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		putByte((int) value);
+	}
+
+	private static long readVarint(ByteBuffer data) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = data.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		return value;
+	}
+
+	private static void writeVarint(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long encodeWeight(long weight) {
+		return (weight << 1) ^ (weight >> 63);
+	}
+
+	private static long decodeWeight(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Write the buffered records.
+	 *
+	 * @throws IOException
+	 */
+	private void write() throws IOException {
+		if (buffer.position() == 0) {
+			return;
+		}
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			journalSize += journal.write(buffer);
+		}
+		buffer.clear();
+		pending = 0;
+	}
+
+	/**
+	 * Write the buffered records, and force them to the disk unless the
+	 * policy is {@link SyncPolicy#NEVER}. After a commit the adds and removes
+	 * made so far survive a crash.
+	 *
+	 * @throws IOException
+	 */
+	public void commit() throws IOException {
+		if (buffer.position() == 0) {
+			return;
+		}
+		write();
+		if (syncPolicy != SyncPolicy.NEVER) {
+			journal.force(false);
+		}
+	}
+
+	/**
+	 * Write the whole trie to a new checkpoint and empty the journal.
+	 *
+	 * @throws IOException
+	 */
+	public void checkpoint() throws IOException {
+		// if the checkpoint fails the journal is still complete
+		commit();
+		long next = generation + 1;
+		Path temp = directory.resolve(CHECKPOINT + ".tmp");
+		writeCheckpoint(temp, next);
+		Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		syncDirectory();
+		generation = next;
+		restartJournal();
+	}
+
+	/**
+	 * Write the words of the trie in order, each sharing its first chars with
+	 * the previous one, and force the file to the disk.
+	 *
+	 * @param path
+	 * @param generation
+	 * @throws IOException
+	 */
+	private void writeCheckpoint(Path path, long generation) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+			CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+			DataOutputStream out = new DataOutputStream(checked);
+			byte[] charsetName = trie.getCharset().name().getBytes(StandardCharsets.US_ASCII);
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(trie.isCaseSensitive() ? CASE_SENSITIVE : 0);
+			out.writeShort(charsetName.length);
+			out.write(charsetName);
+			out.writeLong(generation);
+			out.writeInt(trie.getNumberOfWords());
+
+			// depth first, children in order, so the words come sorted
+			Node[] stack = new Node[64];
+			int[] depths = new int[64];
+			int top = 0;
+			char[] word = new char[16];
+			// chars of the previous word not overwritten since
+			int common = 0;
+			Node root = trie.root();
+			for (Node child : sortedChildren(root)) {
+				stack[top] = child;
+				depths[top++] = 1;
+			}
+			while (top > 0) {
+				Node node = stack[--top];
+				int depth = depths[top];
+				if (depth > word.length) {
+					word = Arrays.copyOf(word, word.length * 2);
+				}
+				word[depth - 1] = node.getC();
+				common = Math.min(common, depth - 1);
+				if (node.isLeaf()) {
+					writeVarint(out, common);
+					writeVarint(out, depth - common);
+					for (int i = common; i < depth; i++) {
+						writeVarint(out, word[i]);
+					}
+					writeVarint(out, encodeWeight(node.getWeight()));
+					common = depth;
+				}
+				Node[] children = sortedChildren(node);
+				if (top + children.length > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(top + children.length, stack.length * 2));
+					depths = Arrays.copyOf(depths, stack.length);
+				}
+				for (Node child : children) {
+					stack[top] = child;
+					depths[top++] = depth + 1;
+				}
+			}
+			out.flush();
+			new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+			buffered.flush();
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * @param node
+	 * @return the children of node in reverse order, so the first is popped
+	 *         first
+	 */
+	private static Node[] sortedChildren(Node node) {
+		char[] labels = node.children.keySet().toCharArray();
+		Arrays.sort(labels);
+		Node[] children = new Node[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			children[labels.length - 1 - i] = node.children.get(labels[i]);
+		}
+		return children;
+	}
+
+	/**
+	 * Force the rename of the checkpoint to the disk, where the platform
+	 * allows it.
+	 */
+	private void syncDirectory() {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// directories cannot be opened on every platform
+		}
+	}
+
+	/**
+	 * Commit the buffered records and close the journal.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			journal.close();
+		}
+	}
+
+	public boolean search(String word) {
+		return trie.search(word);
+	}
+
+	public boolean startsWith(String prefix) {
+		return trie.startsWith(prefix);
+	}
+
+	/**
+	 * @return the trie, which must not be modified directly
+	 */
+	public Trie getTrie() {
+		return trie;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public SyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * @return the number of checkpoints written in the directory
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return the records in the journal, those still buffered included
+	 */
+	public long getJournalRecords() {
+		return records;
+	}
+
+	/**
+	 * @return the records replayed by the recovery
+	 */
+	public int getReplayedRecords() {
+		return replayed;
+	}
+
+	/**
+	 * @return the bytes written to the journal, its header included
+	 */
+	public long getJournalSize() {
+		return journalSize;
+	}
+}
@@ -0,0 +1,186 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Normalizes keys one char at a time, so a lookup can descend the trie
+ * straight from the key without building an encoded, lower case copy of it.
+ *
+ * A char is first round-tripped through the charset, as String.getBytes and
+ * new String would do. With a Unicode charset only the unpaired surrogates
+ * change, into what the charset reads back for them: '?' for UTF-8 and
+ * GB18030, U+FFFD for UTF-16 and UTF-32. With any other charset the result
+ * of every char is read from a table computed once per charset, and a
+ * surrogate pair is round-tripped as one code point: if the charset cannot
+ * encode it, the pair is read back as a single '?', and its low surrogate
+ * is dropped from the key (see {@link #isDropped(CharSequence, int)}).
+ *
+ * Then, if the trie is case insensitive, the char is folded with
+ * Character.toLowerCase, a surrogate pair as one code point. Unlike
+ * String.toLowerCase, the folding does not depend on the default locale
+ * (so 'I' is 'i' in a Turkish locale too) nor on the context (a final
+ * capital sigma is folded to U+03C3, not to the final form U+03C2), and
+ * U+0130, capital I with dot above, is folded to 'i' rather than to 'i'
+ * followed by U+0307.
+ *
+ * @author Umberto
+ *
+ */
+final class KeyNormalizer {
+
+	private static final char REPLACEMENT = '?';
+
+	// charsets able to encode every Unicode char
+	private static final Set<String> UNICODE = new HashSet<String>(Arrays.asList("UTF-8", "UTF-16", "UTF-16BE",
+			"UTF-16LE", "UTF-32", "UTF-32BE", "UTF-32LE", "GB18030"));
+
+	private static final ConcurrentMap<Charset, char[]> ROUND_TRIPS = new ConcurrentHashMap<Charset, char[]>();
+
+	private final boolean caseSensitive;
+	private final Charset charset;
+	// round trip of every char, null for a Unicode charset
+	private final char[] roundTrip;
+	// an unpaired surrogate read back from a Unicode charset
+	private final char unpaired;
+
+	KeyNormalizer(boolean caseSensitive, Charset charset) {
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		if (UNICODE.contains(charset.name())) {
+			this.roundTrip = null;
+			this.unpaired = roundTrip(charset, String.valueOf(Character.MIN_SURROGATE)).charAt(0);
+		} else {
+			this.roundTrip = ROUND_TRIPS.computeIfAbsent(charset, KeyNormalizer::roundTripTable);
+			this.unpaired = REPLACEMENT;
+		}
+	}
+
+	/**
+	 * Return the normalized char at index i of key. The char of a dropped
+	 * low surrogate is the one of its high surrogate, and must be skipped.
+	 *
+	 * @param key
+	 * @param i
+	 * @return the normalized char
+	 */
+	char charAt(CharSequence key, int i) {
+		char c = key.charAt(i);
+		if (Character.isSurrogate(c)) {
+			if (!isPaired(key, i)) {
+				c = unpaired;
+			} else if (roundTrip != null) {
+				// slow path, for the supplementary chars only
+				String pair = roundTripPair(key, Character.isHighSurrogate(c) ? i : i - 1);
+				if (pair.length() == 1) {
+					c = pair.charAt(0);
+				}
+			}
+		} else if (roundTrip != null) {
+			c = roundTrip[c];
+		}
+		if (caseSensitive) {
+			return c;
+		}
+		if (!Character.isSurrogate(c)) {
+			return Character.toLowerCase(c);
+		}
+		// the pair is left as it is by the round trip
+		if (Character.isHighSurrogate(c)) {
+			int codePoint = Character.toLowerCase(Character.toCodePoint(c, key.charAt(i + 1)));
+			return Character.isSupplementaryCodePoint(codePoint) ? Character.highSurrogate(codePoint) : c;
+		}
+		int codePoint = Character.toLowerCase(Character.toCodePoint(key.charAt(i - 1), c));
+		return Character.isSupplementaryCodePoint(codePoint) ? Character.lowSurrogate(codePoint) : c;
+	}
+
+	/**
+	 * Returns if the char at index i of key is dropped by the normalization:
+	 * the low surrogate of a pair that a charset other than the Unicode ones
+	 * reads back as a single char. The lookups skip it, so the normalized key
+	 * is shorter than key.
+	 *
+	 * @param key
+	 * @param i
+	 * @return true|false
+	 */
+	boolean isDropped(CharSequence key, int i) {
+		return roundTrip != null && i > 0 && Character.isLowSurrogate(key.charAt(i))
+				&& Character.isHighSurrogate(key.charAt(i - 1)) && roundTripPair(key, i - 1).length() == 1;
+	}
+
+	/**
+	 * Return the normalized key. A String that is already normalized is
+	 * returned as it is, without allocating.
+	 *
+	 * @param key
+	 * @return the normalized key
+	 */
+	String normalize(CharSequence key) {
+		int length = key.length();
+		int i = 0;
+		if (key instanceof String) {
+			while (i < length && charAt(key, i) == key.charAt(i) && !isDropped(key, i)) {
+				i++;
+			}
+			if (i == length) {
+				return (String) key;
+			}
+		}
+		char[] chars = new char[length];
+		for (int j = 0; j < i; j++) {
+			chars[j] = key.charAt(j);
+		}
+		int normalized = i;
+		for (; i < length; i++) {
+			if (!isDropped(key, i)) {
+				chars[normalized++] = charAt(key, i);
+			}
+		}
+		return new String(chars, 0, normalized);
+	}
+
+	private static boolean isPaired(CharSequence key, int i) {
+		char c = key.charAt(i);
+		if (Character.isHighSurrogate(c)) {
+			return i + 1 < key.length() && Character.isLowSurrogate(key.charAt(i + 1));
+		}
+		return i > 0 && Character.isHighSurrogate(key.charAt(i - 1));
+	}
+
+	/**
+	 * Round trip the surrogate pair starting at index i of key.
+	 *
+	 * @param key
+	 * @param i
+	 * @return the pair, or the single char the charset reads back for it
+	 */
+	private String roundTripPair(CharSequence key, int i) {
+		String pair = key.subSequence(i, i + 2).toString();
+		String decoded = roundTrip(charset, pair);
+		return decoded.length() == 2 ? pair : decoded.isEmpty() ? String.valueOf(REPLACEMENT) : decoded.substring(0, 1);
+	}
+
+	private static String roundTrip(Charset charset, String chars) {
+		return new String(chars.getBytes(charset), charset);
+	}
+
+	/**
+	 * Round trip every char through charset.
+	 *
+	 * @param charset
+	 * @return the char read back for every char
+	 */
+	private static char[] roundTripTable(Charset charset) {
+		char[] table = new char[Character.MAX_VALUE + 1];
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			String decoded = roundTrip(charset, String.valueOf((char) c));
+			table[c] = decoded.length() == 1 ? decoded.charAt(0) : REPLACEMENT;
+		}
+		return table;
+	}
+}
@@ -0,0 +1,53 @@
+package ug.algo.trie;
+
+/**
+ * The row by row computation of the Levenshtein distance shared by the
+ * similarity searches: the row of a node of a trie only depends on the row
+ * of its parent and on its char, so a depth-first search keeps one row per
+ * depth and builds each from the one above.
+ *
+ * References: http://stevehanov.ca/blog/index.php?id=114
+ * https://en.wikipedia.org/wiki/Levenshtein_distance
+ *
+ * @author Umberto
+ *
+ */
+final class Levenshtein {
+
+	private Levenshtein() {
+	}
+
+	/**
+	 * Build the row of a node from the row of its parent. Cell i is the
+	 * distance between the word of the node and the first i chars of word.
+	 *
+	 * @param word
+	 *            the searched word
+	 * @param letter
+	 *            the char of the node
+	 * @param previousRow
+	 *            the row of the parent, with word.length() + 1 cells
+	 * @param currentRow
+	 *            the row of the node, filled up to word.length()
+	 * @return the minimum of the row: if it is above the maximum distance, no
+	 *         word below the node is close enough
+	 */
+	static int nextRow(CharSequence word, char letter, int[] previousRow, int[] currentRow) {
+		int columns = word.length() + 1;
+		currentRow[0] = previousRow[0] + 1;
+		int rowMin = currentRow[0];
+		// Calculate the min cost of insertion, deletion, match or
+		// substitution
+		for (int i = 1; i < columns; i++) {
+			int insertCost = currentRow[i - 1] + 1;
+			int deleteCost = previousRow[i] + 1;
+			int replaceCost = previousRow[i - 1] + (word.charAt(i - 1) != letter ? 1 : 0);
+			int cost = Math.min(insertCost, Math.min(deleteCost, replaceCost));
+			currentRow[i] = cost;
+			if (cost < rowMin) {
+				rowMin = cost;
+			}
+		}
+		return rowMin;
+	}
+}
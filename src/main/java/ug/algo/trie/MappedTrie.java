@@ -0,0 +1,347 @@
+package ug.algo.trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A read-only Trie answering queries straight from a binary snapshot mapped in
+ * memory, written by {@link Trie#save(Path)} and opened with
+ * {@link Trie#open(Path)}. Nothing is deserialized: opening a snapshot costs
+ * a mapping, and several processes opening the same file share the page
+ * cache.
+ *
+ * Snapshot layout, big-endian:
+ *
+ * <pre>
+ * int    magic ("TRIE")
+ * int    version
+ * int    flags (1 = case sensitive)
+ * int    number of words
+ * int    number of nodes n, root included
+ * short  length of the charset name, followed by its US-ASCII bytes
+ * char   label[n]
+ * int    count[n]
+ * int    firstChild[n]
+ * int    childCount[n]
+ * byte   leaf[n]
+ * </pre>
+ *
+ * Nodes are numbered breadth first from the root, so the children of a node
+ * are contiguous and sorted by label, and are found with a binary search.
+ *
+ * @author Umberto
+ *
+ */
+public class MappedTrie {
+
+	static final int MAGIC = 0x54524945;
+	static final int VERSION = 1;
+	private static final int CASE_SENSITIVE = 1;
+	private static final int ROOT = 0;
+
+	private final ByteBuffer buffer;
+
+	private final int numOfwords;
+	private final int numOfNodes;
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+
+	// Offsets of the sections
+	private final int labelsOffset;
+	private final int countsOffset;
+	private final int firstChildOffset;
+	private final int childCountOffset;
+	private final int leavesOffset;
+
+	private MappedTrie(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.remaining() < 22 || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a trie snapshot");
+		}
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IOException("Unsupported trie snapshot version " + version);
+		}
+		this.caseSensitive = (buffer.getInt(8) & CASE_SENSITIVE) != 0;
+		this.numOfwords = buffer.getInt(12);
+		this.numOfNodes = buffer.getInt(16);
+		// written as an unsigned short
+		int charsetLength = buffer.getShort(20) & 0xFFFF;
+		// the sections take 15 bytes per node, computed as long so that a
+		// corrupt number of nodes cannot overflow
+		if (numOfNodes < 1 || buffer.limit() < 22L + charsetLength + 15L * numOfNodes) {
+			throw new IOException("Truncated trie snapshot");
+		}
+		byte[] charsetName = new byte[charsetLength];
+		for (int i = 0; i < charsetLength; i++) {
+			charsetName[i] = buffer.get(22 + i);
+		}
+		String name = new String(charsetName, StandardCharsets.US_ASCII);
+		try {
+			this.charset = Charset.forName(name);
+		} catch (IllegalArgumentException e) {
+			// an illegal or unsupported charset name
+			throw new IOException("Unsupported trie snapshot charset " + name, e);
+		}
+		this.normalizer = new KeyNormalizer(caseSensitive, this.charset);
+
+		this.labelsOffset = 22 + charsetLength;
+		this.countsOffset = labelsOffset + 2 * numOfNodes;
+		this.firstChildOffset = countsOffset + 4 * numOfNodes;
+		this.childCountOffset = firstChildOffset + 4 * numOfNodes;
+		this.leavesOffset = childCountOffset + 4 * numOfNodes;
+	}
+
+	/**
+	 * Map a snapshot written by {@link Trie#save(Path)}.
+	 *
+	 * @param path
+	 * @return a read-only trie backed by the file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid snapshot
+	 */
+	public static MappedTrie open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedTrie(buffer);
+		}
+	}
+
+	/**
+	 * Write the snapshot of the trie below root.
+	 *
+	 * @param path
+	 * @param root
+	 * @param numOfwords
+	 * @param caseSensitive
+	 * @param charset
+	 * @throws IOException
+	 */
+	static void save(Path path, Node root, int numOfwords, boolean caseSensitive, Charset charset)
+			throws IOException {
+
+		// number the nodes breadth first
+		List<Node> nodes = new ArrayList<Node>();
+		ArrayDeque<Node> queue = new ArrayDeque<Node>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			nodes.add(node);
+			// children are searched by binary search on their labels
+			char[] labels = node.children.keySet().toCharArray();
+			Arrays.sort(labels);
+			for (char label : labels) {
+				queue.add(node.children.get(label));
+			}
+		}
+
+		byte[] charsetName = charset.name().getBytes(StandardCharsets.US_ASCII);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(caseSensitive ? CASE_SENSITIVE : 0);
+			out.writeInt(numOfwords);
+			out.writeInt(nodes.size());
+			out.writeShort(charsetName.length);
+			out.write(charsetName);
+
+			for (Node node : nodes) {
+				out.writeChar(node == root ? 0 : node.getC());
+			}
+			for (Node node : nodes) {
+				out.writeInt(node == root ? numOfwords : node.getCount());
+			}
+			int next = 1;
+			for (Node node : nodes) {
+				out.writeInt(next);
+				next += node.children.size();
+			}
+			for (Node node : nodes) {
+				out.writeInt(node.children.size());
+			}
+			for (Node node : nodes) {
+				out.writeByte(node.isLeaf() ? 1 : 0);
+			}
+		}
+	}
+
+	private char label(int node) {
+		return buffer.getChar(labelsOffset + 2 * node);
+	}
+
+	private int count(int node) {
+		return buffer.getInt(countsOffset + 4 * node);
+	}
+
+	private int firstChild(int node) {
+		return buffer.getInt(firstChildOffset + 4 * node);
+	}
+
+	private int childCount(int node) {
+		return buffer.getInt(childCountOffset + 4 * node);
+	}
+
+	private boolean isLeaf(int node) {
+		return buffer.get(leavesOffset + node) != 0;
+	}
+
+	/**
+	 * Binary search of the child of node labelled with c.
+	 *
+	 * @param node
+	 * @param c
+	 * @return the child or -1
+	 */
+	private int findChild(int node, char c) {
+		int low = firstChild(node);
+		int high = low + childCount(node) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char label = label(mid);
+			if (label < c) {
+				low = mid + 1;
+			} else if (label > c) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Search a word in the trie.
+	 *
+	 * @param word
+	 * @return the last word's node or -1
+	 */
+	private int searchNode(String word) {
+		if (word.isEmpty()) {
+			return -1;
+		}
+		int node = ROOT;
+		for (int i = 0; i < word.length() && node >= 0; i++) {
+			node = findChild(node, word.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		return searchNode(preprocessWord(prefix)) >= 0;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		int node = searchNode(preprocessWord(word));
+		return node >= 0 && isLeaf(node);
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		int node = searchNode(preprocessWord(prefix));
+		return node >= 0 ? count(node) : 0;
+	}
+
+	/**
+	 * Return words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+		prefix = preprocessWord(prefix);
+		int node = searchNode(prefix);
+		if (node < 0) {
+			return Stream.empty();
+		}
+		List<String> words = new ArrayList<String>(count(node));
+		collectWords(node, new StringBuilder(prefix), words);
+		return words.stream();
+	}
+
+	/**
+	 * Depth-first search collecting the words below node.
+	 *
+	 * @param node
+	 * @param path
+	 * @param words
+	 */
+	private void collectWords(int node, StringBuilder path, List<String> words) {
+		int length = path.length();
+		int first = firstChild(node);
+		int last = first + childCount(node);
+		for (int child = first; child < last; child++) {
+			path.append(label(child));
+			if (isLeaf(child)) {
+				words.add(path.toString());
+			}
+			collectWords(child, path, words);
+			path.setLength(length);
+		}
+	}
+
+	/**
+	 * Encode the word and lowerCase if the word is case-sensitive
+	 *
+	 * @param word
+	 * @return
+	 */
+	private String preprocessWord(String word) {
+		return normalizer.normalize(word);
+	}
+
+	/**
+	 * Return the number of nodes, root included.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNumberOfNodes() {
+		return numOfNodes;
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
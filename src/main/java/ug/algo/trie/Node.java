@@ -1,6 +1,6 @@
 package ug.algo.trie;
 
-import it.unimi.dsi.fastutil.chars.Char2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
 
 public class Node{
 
@@ -11,10 +11,19 @@ public class Node{
     private boolean isLeaf;
 	private boolean isRoot;
     private Node parent;
+    // weight of the word ending here (frequency, score...)
+    private long weight;
+    // maximum weight of the words below this node, itself included
+    private long maxWeight;
     //Map<Character, Node> children = new HashMap<Character, Node>();
-    Char2ObjectAVLTreeMap<Node> children = new Char2ObjectAVLTreeMap<Node>();
+    Char2ObjectMap<Node> children;
   
     public Node() {
+        this(ChildMapType.AVL);
+    }
+
+    Node(ChildMapType childMapType) {
+        children = childMapType.newMap();
         setCount(0);
         setVisited(false);
     }
@@ -24,6 +33,11 @@ public class Node{
         setC(c);
     }
 
+    Node(char c, ChildMapType childMapType) {
+        this(childMapType);
+        setC(c);
+    }
+
 	public char getC() {
 		return c;
 	}
@@ -64,6 +78,22 @@ public class Node{
 		this.parent = parent;
 	}
 
+	public long getWeight() {
+		return weight;
+	}
+
+	public void setWeight(long weight) {
+		this.weight = weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
 	public boolean isRoot() {
 		return isRoot;
 	}
@@ -0,0 +1,912 @@
+package ug.algo.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Trie keeping its nodes and their children out of the Java heap, in two
+ * direct ByteBuffer arenas, so the garbage collector only sees a handful of
+ * objects whatever the number of words.
+ *
+ * A node is a fixed size record of the node arena, addressed by its index:
+ *
+ * <pre>
+ * char   label
+ * byte   flags (1 = leaf)
+ * int    count, the words going through the node
+ * int    offset of the child table, -1 if none
+ * long   weight of the word ending at the node
+ * long   maximum weight of the words below the node, itself included
+ * </pre>
+ *
+ * A child table is a record of the table arena with room for a power of two
+ * children, sorted by label and found with a binary search:
+ *
+ * <pre>
+ * int    size
+ * int    capacity
+ * char   label[capacity]
+ * int    child[capacity]
+ * </pre>
+ *
+ * A full table is moved to one twice as large. Removed nodes and tables are
+ * recycled through free lists, one per table capacity, and the arenas grow
+ * by copy. Since the arenas never shrink and a table is never moved to a
+ * smaller one, {@link #compact()} copies the live nodes to new arenas of the
+ * exact size, in depth first order, when {@link #getAllocatedBytes()} is
+ * well above {@link #getUsedBytes()}. The
+ * memory of the old arenas is released when their buffers are collected.
+ * Each arena is limited to 2 GB.
+ *
+ * It exposes the same operations as {@link Trie}. Like Trie, it is not
+ * thread safe, and a Stream of words must be consumed before the trie is
+ * modified.
+ *
+ * @author Umberto
+ *
+ */
+public class OffHeapTrie {
+
+	// Index used to mark a missing node or table
+	private static final int NIL = -1;
+	// Index of the dummy root node
+	private static final int ROOT = 0;
+	// Flags
+	private static final byte LEAF = 1;
+
+	// Node record
+	private static final int NODE_BYTES = 32;
+	private static final int LABEL = 0;
+	private static final int FLAGS = 2;
+	private static final int COUNT = 4;
+	private static final int TABLE = 8;
+	private static final int WEIGHT = 16;
+	private static final int MAX_WEIGHT = 24;
+
+	// Child table record, the free ones linked through SIZE
+	private static final int SIZE = 0;
+	private static final int CAPACITY = 4;
+	private static final int LABELS = 8;
+	private static final int MIN_CAPACITY = 2;
+	// capacities from 2 to 65536, enough for every char
+	private static final int CAPACITIES = 16;
+
+	private static final int MAX_ARENA_BYTES = Integer.MAX_VALUE - 7;
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private ByteBuffer nodes;
+	// First never used node
+	private int size;
+	// Head of the list of removed nodes, linked through COUNT
+	private int freeHead;
+	// Number of removed nodes waiting to be reused
+	private int freeCount;
+
+	private ByteBuffer tables;
+	// First never used byte of the table arena
+	private int tablesEnd;
+	// Head of the list of removed tables of each capacity
+	private final int[] freeTables = new int[CAPACITIES];
+	// Bytes of the tables in use
+	private long tableBytes;
+
+	// nodes of the path of the last word added or removed, the root at 0
+	private int[] path = new int[16];
+
+	// Current number of unique words in trie
+	private int numOfwords;
+	// If this is a case sensitive trie
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public OffHeapTrie(boolean caseSensitive, Charset charset) {
+		this(caseSensitive, charset, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param expectedNodes
+	 *            initial capacity in nodes, used to avoid growing the arenas
+	 *            when the size of the dictionary is known
+	 */
+	public OffHeapTrie(boolean caseSensitive, Charset charset, int expectedNodes) {
+		int capacity = Math.max(expectedNodes, 1);
+		nodes = allocate((int) Math.min(MAX_ARENA_BYTES, (long) capacity * NODE_BYTES));
+		// most nodes have a single child
+		tables = allocate((int) Math.min(MAX_ARENA_BYTES, (long) capacity * tableBytes(MIN_CAPACITY)));
+		freeHead = NIL;
+		Arrays.fill(freeTables, NIL);
+		// root
+		newNode((char) 0);
+		this.numOfwords = 0;
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Return a larger copy of the first used bytes of arena.
+	 *
+	 * @param arena
+	 * @param used
+	 * @param needed
+	 *            the bytes needed
+	 * @return the new arena
+	 */
+	private static ByteBuffer grow(ByteBuffer arena, int used, long needed) {
+		if (needed > MAX_ARENA_BYTES) {
+			throw new IllegalStateException("The trie arena is full: " + needed + " bytes needed");
+		}
+		long capacity = Math.max(needed, arena.capacity() + (arena.capacity() >> 1) + 1L);
+		ByteBuffer grown = allocate((int) Math.min(MAX_ARENA_BYTES, capacity));
+		ByteBuffer source = arena.duplicate();
+		source.position(0).limit(used);
+		grown.put(source);
+		grown.clear();
+		return grown;
+	}
+
+	private static int tableBytes(int capacity) {
+		return LABELS + 6 * capacity;
+	}
+
+	// Node fields
+
+	private static int offset(int node) {
+		return node * NODE_BYTES;
+	}
+
+	private char label(int node) {
+		return nodes.getChar(offset(node) + LABEL);
+	}
+
+	private boolean isLeaf(int node) {
+		return (nodes.get(offset(node) + FLAGS) & LEAF) != 0;
+	}
+
+	private void setLeaf(int node, boolean leaf) {
+		nodes.put(offset(node) + FLAGS, leaf ? LEAF : 0);
+	}
+
+	private int count(int node) {
+		return nodes.getInt(offset(node) + COUNT);
+	}
+
+	private void setCount(int node, int count) {
+		nodes.putInt(offset(node) + COUNT, count);
+	}
+
+	private int table(int node) {
+		return nodes.getInt(offset(node) + TABLE);
+	}
+
+	private void setTable(int node, int table) {
+		nodes.putInt(offset(node) + TABLE, table);
+	}
+
+	private long weight(int node) {
+		return nodes.getLong(offset(node) + WEIGHT);
+	}
+
+	private void setWeight(int node, long weight) {
+		nodes.putLong(offset(node) + WEIGHT, weight);
+	}
+
+	private long maxWeight(int node) {
+		return nodes.getLong(offset(node) + MAX_WEIGHT);
+	}
+
+	private void setMaxWeight(int node, long maxWeight) {
+		nodes.putLong(offset(node) + MAX_WEIGHT, maxWeight);
+	}
+
+	// Child table fields
+
+	private int tableSize(int table) {
+		return table == NIL ? 0 : tables.getInt(table + SIZE);
+	}
+
+	private int tableCapacity(int table) {
+		return tables.getInt(table + CAPACITY);
+	}
+
+	private char childLabel(int table, int i) {
+		return tables.getChar(table + LABELS + 2 * i);
+	}
+
+	private int child(int table, int i) {
+		return tables.getInt(table + LABELS + 2 * tableCapacity(table) + 4 * i);
+	}
+
+	/**
+	 * Binary search of the child labelled with c.
+	 *
+	 * @param table
+	 * @param c
+	 * @return the index of the child, or -(insertion point + 1)
+	 */
+	private int findSlot(int table, char c) {
+		int low = 0;
+		int high = tableSize(table) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char label = childLabel(table, mid);
+			if (label < c) {
+				low = mid + 1;
+			} else if (label > c) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Return the child of node labelled with c.
+	 *
+	 * @param node
+	 * @param c
+	 * @return the child or NIL
+	 */
+	private int findChild(int node, char c) {
+		int table = table(node);
+		if (table == NIL) {
+			return NIL;
+		}
+		int slot = findSlot(table, c);
+		return slot >= 0 ? child(table, slot) : NIL;
+	}
+
+	/**
+	 * Return the child of node labelled with c, creating it in order if it
+	 * does not exist.
+	 *
+	 * @param node
+	 * @param c
+	 * @return the child
+	 */
+	private int getOrCreateChild(int node, char c) {
+		int table = table(node);
+		if (table == NIL) {
+			table = newTable(MIN_CAPACITY);
+			setTable(node, table);
+		}
+		int slot = findSlot(table, c);
+		if (slot >= 0) {
+			return child(table, slot);
+		}
+		slot = -slot - 1;
+		int size = tableSize(table);
+		if (size == tableCapacity(table)) {
+			table = growTable(table);
+			setTable(node, table);
+		}
+		int created = newNode(c);
+		int labels = table + LABELS;
+		int children = labels + 2 * tableCapacity(table);
+		for (int i = size; i > slot; i--) {
+			tables.putChar(labels + 2 * i, tables.getChar(labels + 2 * (i - 1)));
+			tables.putInt(children + 4 * i, tables.getInt(children + 4 * (i - 1)));
+		}
+		tables.putChar(labels + 2 * slot, c);
+		tables.putInt(children + 4 * slot, created);
+		tables.putInt(table + SIZE, size + 1);
+		return created;
+	}
+
+	/**
+	 * Detach the child at slot from the table of node.
+	 *
+	 * @param node
+	 * @param slot
+	 */
+	private void removeChild(int node, int slot) {
+		int table = table(node);
+		int size = tableSize(table) - 1;
+		if (size == 0) {
+			freeTable(table);
+			setTable(node, NIL);
+			return;
+		}
+		int labels = table + LABELS;
+		int children = labels + 2 * tableCapacity(table);
+		for (int i = slot; i < size; i++) {
+			tables.putChar(labels + 2 * i, tables.getChar(labels + 2 * (i + 1)));
+			tables.putInt(children + 4 * i, tables.getInt(children + 4 * (i + 1)));
+		}
+		tables.putInt(table + SIZE, size);
+	}
+
+	/**
+	 * Release node and the chain below it, whose nodes have at most one
+	 * child.
+	 *
+	 * @param node
+	 */
+	private void freeChain(int node) {
+		while (node != NIL) {
+			int table = table(node);
+			int next = NIL;
+			if (table != NIL) {
+				next = child(table, 0);
+				freeTable(table);
+			}
+			freeNode(node);
+			node = next;
+		}
+	}
+
+	private int newNode(char c) {
+		int node;
+		if (freeHead != NIL) {
+			node = freeHead;
+			freeHead = count(node);
+			freeCount--;
+		} else {
+			if ((long) (size + 1) * NODE_BYTES > nodes.capacity()) {
+				nodes = grow(nodes, size * NODE_BYTES, (long) (size + 1) * NODE_BYTES);
+			}
+			node = size++;
+		}
+		int offset = offset(node);
+		nodes.putChar(offset + LABEL, c);
+		nodes.put(offset + FLAGS, (byte) 0);
+		nodes.putInt(offset + COUNT, 0);
+		nodes.putInt(offset + TABLE, NIL);
+		nodes.putLong(offset + WEIGHT, 0);
+		// no word below yet
+		nodes.putLong(offset + MAX_WEIGHT, Long.MIN_VALUE);
+		return node;
+	}
+
+	private void freeNode(int node) {
+		setTable(node, NIL);
+		setCount(node, freeHead);
+		freeHead = node;
+		freeCount++;
+	}
+
+	private int newTable(int capacity) {
+		int kind = Integer.numberOfTrailingZeros(capacity) - 1;
+		int bytes = tableBytes(capacity);
+		int table = freeTables[kind];
+		if (table != NIL) {
+			freeTables[kind] = tables.getInt(table + SIZE);
+		} else {
+			if ((long) tablesEnd + bytes > tables.capacity()) {
+				tables = grow(tables, tablesEnd, (long) tablesEnd + bytes);
+			}
+			table = tablesEnd;
+			tablesEnd += bytes;
+		}
+		tables.putInt(table + SIZE, 0);
+		tables.putInt(table + CAPACITY, capacity);
+		tableBytes += bytes;
+		return table;
+	}
+
+	private void freeTable(int table) {
+		int capacity = tableCapacity(table);
+		int kind = Integer.numberOfTrailingZeros(capacity) - 1;
+		tables.putInt(table + SIZE, freeTables[kind]);
+		freeTables[kind] = table;
+		tableBytes -= tableBytes(capacity);
+	}
+
+	/**
+	 * Move a full table to one twice as large.
+	 *
+	 * @param table
+	 * @return the new table
+	 */
+	private int growTable(int table) {
+		int size = tableSize(table);
+		int capacity = tableCapacity(table);
+		int grown = newTable(capacity * 2);
+		int labels = grown + LABELS;
+		int children = labels + 4 * capacity;
+		for (int i = 0; i < size; i++) {
+			tables.putChar(labels + 2 * i, childLabel(table, i));
+			tables.putInt(children + 4 * i, child(table, i));
+		}
+		tables.putInt(grown + SIZE, size);
+		freeTable(table);
+		return grown;
+	}
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word
+	 */
+	public void add(String word) {
+		add(word, 0, false);
+	}
+
+	/**
+	 * Inserts a word into the trie with a weight (frequency, score...) used
+	 * to rank it in {@link #topK(String, int)}. If the word is already in the
+	 * trie its weight is replaced. Words added without a weight weigh 0.
+	 *
+	 * @param word
+	 * @param weight
+	 */
+	public void add(String word, long weight) {
+		add(word, weight, true);
+	}
+
+	private void add(String word, long weight, boolean weighted) {
+
+		word = normalizer.normalize(word);
+		if (word.isEmpty()) {
+			return;
+		}
+
+		int existing = searchNode(word);
+		boolean added = existing == NIL || !isLeaf(existing);
+		if (!added && (!weighted || weight(existing) == weight)) {
+			return;
+		}
+
+		ensurePath(word.length());
+		int node = ROOT;
+		for (int i = 0; i < word.length(); i++) {
+			if (added) {
+				node = getOrCreateChild(node, word.charAt(i));
+				// how many words starting with prefix
+				setCount(node, count(node) + 1);
+			} else {
+				node = findChild(node, word.charAt(i));
+			}
+			path[i + 1] = node;
+		}
+		if (added) {
+			setLeaf(node, true);
+			this.numOfwords++;
+		}
+		if (weighted) {
+			setWeight(node, weight);
+		}
+		updateMaxWeight(word.length());
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(String word) {
+
+		word = normalizer.normalize(word);
+
+		int existing = searchNode(word);
+		if (existing == NIL || !isLeaf(existing)) {
+			return false;
+		}
+
+		ensurePath(word.length());
+		int node = ROOT;
+		for (int i = 0; i < word.length(); i++) {
+			int table = table(node);
+			int slot = findSlot(table, word.charAt(i));
+			int child = child(table, slot);
+			if (count(child) == 1) {
+				// No other word goes through this node: the rest of the path
+				// belongs only to the removed word.
+				removeChild(node, slot);
+				freeChain(child);
+				this.numOfwords--;
+				updateMaxWeight(i);
+				return true;
+			}
+			setCount(child, count(child) - 1);
+			node = child;
+			path[i + 1] = node;
+		}
+		setLeaf(node, false);
+		setWeight(node, 0);
+		this.numOfwords--;
+		updateMaxWeight(word.length());
+		return true;
+	}
+
+	private void ensurePath(int depth) {
+		if (depth >= path.length) {
+			path = new int[Math.max(depth + 1, path.length * 2)];
+		}
+	}
+
+	/**
+	 * Recompute the maximum weight of the nodes of the path, from depth up,
+	 * stopping at the first one that does not change.
+	 *
+	 * @param depth
+	 */
+	private void updateMaxWeight(int depth) {
+		for (int d = depth; d > 0; d--) {
+			int node = path[d];
+			long max = isLeaf(node) ? weight(node) : Long.MIN_VALUE;
+			int table = table(node);
+			for (int i = 0; i < tableSize(table); i++) {
+				max = Math.max(max, maxWeight(child(table, i)));
+			}
+			if (max == maxWeight(node)) {
+				return;
+			}
+			setMaxWeight(node, max);
+		}
+	}
+
+	/**
+	 * Search a word in the trie.
+	 *
+	 * @param word
+	 * @return the last word's node or NIL
+	 */
+	private int searchNode(String word) {
+		if (word.isEmpty()) {
+			return NIL;
+		}
+		int node = ROOT;
+		for (int i = 0; i < word.length() && node != NIL; i++) {
+			node = findChild(node, word.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		return searchNode(normalizer.normalize(prefix)) != NIL;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		int node = searchNode(normalizer.normalize(word));
+		return node != NIL && isLeaf(node);
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		int node = searchNode(normalizer.normalize(prefix));
+		return node == NIL ? 0 : count(node);
+	}
+
+	/**
+	 * Return words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+
+		prefix = normalizer.normalize(prefix);
+
+		int node = searchNode(prefix);
+		if (node == NIL) {
+			return Stream.empty();
+		}
+
+		return StreamSupport.stream(Spliterators.spliterator(new WordIterator(node, prefix), count(node)
+				- (isLeaf(node) ? 1 : 0), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Pre-order iterator over the words below a node, keeping the node of
+	 * each level.
+	 */
+	private class WordIterator extends PreOrderWordIterator {
+
+		private int[] nodes = new int[16];
+
+		WordIterator(int start, String prefix) {
+			super(prefix);
+			this.nodes[0] = start;
+			start();
+		}
+
+		@Override
+		int degree(int depth) {
+			return tableSize(table(nodes[depth]));
+		}
+
+		@Override
+		char enter(int depth, int position) {
+			int table = table(nodes[depth - 1]);
+			nodes[depth] = child(table, position);
+			return childLabel(table, position);
+		}
+
+		@Override
+		boolean isWord(int depth) {
+			return isLeaf(nodes[depth]);
+		}
+
+		@Override
+		void grow(int capacity) {
+			nodes = Arrays.copyOf(nodes, capacity);
+		}
+	}
+
+	/**
+	 * Return the k words starting with prefix, prefix included, having the
+	 * highest weight, from the highest to the lowest, as
+	 * {@link Trie#topK(String, int)}. Ties are broken in alphabetical order.
+	 *
+	 * @param prefix
+	 * @param k
+	 * @return a list containing at most k words
+	 */
+	public List<String> topK(String prefix, int k) {
+
+		prefix = normalizer.normalize(prefix);
+
+		List<String> words = new ArrayList<String>(Math.max(k, 0));
+		int node = searchNode(prefix);
+		if (node == NIL || k <= 0) {
+			return words;
+		}
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+		queue.add(new Candidate(node, prefix, maxWeight(node)));
+		while (!queue.isEmpty() && words.size() < k) {
+			Candidate candidate = queue.poll();
+			if (candidate.node == NIL) {
+				words.add(candidate.word);
+				continue;
+			}
+			if (isLeaf(candidate.node)) {
+				queue.add(new Candidate(NIL, candidate.word, weight(candidate.node)));
+			}
+			int table = table(candidate.node);
+			for (int i = 0; i < tableSize(table); i++) {
+				int child = child(table, i);
+				queue.add(new Candidate(child, candidate.word + label(child), maxWeight(child)));
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * A node to expand or, when node is NIL, a word found by
+	 * {@link #topK(String, int)}.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+
+		private final int node;
+		private final String word;
+		// weight of the word, or maximum weight below the node
+		private final long weight;
+
+		Candidate(int node, String word, long weight) {
+			this.node = node;
+			this.word = word;
+			this.weight = weight;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			if (weight != other.weight) {
+				return weight > other.weight ? -1 : 1;
+			}
+			// the words below a node come after its prefix
+			return word.compareTo(other.word);
+		}
+	}
+
+	/**
+	 * Return the words less than maxDistance from word with their
+	 * Levenshtein distance, as {@link Trie#getSimilarityMap(String, int)}.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return a map of the words found and their distance
+	 */
+	public Map<String, Integer> getSimilarityMap(String word, int maxDistance) {
+		SimilaritySearch search = new SimilaritySearch(normalizer.normalize(word), maxDistance);
+		int table = table(ROOT);
+		for (int i = 0; i < tableSize(table); i++) {
+			searchSimilar(search, child(table, i), 0);
+		}
+		return search.getResults();
+	}
+
+	/**
+	 * Build the row of node, at depth + 1, from the row of its parent, then
+	 * search its children.
+	 *
+	 * @param search
+	 * @param node
+	 * @param depth
+	 *            depth of the parent of node
+	 */
+	private void searchSimilar(SimilaritySearch search, int node, int depth) {
+		if (search.visit(label(node), depth, isLeaf(node))) {
+			int table = table(node);
+			for (int i = 0; i < tableSize(table); i++) {
+				searchSimilar(search, child(table, i), depth + 1);
+			}
+		}
+	}
+
+	/**
+	 * Copy the live nodes and tables to new arenas of the exact size,
+	 * dropping the free lists. The nodes are numbered depth first, the
+	 * children of a node together when it is reached, and every table gets
+	 * the smallest capacity holding its children.
+	 */
+	public void compact() {
+		int liveNodes = getNumberOfNodes();
+		// the size of the tables after the compaction
+		long liveTables = 0;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = ROOT;
+		while (top > 0) {
+			int table = table(stack[--top]);
+			int children = tableSize(table);
+			if (children > 0) {
+				liveTables += tableBytes(capacityFor(children));
+				if (top + children > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(top + children, stack.length * 2));
+				}
+				for (int i = 0; i < children; i++) {
+					stack[top++] = child(table, i);
+				}
+			}
+		}
+
+		ByteBuffer newNodes = allocate(Math.max(liveNodes * NODE_BYTES, NODE_BYTES));
+		ByteBuffer newTables = allocate((int) Math.max(liveTables, tableBytes(MIN_CAPACITY)));
+		int newSize = 0;
+		int newTablesEnd = 0;
+
+		// pairs of an old node and its copy, whose table is not copied yet
+		int[] pending = new int[32];
+		copyNode(ROOT, newNodes, newSize++);
+		pending[top++] = ROOT;
+		pending[top++] = ROOT;
+		while (top > 0) {
+			int copy = pending[--top];
+			int node = pending[--top];
+			int table = table(node);
+			int children = tableSize(table);
+			if (children == 0) {
+				continue;
+			}
+			int capacity = capacityFor(children);
+			int newTable = newTablesEnd;
+			newTablesEnd += tableBytes(capacity);
+			newTables.putInt(newTable + SIZE, children);
+			newTables.putInt(newTable + CAPACITY, capacity);
+			newNodes.putInt(offset(copy) + TABLE, newTable);
+			if (top + 2 * children > pending.length) {
+				pending = Arrays.copyOf(pending, Math.max(top + 2 * children, pending.length * 2));
+			}
+			// pushed backwards, so the first child is copied first
+			top += 2 * children;
+			for (int i = 0; i < children; i++) {
+				int child = child(table, i);
+				int childCopy = newSize++;
+				copyNode(child, newNodes, childCopy);
+				newTables.putChar(newTable + LABELS + 2 * i, childLabel(table, i));
+				newTables.putInt(newTable + LABELS + 2 * capacity + 4 * i, childCopy);
+				pending[top - 2 * i - 2] = child;
+				pending[top - 2 * i - 1] = childCopy;
+			}
+		}
+
+		nodes = newNodes;
+		size = newSize;
+		freeHead = NIL;
+		freeCount = 0;
+		tables = newTables;
+		tablesEnd = newTablesEnd;
+		tableBytes = newTablesEnd;
+		Arrays.fill(freeTables, NIL);
+	}
+
+	/**
+	 * Copy the record of node to index copy of arena, without its table.
+	 *
+	 * @param node
+	 * @param arena
+	 * @param copy
+	 */
+	private void copyNode(int node, ByteBuffer arena, int copy) {
+		int from = offset(node);
+		int to = offset(copy);
+		arena.putChar(to + LABEL, nodes.getChar(from + LABEL));
+		arena.put(to + FLAGS, nodes.get(from + FLAGS));
+		arena.putInt(to + COUNT, nodes.getInt(from + COUNT));
+		arena.putInt(to + TABLE, NIL);
+		arena.putLong(to + WEIGHT, nodes.getLong(from + WEIGHT));
+		arena.putLong(to + MAX_WEIGHT, nodes.getLong(from + MAX_WEIGHT));
+	}
+
+	/**
+	 * @param children
+	 * @return the smallest table capacity holding children
+	 */
+	private static int capacityFor(int children) {
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit(children - 1) << 1);
+	}
+
+	/**
+	 * Return the number of nodes currently used, root included.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNumberOfNodes() {
+		return size - freeCount;
+	}
+
+	/**
+	 * @return the bytes of the nodes and tables in use
+	 */
+	public long getUsedBytes() {
+		return (long) getNumberOfNodes() * NODE_BYTES + tableBytes;
+	}
+
+	/**
+	 * @return the bytes allocated off heap for the arenas
+	 */
+	public long getAllocatedBytes() {
+		return (long) nodes.capacity() + tables.capacity();
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
@@ -0,0 +1,434 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Trie made of immutable nodes, updated by path copying: add and remove
+ * copy the nodes on the path of the word and publish the new root as a new
+ * version, sharing every other node with the previous one.
+ *
+ * {@link #snapshot()} returns the current version in O(1). A snapshot never
+ * changes, so a long traversal (getSimilarityMap, getWordStartsWith) sees
+ * either all or none of an update, without locks. Writers replace the
+ * version with compare-and-set and retry if another writer came first. A
+ * version that is no longer referenced is reclaimed by the GC.
+ *
+ * An update allocates the nodes of the path and their children arrays, so
+ * it is slower than {@link Trie#add(String)}; lookups cost the same.
+ *
+ * @author Umberto
+ *
+ */
+public class PersistentTrie {
+
+	/**
+	 * Immutable node. Its children are sorted by char.
+	 */
+	private static final class PNode {
+
+		static final PNode EMPTY = new PNode(0, false, new char[0], new PNode[0]);
+
+		// to count how many words starting with prefix
+		final int count;
+		final boolean leaf;
+		final char[] keys;
+		final PNode[] children;
+
+		PNode(int count, boolean leaf, char[] keys, PNode[] children) {
+			this.count = count;
+			this.leaf = leaf;
+			this.keys = keys;
+			this.children = children;
+		}
+
+		PNode get(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			return i >= 0 ? children[i] : null;
+		}
+
+		/**
+		 * Return a copy with count and node stored under c.
+		 */
+		PNode with(int count, char c, PNode node) {
+			int i = Arrays.binarySearch(keys, c);
+			if (i >= 0) {
+				PNode[] n = children.clone();
+				n[i] = node;
+				return new PNode(count, leaf, keys, n);
+			}
+			int at = -i - 1;
+			char[] k = new char[keys.length + 1];
+			PNode[] n = new PNode[children.length + 1];
+			System.arraycopy(keys, 0, k, 0, at);
+			System.arraycopy(children, 0, n, 0, at);
+			k[at] = c;
+			n[at] = node;
+			System.arraycopy(keys, at, k, at + 1, keys.length - at);
+			System.arraycopy(children, at, n, at + 1, children.length - at);
+			return new PNode(count, leaf, k, n);
+		}
+
+		/**
+		 * Return a copy with count and without the child stored under c.
+		 */
+		PNode without(int count, char c) {
+			int i = Arrays.binarySearch(keys, c);
+			char[] k = new char[keys.length - 1];
+			PNode[] n = new PNode[children.length - 1];
+			System.arraycopy(keys, 0, k, 0, i);
+			System.arraycopy(children, 0, n, 0, i);
+			System.arraycopy(keys, i + 1, k, i, keys.length - i - 1);
+			System.arraycopy(children, i + 1, n, i, children.length - i - 1);
+			return new PNode(count, leaf, k, n);
+		}
+	}
+
+	/**
+	 * An immutable version of the trie.
+	 */
+	public static final class Snapshot {
+
+		// the count of the root is the number of words
+		private final PNode root;
+		private final KeyNormalizer normalizer;
+
+		private Snapshot(PNode root, KeyNormalizer normalizer) {
+			this.root = root;
+			this.normalizer = normalizer;
+		}
+
+		/**
+		 * Search a key, normalizing it char by char.
+		 *
+		 * @param key
+		 * @return the last key's node, null if the key is empty or not found
+		 */
+		private PNode searchNode(CharSequence key) {
+			if (key.length() == 0) {
+				return null;
+			}
+			PNode node = root;
+			for (int i = 0; i < key.length() && node != null; i++) {
+				if (!normalizer.isDropped(key, i)) {
+					node = node.get(normalizer.charAt(key, i));
+				}
+			}
+			return node;
+		}
+
+		/**
+		 * Returns if there is any word in the snapshot that starts with the
+		 * given prefix.
+		 *
+		 * @param prefix
+		 * @return true|false
+		 */
+		public boolean startsWith(CharSequence prefix) {
+			return searchNode(prefix) != null;
+		}
+
+		/**
+		 * Returns if the word is in the snapshot.
+		 *
+		 * @param word
+		 * @return true|false
+		 */
+		public boolean search(CharSequence word) {
+			PNode node = searchNode(word);
+			return node != null && node.leaf;
+		}
+
+		/**
+		 * Return how many words starting with prefix.
+		 *
+		 * @param prefix
+		 * @return how many words starting with prefix
+		 */
+		public int countWordStartsWith(CharSequence prefix) {
+			PNode node = searchNode(prefix);
+			return node == null ? 0 : node.count;
+		}
+
+		/**
+		 * Return words starting with prefix. The Stream is lazy and sized.
+		 *
+		 * @param prefix
+		 * @return a Stream containing words starting with prefix
+		 */
+		public Stream<String> getWordStartsWith(CharSequence prefix) {
+			String start = normalizer.normalize(prefix);
+			PNode node = searchNode(start);
+			if (node == null) {
+				return Stream.empty();
+			}
+			// the prefix itself is not returned
+			long size = node.count - (node.leaf ? 1 : 0);
+			return StreamSupport.stream(Spliterators.spliterator(new WordIterator(node, start), size,
+					Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+		}
+
+		/**
+		 * The search function returns a list of all words that are less than
+		 * the given maximum distance from the target word, using Levenshtein
+		 * distance, as {@link Trie#getSimilarityMap(String, int)}.
+		 *
+		 * @param word
+		 * @param maxDistance
+		 * @return a map of the words found and their distance
+		 */
+		public Map<String, Integer> getSimilarityMap(CharSequence word, int maxDistance) {
+			SimilaritySearch search = new SimilaritySearch(normalizer.normalize(word), maxDistance);
+			searchSimilar(search, root, 0);
+			return search.getResults();
+		}
+
+		public int getNumberOfWords() {
+			return root.count;
+		}
+	}
+
+	/**
+	 * Pre-order iterator over the words below a node, keeping the node of
+	 * each level.
+	 */
+	private static final class WordIterator extends PreOrderWordIterator {
+
+		private PNode[] nodes = new PNode[16];
+
+		WordIterator(PNode start, String prefix) {
+			super(prefix);
+			this.nodes[0] = start;
+			start();
+		}
+
+		@Override
+		int degree(int depth) {
+			return nodes[depth].keys.length;
+		}
+
+		@Override
+		char enter(int depth, int position) {
+			PNode parent = nodes[depth - 1];
+			nodes[depth] = parent.children[position];
+			return parent.keys[position];
+		}
+
+		@Override
+		boolean isWord(int depth) {
+			return nodes[depth].leaf;
+		}
+
+		@Override
+		void grow(int capacity) {
+			nodes = Arrays.copyOf(nodes, capacity);
+		}
+	}
+
+	/**
+	 * Build the rows of the children of node, at depth + 1, from the row of
+	 * node, then recursively search them.
+	 *
+	 * @param search
+	 * @param node
+	 * @param depth
+	 *            depth of node
+	 */
+	private static void searchSimilar(SimilaritySearch search, PNode node, int depth) {
+		for (int c = 0; c < node.keys.length; c++) {
+			PNode child = node.children[c];
+			if (search.visit(node.keys[c], depth, child.leaf)) {
+				searchSimilar(search, child, depth + 1);
+			}
+		}
+	}
+
+	private final AtomicReference<Snapshot> current;
+	// If this is a case sensitive trie
+	private final boolean caseSensitive;
+	private final Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public PersistentTrie(boolean caseSensitive, Charset charset) {
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+		this.current = new AtomicReference<Snapshot>(new Snapshot(PNode.EMPTY, normalizer));
+	}
+
+	/**
+	 * Return the current version of the trie, which later updates do not
+	 * change.
+	 *
+	 * @return the current snapshot
+	 */
+	public Snapshot snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * Inserts a word into the trie, publishing a new version.
+	 *
+	 * @param word
+	 */
+	public void add(CharSequence word) {
+		String key = normalizer.normalize(word);
+		if (key.isEmpty()) {
+			return;
+		}
+		while (true) {
+			Snapshot snapshot = current.get();
+			// To avoid duplicates
+			if (snapshot.search(key)) {
+				return;
+			}
+			PNode root = insert(snapshot.root, key, 0);
+			if (current.compareAndSet(snapshot, new Snapshot(root, normalizer))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Return a copy of node with key inserted below it.
+	 *
+	 * @param node
+	 * @param key
+	 * @param depth
+	 *            depth of node
+	 * @return the new node
+	 */
+	private static PNode insert(PNode node, String key, int depth) {
+		if (depth == key.length()) {
+			return new PNode(node.count + 1, true, node.keys, node.children);
+		}
+		char c = key.charAt(depth);
+		PNode child = node.get(c);
+		if (child == null) {
+			child = PNode.EMPTY;
+		}
+		return node.with(node.count + 1, c, insert(child, key, depth + 1));
+	}
+
+	/**
+	 * Removes a word from the trie, publishing a new version.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(CharSequence word) {
+		String key = normalizer.normalize(word);
+		while (true) {
+			Snapshot snapshot = current.get();
+			if (!snapshot.search(key)) {
+				return false;
+			}
+			PNode root = delete(snapshot.root, key, 0);
+			if (current.compareAndSet(snapshot, new Snapshot(root, normalizer))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Return a copy of node with key removed below it.
+	 *
+	 * @param node
+	 * @param key
+	 * @param depth
+	 *            depth of node
+	 * @return the new node, null if no word is left below it
+	 */
+	private static PNode delete(PNode node, String key, int depth) {
+		int count = node.count - 1;
+		if (depth == key.length()) {
+			return count == 0 ? null : new PNode(count, false, node.keys, node.children);
+		}
+		if (count == 0 && depth > 0) {
+			// the rest of the path belongs only to the removed word
+			return null;
+		}
+		char c = key.charAt(depth);
+		PNode child = delete(node.get(c), key, depth + 1);
+		return child == null ? node.without(count, c) : node.with(count, c, child);
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(CharSequence prefix) {
+		return snapshot().startsWith(prefix);
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(CharSequence word) {
+		return snapshot().search(word);
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(CharSequence prefix) {
+		return snapshot().countWordStartsWith(prefix);
+	}
+
+	/**
+	 * Return words starting with prefix, from the current version.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(CharSequence prefix) {
+		return snapshot().getWordStartsWith(prefix);
+	}
+
+	/**
+	 * Return the words less than maxDistance from word, from the current
+	 * version.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return a map of the words found and their distance
+	 */
+	public Map<String, Integer> getSimilarityMap(CharSequence word, int maxDistance) {
+		return snapshot().getSimilarityMap(word, maxDistance);
+	}
+
+	public int getNumberOfWords() {
+		return snapshot().getNumberOfWords();
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
@@ -0,0 +1,114 @@
+package ug.algo.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pre-order iterator over the words below a node, keeping for each depth
+ * the index of the next child to follow, and the word of the current node
+ * in a buffer. A trie only supplies the traversal: the subclass keeps the
+ * node at every depth, the start node at depth 0, and calls
+ * {@link #start()} once it is set.
+ *
+ * @author Umberto
+ *
+ */
+abstract class PreOrderWordIterator implements Iterator<String> {
+
+	private final StringBuilder buffer;
+	private final int baseLength;
+	private int[] positions = new int[16];
+	// depth of the current node below the start, -1 when done
+	private int depth;
+	private String next;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param prefix
+	 *            the word of the start node, not returned
+	 */
+	PreOrderWordIterator(String prefix) {
+		this.buffer = new StringBuilder(prefix);
+		this.baseLength = prefix.length();
+	}
+
+	/**
+	 * Return the number of children of the node at depth.
+	 *
+	 * @param depth
+	 * @return number of children
+	 */
+	abstract int degree(int depth);
+
+	/**
+	 * Set the node at depth to the child at position of the node at depth -
+	 * 1.
+	 *
+	 * @param depth
+	 * @param position
+	 * @return the char of the child
+	 */
+	abstract char enter(int depth, int position);
+
+	/**
+	 * Return if the node at depth ends a word.
+	 *
+	 * @param depth
+	 * @return true|false
+	 */
+	abstract boolean isWord(int depth);
+
+	/**
+	 * Grow the nodes kept by depth to capacity.
+	 *
+	 * @param capacity
+	 */
+	abstract void grow(int capacity);
+
+	/**
+	 * Move to the first word.
+	 */
+	final void start() {
+		advance();
+	}
+
+	private void advance() {
+		while (depth >= 0) {
+			int position = positions[depth]++;
+			if (position == degree(depth)) {
+				depth--;
+				continue;
+			}
+			depth++;
+			if (depth == positions.length) {
+				positions = Arrays.copyOf(positions, depth * 2);
+				grow(depth * 2);
+			}
+			buffer.setLength(baseLength + depth - 1);
+			buffer.append(enter(depth, position));
+			positions[depth] = 0;
+			if (isWord(depth)) {
+				next = buffer.toString();
+				return;
+			}
+		}
+		next = null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public String next() {
+		if (next == null) {
+			throw new NoSuchElementException();
+		}
+		String word = next;
+		advance();
+		return word;
+	}
+}
@@ -0,0 +1,93 @@
+package ug.algo.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over the words below a node, in depth-first order.
+ *
+ * The depth-first search uses an explicit stack of children iterators, one
+ * per level, and appends the chars to a buffer shared by all the words while
+ * descending, so a word costs only its String. Nothing is computed before it
+ * is asked for: stopping early leaves the rest of the subtree untouched.
+ *
+ * @author Umberto
+ *
+ */
+class PrefixIterator implements Iterator<String> {
+
+	private final StringBuilder buffer;
+	private final int baseLength;
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Iterator<Node>[] stack = new Iterator[16];
+	private int depth;
+	private String next;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param start
+	 *            the node to start from
+	 * @param prefix
+	 *            the word of start
+	 * @param includeStart
+	 *            if the word of start, when it is a word, is returned too
+	 */
+	PrefixIterator(Node start, String prefix, boolean includeStart) {
+		this.buffer = new StringBuilder(prefix);
+		this.baseLength = prefix.length();
+		this.depth = 0;
+		if (!start.children.isEmpty()) {
+			stack[depth++] = start.children.values().iterator();
+		}
+		if (includeStart && start.isLeaf()) {
+			next = prefix;
+		} else {
+			advance();
+		}
+	}
+
+	/**
+	 * Move to the next word.
+	 */
+	private void advance() {
+		while (depth > 0) {
+			Iterator<Node> children = stack[depth - 1];
+			if (!children.hasNext()) {
+				depth--;
+				continue;
+			}
+			Node node = children.next();
+			buffer.setLength(baseLength + depth - 1);
+			buffer.append(node.getC());
+			if (!node.children.isEmpty()) {
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, depth * 2);
+				}
+				stack[depth++] = node.children.values().iterator();
+			}
+			if (node.isLeaf()) {
+				next = buffer.toString();
+				return;
+			}
+		}
+		next = null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public String next() {
+		if (next == null) {
+			throw new NoSuchElementException();
+		}
+		String word = next;
+		advance();
+		return word;
+	}
+
+}
@@ -0,0 +1,449 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.chars.Char2ObjectAVLTreeMap;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Radix tree (https://en.wikipedia.org/wiki/Radix_tree): a path-compressed
+ * Trie where every chain of nodes having a single child is collapsed into one
+ * node labelled with the whole substring. Long words with few shared
+ * prefixes, like random keys or contact names, need one node per branch
+ * instead of one node per character.
+ *
+ * Edges are split on insert and merged back on remove, so the tree is always
+ * compressed. It exposes the same operations as {@link Trie}.
+ *
+ * @author Umberto
+ *
+ */
+public class RadixTrie {
+
+	private static class RadixNode {
+
+		private String label;
+		// to count how many words starting with prefix
+		private int count;
+		private boolean isLeaf;
+		private Char2ObjectAVLTreeMap<RadixNode> children = new Char2ObjectAVLTreeMap<RadixNode>();
+
+		RadixNode(String label) {
+			this.label = label;
+		}
+	}
+
+	// Dummy node
+	private RadixNode root;
+	// Current number of unique words in trie
+	private int numOfwords;
+	// Current number of nodes in trie, root excluded
+	private int numOfNodes;
+	// If this is a case sensitive trie
+	private boolean caseSensitive;
+	private Charset charset;
+	private final KeyNormalizer normalizer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public RadixTrie(boolean caseSensitive, Charset charset) {
+		this.root = new RadixNode("");
+		this.numOfwords = 0;
+		this.numOfNodes = 0;
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+	}
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word
+	 */
+	public void add(String word) {
+
+		word = preprocessWord(word);
+
+		// To avoid duplicates
+		if (word.isEmpty() || search(word, false)) {
+			return;
+		}
+
+		RadixNode node = root;
+		int i = 0;
+		while (i < word.length()) {
+			RadixNode child = node.children.get(word.charAt(i));
+			if (child == null) {
+				RadixNode created = new RadixNode(word.substring(i));
+				created.count = 1;
+				created.isLeaf = true;
+				node.children.put(word.charAt(i), created);
+				numOfNodes++;
+				numOfwords++;
+				return;
+			}
+			int common = commonPrefixLength(child.label, word, i);
+			if (common < child.label.length()) {
+				child = split(node, child, common);
+			}
+			// how many words starting with prefix
+			child.count++;
+			node = child;
+			i += common;
+		}
+		node.isLeaf = true;
+		numOfwords++;
+	}
+
+	/**
+	 * Split the label of child after length chars.
+	 *
+	 * @param parent
+	 * @param child
+	 * @param length
+	 * @return the new node holding the first part of the label
+	 */
+	private RadixNode split(RadixNode parent, RadixNode child, int length) {
+		RadixNode middle = new RadixNode(child.label.substring(0, length));
+		middle.count = child.count;
+		child.label = child.label.substring(length);
+		middle.children.put(child.label.charAt(0), child);
+		parent.children.put(middle.label.charAt(0), middle);
+		numOfNodes++;
+		return middle;
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(String word) {
+
+		word = preprocessWord(word);
+
+		if (!search(word, false)) {
+			return false;
+		}
+
+		List<RadixNode> path = new ArrayList<RadixNode>();
+		path.add(root);
+		RadixNode node = root;
+		for (int i = 0; i < word.length(); i += node.label.length()) {
+			node = node.children.get(word.charAt(i));
+			node.count--;
+			path.add(node);
+		}
+		node.isLeaf = false;
+
+		RadixNode parent = path.get(path.size() - 2);
+		if (node.count == 0) {
+			parent.children.remove(node.label.charAt(0));
+			numOfNodes--;
+			// the parent may be left with a single child
+			if (parent != root && !parent.isLeaf && parent.children.size() == 1) {
+				merge(parent);
+			}
+		} else if (node.children.size() == 1) {
+			merge(node);
+		}
+
+		this.numOfwords--;
+
+		return true;
+	}
+
+	/**
+	 * Merge a node that is not a word with its only child.
+	 *
+	 * @param node
+	 */
+	private void merge(RadixNode node) {
+		RadixNode child = node.children.values().iterator().next();
+		node.label = node.label + child.label;
+		node.isLeaf = child.isLeaf;
+		node.count = child.count;
+		node.children = child.children;
+		numOfNodes--;
+	}
+
+	/**
+	 * Return the length of the common prefix of label and word.substring(from).
+	 */
+	private static int commonPrefixLength(String label, String word, int from) {
+		int max = Math.min(label.length(), word.length() - from);
+		int i = 0;
+		while (i < max && label.charAt(i) == word.charAt(from + i)) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Search the node whose path contains the whole prefix.
+	 *
+	 * @param prefix
+	 * @param exact
+	 *            if the prefix must end at the end of the node label
+	 * @return the node or null
+	 */
+	private RadixNode searchNode(String prefix, boolean exact) {
+		if (prefix.isEmpty()) {
+			return null;
+		}
+		RadixNode node = root;
+		int i = 0;
+		while (i < prefix.length()) {
+			node = node.children.get(prefix.charAt(i));
+			if (node == null) {
+				return null;
+			}
+			int common = commonPrefixLength(node.label, prefix, i);
+			if (common < node.label.length()) {
+				// the prefix ends inside the label or diverges from it
+				return (!exact && i + common == prefix.length()) ? node : null;
+			}
+			i += common;
+		}
+		return node;
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		return searchNode(preprocessWord(prefix), false) != null;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		return search(word, true);
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @param doPreprocess
+	 * @return true|false
+	 */
+	public boolean search(String word, boolean doPreprocess) {
+		if (doPreprocess) {
+			word = preprocessWord(word);
+		}
+		RadixNode node = searchNode(word, true);
+		return node != null && node.isLeaf;
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		RadixNode node = searchNode(preprocessWord(prefix), false);
+		return node == null ? 0 : node.count;
+	}
+
+	/**
+	 * Return words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+
+		String p = preprocessWord(prefix);
+
+		RadixNode node = searchNode(p, false);
+		if (node == null) {
+			return Stream.empty();
+		}
+
+		// rebuild the path up to the end of the node label
+		RadixNode current = root;
+		StringBuilder path = new StringBuilder();
+		while (current != node) {
+			current = current.children.get(p.charAt(path.length()));
+			path.append(current.label);
+		}
+
+		List<String> words = new ArrayList<String>(node.count);
+		if (node.isLeaf && path.length() > p.length()) {
+			words.add(path.toString());
+		}
+		collectWords(node, path, words);
+		return words.stream();
+	}
+
+	/**
+	 * Depth-first search collecting the words below node.
+	 *
+	 * @param node
+	 * @param path
+	 * @param words
+	 */
+	private void collectWords(RadixNode node, StringBuilder path, List<String> words) {
+		int length = path.length();
+		for (RadixNode child : node.children.values()) {
+			path.append(child.label);
+			if (child.isLeaf) {
+				words.add(path.toString());
+			}
+			collectWords(child, path, words);
+			path.setLength(length);
+		}
+	}
+
+	/**
+	 * Returns the word most similar to the target word.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return
+	 */
+	public String similarity(String word, int maxDistance) {
+		Map.Entry<String, Integer> min = null;
+
+		for (Map.Entry<String, Integer> el : getSimilarityMap(word, maxDistance).entrySet()) {
+			if (min == null || el.getValue() < min.getValue()) {
+				min = el;
+			}
+		}
+		return min == null ? null : min.getKey();
+	}
+
+	/**
+	 * The search function returns a list of all words that are less than the
+	 * given maximum distance from the target word, using Levenshtein distance.
+	 * A row is computed for every char of a label, but the branch is pruned
+	 * as soon as a row exceeds the maximum distance, even in the middle of a
+	 * label.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return a Map containing the similar words and their distance
+	 */
+	public Map<String, Integer> getSimilarityMap(String word, int maxDistance) {
+
+		Map<String, Integer> results = new HashMap<>();
+		word = preprocessWord(word);
+
+		int columns = word.length() + 1;
+		int[][] rows = new int[16][columns];
+		// build first row
+		for (int i = 0; i < columns; i++) {
+			rows[0][i] = i;
+		}
+
+		StringBuilder path = new StringBuilder();
+		for (RadixNode child : root.children.values()) {
+			rows = recursiveLevenshteinDistance(child, word, rows, path, results, maxDistance);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Compute one row per char of the node label, then recursively search
+	 * the children.
+	 *
+	 * @param node
+	 * @param word
+	 * @param rows
+	 *            rows indexed by depth, rows[path.length()] is the row of the
+	 *            parent
+	 * @param path
+	 * @param results
+	 * @param maxDistance
+	 * @return the rows, grown if needed
+	 */
+	private int[][] recursiveLevenshteinDistance(RadixNode node, String word, int[][] rows, StringBuilder path,
+			Map<String, Integer> results, int maxDistance) {
+
+		int depth = path.length();
+		int columns = word.length() + 1;
+		if (depth + node.label.length() >= rows.length) {
+			int old = rows.length;
+			rows = Arrays.copyOf(rows, Math.max(old * 2, depth + node.label.length() + 1));
+			for (int i = old; i < rows.length; i++) {
+				rows[i] = new int[columns];
+			}
+		}
+
+		for (int k = 0; k < node.label.length(); k++) {
+			char letter = node.label.charAt(k);
+			int[] previousRow = rows[depth + k];
+			int[] currentRow = rows[depth + k + 1];
+			if (Levenshtein.nextRow(word, letter, previousRow, currentRow) > maxDistance) {
+				// no word below this char can be close enough
+				return rows;
+			}
+		}
+
+		int end = depth + node.label.length();
+		path.append(node.label);
+		if (node.isLeaf && rows[end][columns - 1] <= maxDistance) {
+			results.put(path.toString(), rows[end][columns - 1]);
+		}
+		for (RadixNode child : node.children.values()) {
+			rows = recursiveLevenshteinDistance(child, word, rows, path, results, maxDistance);
+		}
+		path.setLength(depth);
+
+		return rows;
+	}
+
+	/**
+	 * Encode the word and lowerCase if the word is case-sensitive
+	 *
+	 * @param word
+	 * @return
+	 */
+	private String preprocessWord(String word) {
+		return normalizer.normalize(word);
+	}
+
+	/**
+	 * Return the number of nodes, root excluded.
+	 *
+	 * @return number of nodes
+	 */
+	public int getNumberOfNodes() {
+		return numOfNodes;
+	}
+
+	public int getNumberOfWords() {
+		return numOfwords;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+}
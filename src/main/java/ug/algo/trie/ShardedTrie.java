@@ -0,0 +1,435 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+
+/**
+ * A Trie split into independent shards by ranges of the first char of the
+ * words, so that shards can be loaded and searched in parallel.
+ *
+ * All the words starting with a prefix are in the shard of its first char,
+ * so search, startsWith, countWordStartsWith and getWordStartsWith are
+ * routed to one shard. A similar word can start with any char, so
+ * getSimilarityMap is scattered to every shard on the executor and the
+ * results are merged. addAll splits a batch by shard and loads the shards
+ * concurrently.
+ *
+ * The ranges are chosen from the number of words starting with each char:
+ * when the largest shard holds more than {@link #REBALANCE_FACTOR} times
+ * the average, and enough words changed since the last time, the ranges
+ * are recomputed and the subtrees of the chars changing shard are moved. The
+ * shards are not thread safe for updates: as with Trie, updates must not
+ * run concurrently with other operations.
+ *
+ * @author Umberto
+ *
+ */
+public class ShardedTrie {
+
+	// largest shard over the average size that triggers a rebalance
+	public static final double REBALANCE_FACTOR = 1.5;
+	// no rebalance below this number of words
+	private static final int MIN_WORDS_TO_REBALANCE = 1024;
+
+	private final Trie[] shards;
+	// first char of shard i + 1 at i, non decreasing
+	private char[] bounds;
+	private final Executor executor;
+	private final KeyNormalizer normalizer;
+	// If this is a case sensitive trie
+	private final boolean caseSensitive;
+	private final Charset charset;
+	// words added or removed since the last rebalance
+	private int changes;
+
+	/**
+	 * Constructor, running the shard operations on the common fork-join
+	 * pool.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param numberOfShards
+	 */
+	public ShardedTrie(boolean caseSensitive, Charset charset, int numberOfShards) {
+		this(caseSensitive, charset, numberOfShards, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param numberOfShards
+	 * @param executor
+	 *            runs the shard operations of addAll and getSimilarityMap
+	 */
+	public ShardedTrie(boolean caseSensitive, Charset charset, int numberOfShards, Executor executor) {
+		if (numberOfShards <= 0) {
+			throw new IllegalArgumentException("numberOfShards must be positive: " + numberOfShards);
+		}
+		this.caseSensitive = caseSensitive;
+		this.charset = charset;
+		this.executor = executor;
+		this.normalizer = new KeyNormalizer(caseSensitive, charset);
+		this.shards = new Trie[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			shards[i] = new Trie(caseSensitive, charset);
+		}
+		// until there are words, split the lower case letters evenly
+		this.bounds = new char[numberOfShards - 1];
+		for (int i = 1; i < numberOfShards; i++) {
+			bounds[i - 1] = (char) ('a' + 26 * i / numberOfShards);
+		}
+	}
+
+	/**
+	 * Return the shard of the words starting with c.
+	 *
+	 * @param c
+	 *            a normalized char
+	 * @return the index of the shard
+	 */
+	private int shardOf(char c) {
+		return shardOf(bounds, c);
+	}
+
+	private static int shardOf(char[] bounds, char c) {
+		// number of bounds <= c
+		int low = 0;
+		int high = bounds.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (bounds[middle] <= c) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Return the shard of a key.
+	 *
+	 * @param key
+	 * @return the shard, null if the key is empty
+	 */
+	private Trie shard(CharSequence key) {
+		return key.length() == 0 ? null : shards[shardOf(normalizer.charAt(key, 0))];
+	}
+
+	/**
+	 * Inserts a word into its shard.
+	 *
+	 * @param word
+	 */
+	public void add(String word) {
+		Trie shard = shard(word);
+		if (shard != null) {
+			int words = shard.getNumberOfWords();
+			shard.add(word);
+			changes += shard.getNumberOfWords() - words;
+			rebalanceIfNeeded();
+		}
+	}
+
+	/**
+	 * Inserts a batch of words, loading the shards concurrently. Into an
+	 * empty trie, the ranges of the shards are first chosen from the batch.
+	 *
+	 * @param words
+	 */
+	public void addAll(Collection<String> words) {
+		if (getNumberOfWords() == 0) {
+			int[] counts = new int[Character.MAX_VALUE + 1];
+			for (String word : words) {
+				if (!word.isEmpty()) {
+					counts[normalizer.charAt(word, 0)]++;
+				}
+			}
+			bounds = computeBounds(counts, shards.length);
+		}
+		List<List<String>> batches = new ArrayList<List<String>>(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			batches.add(new ArrayList<String>());
+		}
+		for (String word : words) {
+			if (!word.isEmpty()) {
+				batches.get(shardOf(normalizer.charAt(word, 0))).add(word);
+			}
+		}
+		int before = getNumberOfWords();
+		CompletableFuture<?>[] loads = new CompletableFuture<?>[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			final Trie shard = shards[i];
+			final List<String> batch = batches.get(i);
+			loads[i] = CompletableFuture.runAsync(() -> shard.addAll(batch), executor);
+		}
+		CompletableFuture.allOf(loads).join();
+		changes += getNumberOfWords() - before;
+		rebalanceIfNeeded();
+	}
+
+	/**
+	 * Removes a word from its shard.
+	 *
+	 * @param word
+	 * @return true if the word was in the trie
+	 */
+	public boolean remove(String word) {
+		Trie shard = shard(word);
+		if (shard == null || !shard.search(word)) {
+			return false;
+		}
+		shard.remove(word);
+		changes++;
+		rebalanceIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Returns if the word is in the trie.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(String word) {
+		Trie shard = shard(word);
+		return shard != null && shard.search(word);
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(String prefix) {
+		Trie shard = shard(prefix);
+		return shard != null && shard.startsWith(prefix);
+	}
+
+	/**
+	 * Return how many words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(String prefix) {
+		Trie shard = shard(prefix);
+		return shard == null ? 0 : shard.countWordStartsWith(prefix);
+	}
+
+	/**
+	 * Return words starting with prefix, from the shard of the prefix.
+	 *
+	 * @param prefix
+	 * @return a Stream containing words starting with prefix
+	 */
+	public Stream<String> getWordStartsWith(String prefix) {
+		Trie shard = shard(prefix);
+		return shard == null ? Stream.<String> empty() : shard.getWordStartsWith(prefix);
+	}
+
+	/**
+	 * The search function returns a list of all words that are less than
+	 * the given maximum distance from the target word, searching the shards
+	 * concurrently.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return a map of the words found and their distance
+	 */
+	public Map<String, Integer> getSimilarityMap(String word, int maxDistance) {
+		List<CompletableFuture<Map<String, Integer>>> searches = new ArrayList<CompletableFuture<Map<String, Integer>>>(
+				shards.length);
+		for (final Trie shard : shards) {
+			if (shard.getNumberOfWords() > 0) {
+				searches.add(CompletableFuture.supplyAsync(() -> shard.getSimilarityMap(word, maxDistance), executor));
+			}
+		}
+		Map<String, Integer> results = new HashMap<String, Integer>();
+		for (CompletableFuture<Map<String, Integer>> search : searches) {
+			// the shards hold disjoint words
+			results.putAll(search.join());
+		}
+		return results;
+	}
+
+	/**
+	 * Rebalance when the largest shard is too large and at least a tenth of
+	 * the words changed since the last rebalance.
+	 */
+	private void rebalanceIfNeeded() {
+		int words = getNumberOfWords();
+		if (words < MIN_WORDS_TO_REBALANCE || changes < words / 10) {
+			return;
+		}
+		int largest = 0;
+		for (Trie shard : shards) {
+			largest = Math.max(largest, shard.getNumberOfWords());
+		}
+		if (largest > REBALANCE_FACTOR * words / shards.length) {
+			rebalance();
+		}
+	}
+
+	/**
+	 * Recompute the ranges of the shards from the number of words starting
+	 * with each char, and move the subtrees of the chars changing shard.
+	 */
+	public void rebalance() {
+		changes = 0;
+		int[] counts = new int[Character.MAX_VALUE + 1];
+		for (Trie shard : shards) {
+			for (Char2ObjectMap.Entry<Node> entry : shard.root().children.char2ObjectEntrySet()) {
+				counts[entry.getCharKey()] = entry.getValue().getCount();
+			}
+		}
+		char[] next = computeBounds(counts, shards.length);
+		if (Arrays.equals(next, bounds)) {
+			return;
+		}
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			if (counts[c] == 0) {
+				continue;
+			}
+			int from = shardOf(bounds, (char) c);
+			int to = shardOf(next, (char) c);
+			if (from != to) {
+				// the keys are already normalized: the subtree moves as it is,
+				// with the weights of its words
+				shards[to].attach(shards[from].detach((char) c));
+			}
+		}
+		bounds = next;
+	}
+
+	/**
+	 * Split the chars in consecutive ranges so that the largest range holds
+	 * as few words as possible: the smallest feasible largest size is found
+	 * by binary search, each size being checked by filling the ranges in
+	 * order up to it.
+	 *
+	 * @param counts
+	 *            number of words starting with each char
+	 * @param shards
+	 * @return the first char of each shard but the first
+	 */
+	private static char[] computeBounds(int[] counts, int shards) {
+		long low = 0;
+		long high = 0;
+		for (int count : counts) {
+			low = Math.max(low, count);
+			high += count;
+		}
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (fill(counts, shards, middle, null)) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		char[] bounds = new char[shards - 1];
+		fill(counts, shards, low, bounds);
+		return bounds;
+	}
+
+	/**
+	 * Fill the ranges in char order, starting a new range when the next char
+	 * would take the current one above size.
+	 *
+	 * @param counts
+	 * @param shards
+	 * @param size
+	 *            the maximum words of a range
+	 * @param bounds
+	 *            receives the first char of each range but the first, null
+	 *            to only check
+	 * @return if the chars fit in the shards
+	 */
+	private static boolean fill(int[] counts, int shards, long size, char[] bounds) {
+		int shard = 0;
+		long load = 0;
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			if (counts[c] == 0) {
+				continue;
+			}
+			if (load + counts[c] > size) {
+				if (++shard == shards) {
+					return false;
+				}
+				if (bounds != null) {
+					bounds[shard - 1] = (char) c;
+				}
+				load = 0;
+			}
+			load += counts[c];
+		}
+		if (bounds != null) {
+			// the shards after the last char are empty
+			Arrays.fill(bounds, shard, bounds.length, Character.MAX_VALUE);
+		}
+		return true;
+	}
+
+	public int getNumberOfWords() {
+		int words = 0;
+		for (Trie shard : shards) {
+			words += shard.getNumberOfWords();
+		}
+		return words;
+	}
+
+	public int getNumberOfShards() {
+		return shards.length;
+	}
+
+	/**
+	 * @return the number of words of each shard
+	 */
+	public int[] getShardSizes() {
+		int[] sizes = new int[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			sizes[i] = shards[i].getNumberOfWords();
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return the range of first chars of each shard, as first char to
+	 *         shard index
+	 */
+	public Map<Character, Integer> getShardRanges() {
+		Map<Character, Integer> ranges = new TreeMap<Character, Integer>();
+		ranges.put(Character.MIN_VALUE, 0);
+		for (int i = 0; i < bounds.length; i++) {
+			ranges.put(bounds[i], i + 1);
+		}
+		return ranges;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+}
@@ -0,0 +1,132 @@
+package ug.algo.trie;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of a depth-first Levenshtein search, shared by the tries: the
+ * rows of the matrix are preallocated and indexed by depth, rows[d] being
+ * the row of the node reached after d chars (rows[0] is the empty string),
+ * and the chars of the path are kept in a buffer, so nothing is allocated
+ * per visited node. A trie only supplies the traversal, calling
+ * {@link #visit(char, int, boolean)} for every child it reaches and
+ * descending into it when the call returns true.
+ *
+ * @author Umberto
+ *
+ */
+final class SimilaritySearch {
+
+	private final String word;
+	private final int maxDistance;
+	private final int columns;
+	private int[][] rows;
+	private char[] buffer;
+	private final Map<String, Integer> results = new HashMap<String, Integer>();
+	// nodes whose row has been built
+	private long visited;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param word
+	 *            the normalized searched word
+	 * @param maxDistance
+	 */
+	SimilaritySearch(String word, int maxDistance) {
+		this.word = word;
+		this.maxDistance = maxDistance;
+		this.columns = word.length() + 1;
+		this.rows = new int[16][columns];
+		this.buffer = new char[16];
+		// build first row
+		for (int i = 0; i < columns; i++) {
+			rows[0][i] = i;
+		}
+	}
+
+	/**
+	 * Set the chars of the path above the first visited node and the row of
+	 * its last char.
+	 *
+	 * @param prefix
+	 * @param row
+	 *            the row of prefix, with word.length() + 1 cells
+	 */
+	void setPrefix(CharSequence prefix, int[] row) {
+		int depth = prefix.length();
+		ensureDepth(depth + 1);
+		for (int i = 0; i < depth; i++) {
+			buffer[i] = prefix.charAt(i);
+		}
+		System.arraycopy(row, 0, rows[depth], 0, columns);
+	}
+
+	/**
+	 * Build the row of a node, at depth + 1, from the row of its parent, and
+	 * add the word of the node to the results if it is close enough.
+	 *
+	 * @param letter
+	 *            the char of the node
+	 * @param depth
+	 *            depth of the parent of the node
+	 * @param leaf
+	 *            if the node ends a word
+	 * @return true if a word below the node can be close enough, so its
+	 *         children must be visited
+	 */
+	boolean visit(char letter, int depth, boolean leaf) {
+		ensureDepth(depth + 1);
+		visited++;
+		buffer[depth] = letter;
+		int[] currentRow = rows[depth + 1];
+
+		// Build one row for the letter, with a column for each letter in
+		// the target word, plus one for the empty string at column 0
+		int rowMin = Levenshtein.nextRow(word, letter, rows[depth], currentRow);
+
+		// If the last entry in the row indicates the optimal cost is less
+		// than the maximum distance, and there is a word in this trie
+		// node, then add it.
+		int distance = currentRow[columns - 1];
+		if (distance <= maxDistance && leaf) {
+			results.put(new String(buffer, 0, depth + 1), distance);
+		}
+
+		// If any entries in the row are less than the maximum distance,
+		// then the branch must be searched.
+		return rowMin <= maxDistance;
+	}
+
+	/**
+	 * Return the words found and their distance.
+	 *
+	 * @return results
+	 */
+	Map<String, Integer> getResults() {
+		return results;
+	}
+
+	/**
+	 * Return the number of nodes whose row has been built.
+	 *
+	 * @return visited
+	 */
+	long getVisited() {
+		return visited;
+	}
+
+	private void ensureDepth(int depth) {
+		if (depth < rows.length) {
+			return;
+		}
+		int old = rows.length;
+		int capacity = Math.max(old * 2, depth + 1);
+		rows = Arrays.copyOf(rows, capacity);
+		for (int i = old; i < capacity; i++) {
+			rows[i] = new int[columns];
+		}
+		buffer = Arrays.copyOf(buffer, capacity);
+	}
+}
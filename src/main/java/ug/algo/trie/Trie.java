@@ -1,10 +1,20 @@
 package ug.algo.trie;
 
-import it.unimi.dsi.fastutil.chars.Char2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import ug.algo.trie.TrieStats.Operation;
 
 /**
  * Trie(https://en.wikipedia.org/wiki/Trie) is an efficient information
@@ -26,6 +36,16 @@ public class Trie {
 	// https://docs.oracle.com/javase/8/docs/technotes/guides/intl/encoding.doc.html
 	// https://docs.oracle.com/javase/7/docs/api/java/nio/charset/Charset.html
 	private Charset charset;
+	// Map holding the children of every node
+	private ChildMapType childMapType;
+	// Normalizes the keys for caseSensitive and charset
+	private KeyNormalizer normalizer;
+	// Operation metrics, null when disabled
+	private volatile TrieMetrics metrics;
+	// Last snapshot taken by stats()
+	private volatile TrieStats lastStats;
+	// Estimated bytes of a Node with compressed references
+	private static final long NODE_BYTES = 48;
 
 	/**
 	 * Constructor.
@@ -35,7 +55,22 @@ public class Trie {
 	 * @param charset
 	 */
 	public Trie(boolean caseSensitive, Charset charset) {
-		root = new Node();
+		this(caseSensitive, charset, ChildMapType.AVL);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param childMapType
+	 *            the map holding the children of the nodes; with the hash
+	 *            maps the words are not enumerated in alphabetical order
+	 */
+	public Trie(boolean caseSensitive, Charset charset, ChildMapType childMapType) {
+		this.childMapType = childMapType;
+		root = new Node(childMapType);
 		root.setRoot(true);
 		setNumberOfWords(0);
 		setCaseSensitive(caseSensitive);
@@ -48,60 +83,325 @@ public class Trie {
 	 * @param word
 	 */
 	public void add(String word) {
+		add((CharSequence) word);
+	}
 
-		word = preprocessWord(word);
+	/**
+	 * Inserts a word into the trie. The key is normalized while it is read,
+	 * a String already normalized is stored as it is.
+	 *
+	 * @param word
+	 */
+	public void add(CharSequence word) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		insert(normalizer.normalize(word));
+		if (metrics != null) {
+			metrics.record(Operation.ADD, start);
+		}
+	}
 
-		Char2ObjectAVLTreeMap<Node> children = root.children;
+	/**
+	 * Inserts a word into the trie with a weight (frequency, score...) used
+	 * to rank it in {@link #topK(String, int)}. If the word is already in the
+	 * trie its weight is replaced. Words added without a weight weigh 0.
+	 *
+	 * @param word
+	 * @param weight
+	 */
+	public void add(String word, long weight) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node node = insert(preprocessWord(word));
+		if (node != null && node.getWeight() != weight) {
+			node.setWeight(weight);
+			updateMaxWeight(node);
+		}
+		if (metrics != null) {
+			metrics.record(Operation.ADD, start);
+		}
+	}
+
+	/**
+	 * Inserts a preprocessed word into the trie.
+	 *
+	 * @param word
+	 * @return the last word's node, null if the word is empty
+	 */
+	private Node insert(String word) {
+
+		Char2ObjectMap<Node> children = root.children;
 
 		// To avoid duplicates
-		if (!search(word, false)) {
+		Node existing = searchNode(word, false);
+		if (existing != null && existing.isLeaf()) {
+			return existing;
+		}
 
-			Node currentParent;
-			currentParent = root;
+		Node currentParent;
+		currentParent = root;
+		Node node = null;
 
-			for (int i = 0; i < word.length(); i++) {
-				char c = word.charAt(i);
-				Node node;
-				if (children.containsKey(c)) {
-					node = children.get(c);
-				} else {
-					node = new Node(c);
-					node.setRoot(false);
-					node.setParent(currentParent);
-					children.put(c, node);
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (children.containsKey(c)) {
+				node = children.get(c);
+			} else {
+				node = new Node(c, childMapType);
+				node.setRoot(false);
+				node.setParent(currentParent);
+				// no word below yet
+				node.setMaxWeight(Long.MIN_VALUE);
+				children.put(c, node);
+			}
+
+			children = node.children;
+			currentParent = node;
+
+			// set leaf node
+			if (i == word.length() - 1) {
+				node.setLeaf(true);
+				this.numOfwords++;
+			}
+			// how many words starting with prefix
+			node.setCount(node.getCount() + 1);
+		}
+
+		if (node != null) {
+			updateMaxWeight(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Recompute the maximum weight of node and of its ancestors, stopping at
+	 * the first one that does not change.
+	 *
+	 * @param node
+	 */
+	private void updateMaxWeight(Node node) {
+		while (node != null && !node.isRoot()) {
+			long max = node.isLeaf() ? node.getWeight() : Long.MIN_VALUE;
+			for (Node child : node.children.values()) {
+				max = Math.max(max, child.getMaxWeight());
+			}
+			if (max == node.getMaxWeight()) {
+				return;
+			}
+			node.setMaxWeight(max);
+			node = node.getParent();
+		}
+	}
+
+	/**
+	 * Inserts words sorted in ascending order into an empty trie, building
+	 * each node exactly once: the path of the previous word is kept on a
+	 * stack, so a word only creates the nodes after its common prefix with
+	 * the previous one, and the count of a node is set once, when no later
+	 * word can go through it. Duplicates are skipped.
+	 *
+	 * If the trie is not empty, or from the first word out of order, words
+	 * are inserted one by one with {@link #add(String)}.
+	 *
+	 * @param words
+	 */
+	public void bulkLoad(Iterator<String> words) {
+
+		if (numOfwords > 0) {
+			while (words.hasNext()) {
+				add(words.next());
+			}
+			return;
+		}
+
+		// path of the previous word and words ending below each of its nodes
+		Node[] path = new Node[16];
+		int[] pending = new int[16];
+		int depth = 0;
+		String previous = "";
+
+		while (words.hasNext()) {
+			String original = words.next();
+			String word = preprocessWord(original);
+			if (word.isEmpty() || word.equals(previous)) {
+				continue;
+			}
+			if (word.compareTo(previous) < 0) {
+				// out of order: complete the counts and fall back to add
+				closePath(path, pending, depth, 0);
+				add(original);
+				while (words.hasNext()) {
+					add(words.next());
 				}
+				return;
+			}
 
-				children = node.children;
-				currentParent = node;
+			int common = 0;
+			while (common < previous.length() && previous.charAt(common) == word.charAt(common)) {
+				common++;
+			}
+			closePath(path, pending, depth, common);
+
+			if (word.length() > path.length) {
+				int capacity = Math.max(word.length(), path.length * 2);
+				path = Arrays.copyOf(path, capacity);
+				pending = Arrays.copyOf(pending, capacity);
+			}
+			for (int i = common; i < word.length(); i++) {
+				Node parent = i == 0 ? root : path[i - 1];
+				Node node = new Node(word.charAt(i), childMapType);
+				node.setRoot(false);
+				node.setParent(parent);
+				parent.children.put(word.charAt(i), node);
+				path[i] = node;
+				pending[i] = 0;
+			}
+			depth = word.length();
+			path[depth - 1].setLeaf(true);
+			pending[depth - 1]++;
+			this.numOfwords++;
+			previous = word;
+		}
+		closePath(path, pending, depth, 0);
+	}
 
-				// set leaf node
-				if (i == word.length() - 1) {
-					node.setLeaf(true);
-					this.numOfwords++;
+	/**
+	 * Inserts a batch of words. The words are sorted first: into an empty
+	 * trie they are loaded with {@link #bulkLoad(Iterator)}, otherwise each
+	 * word descends only the chars after its common prefix with the previous
+	 * one, and a new word creates its missing nodes and updates the counts of
+	 * its path without looking it up again.
+	 *
+	 * @param words
+	 */
+	public void addAll(Collection<? extends CharSequence> words) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		final String[] keys = normalizeAll(words);
+		final int[] order = BatchLookup.sortedOrder(keys);
+		if (numOfwords == 0) {
+			bulkLoad(new Iterator<String>() {
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < order.length;
+				}
+
+				@Override
+				public String next() {
+					if (next == order.length) {
+						throw new NoSuchElementException();
+					}
+					return keys[order[next++]];
+				}
+			});
+		} else {
+			// path of the previous word, as deep as it was found
+			Node[] path = new Node[16];
+			int depth = 0;
+			String previous = "";
+			for (int index : order) {
+				String word = keys[index];
+				if (word.isEmpty() || word.equals(previous)) {
+					continue;
 				}
-				// how many words starting with prefix
-				node.setCount(node.getCount() + 1);
+				if (word.length() > path.length) {
+					path = Arrays.copyOf(path, Math.max(word.length(), path.length * 2));
+				}
+				int common = 0;
+				int limit = Math.min(depth, word.length());
+				while (common < limit && previous.charAt(common) == word.charAt(common)) {
+					common++;
+				}
+				depth = common;
+				Node node = depth == 0 ? root : path[depth - 1];
+				while (depth < word.length()) {
+					node = node.children.get(word.charAt(depth));
+					if (node == null) {
+						break;
+					}
+					path[depth++] = node;
+				}
+				previous = word;
+				// To avoid duplicates
+				if (depth == word.length() && path[depth - 1].isLeaf()) {
+					continue;
+				}
+				for (int i = depth; i < word.length(); i++) {
+					Node parent = i == 0 ? root : path[i - 1];
+					node = new Node(word.charAt(i), childMapType);
+					node.setRoot(false);
+					node.setParent(parent);
+					// no word below yet
+					node.setMaxWeight(Long.MIN_VALUE);
+					parent.children.put(word.charAt(i), node);
+					path[i] = node;
+				}
+				depth = word.length();
+				for (int i = 0; i < depth; i++) {
+					path[i].setCount(path[i].getCount() + 1);
+				}
+				path[depth - 1].setLeaf(true);
+				this.numOfwords++;
+				updateMaxWeight(path[depth - 1]);
+			}
+		}
+		if (metrics != null) {
+			metrics.record(Operation.ADD_ALL, start);
+		}
+	}
+
+	/**
+	 * Set the counts of the nodes of path deeper than depth keep, adding them
+	 * to their parents.
+	 *
+	 * @param path
+	 * @param pending
+	 * @param depth
+	 * @param keep
+	 */
+	private void closePath(Node[] path, int[] pending, int depth, int keep) {
+		for (int i = depth - 1; i >= keep; i--) {
+			path[i].setCount(pending[i]);
+			if (i > 0) {
+				pending[i - 1] += pending[i];
 			}
 		}
 	}
 
 	/**
 	 * Removes a word from the trie.
-	 * 
+	 *
 	 * @param word
 	 * @return
 	 */
 	public boolean remove(String word) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		boolean removed = removeWord(preprocessWord(word));
+		if (metrics != null) {
+			metrics.record(Operation.REMOVE, start);
+		}
+		return removed;
+	}
 
-		word = preprocessWord(word);
+	/**
+	 * Removes a preprocessed word from the trie.
+	 *
+	 * @param word
+	 * @return false if the word is not in the trie
+	 */
+	private boolean removeWord(String word) {
 
 		int previousWord = 1;
 
-		if (!startsWith(word, false)) {
+		// a prefix of a word is not a word
+		Node currentNode = searchNode(word, false);
+		if (currentNode == null || !currentNode.isLeaf()) {
 			return false;
 		}
 
-		Node currentNode = searchNode(word, false);
 		Node currentParent = currentNode.getParent();
 
 		if (currentParent.isRoot()) {
@@ -142,6 +442,21 @@ public class Trie {
 
 		this.setNumberOfWords(this.getNumberOfWords() - 1);
 
+		// update the weights below the deepest node left on the path
+		Node deepest = null;
+		Char2ObjectMap<Node> children = root.children;
+		int depth = 0;
+		while (depth < word.length() && children.containsKey(word.charAt(depth))) {
+			deepest = children.get(word.charAt(depth++));
+			children = deepest.children;
+		}
+		if (deepest != null) {
+			if (depth == word.length()) {
+				deepest.setWeight(0);
+			}
+			updateMaxWeight(deepest);
+		}
+
 		return true;
 	}
 
@@ -156,7 +471,7 @@ public class Trie {
 		if (doPreprocess) {
 			word = preprocessWord(word);
 		}
-		Char2ObjectAVLTreeMap<Node> children = root.children;
+		Char2ObjectMap<Node> children = root.children;
 		Node node = null;
 		for (int i = 0; i < word.length(); i++) {
 			char c = word.charAt(i);
@@ -169,6 +484,29 @@ public class Trie {
 		}
 		return node;
 	}
+
+	/**
+	 * Search a key in the trie, normalizing it char by char during the
+	 * descent, so nothing is allocated.
+	 *
+	 * @param key
+	 * @return the last key's node, null if the key is empty or not found
+	 */
+	private Node descend(CharSequence key) {
+		Node node = null;
+		Char2ObjectMap<Node> children = root.children;
+		for (int i = 0; i < key.length(); i++) {
+			if (normalizer.isDropped(key, i)) {
+				continue;
+			}
+			node = children.get(normalizer.charAt(key, i));
+			if (node == null) {
+				return null;
+			}
+			children = node.children;
+		}
+		return node;
+	}
 	
 	/**
 	 * Returns if there is any word in the trie that starts with the given
@@ -178,8 +516,24 @@ public class Trie {
 	 * @return true|false
 	 */
 	public boolean startsWith(String prefix) {
+		return startsWith((CharSequence) prefix);
+	}
 
-			return startsWith(prefix, true);
+	/**
+	 * Returns if there is any word in the trie that starts with the given
+	 * prefix, without allocating.
+	 *
+	 * @param prefix
+	 * @return true|false
+	 */
+	public boolean startsWith(CharSequence prefix) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		boolean found = descend(prefix) != null;
+		if (metrics != null) {
+			metrics.record(Operation.STARTS_WITH, start);
+		}
+		return found;
 	}
 	
 	/**
@@ -191,13 +545,16 @@ public class Trie {
 	 * @return true|false
 	 */
 	public boolean startsWith(String prefix, boolean doPreprocess) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 		if (doPreprocess) {
 			prefix = preprocessWord(prefix);
 		}
-		if (searchNode(prefix, false) == null)
-			return false;
-		else
-			return true;
+		boolean found = searchNode(prefix, false) != null;
+		if (metrics != null) {
+			metrics.record(Operation.STARTS_WITH, start);
+		}
+		return found;
 	}
 
 	/**
@@ -207,7 +564,24 @@ public class Trie {
 	 * @return true|false
 	 */
 	public boolean search(String word) {
-		return search(word, true);
+		return search((CharSequence) word);
+	}
+
+	/**
+	 * Returns if the word is in the trie, without allocating.
+	 *
+	 * @param word
+	 * @return true|false
+	 */
+	public boolean search(CharSequence word) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node node = descend(word);
+		boolean found = node != null && node.isLeaf();
+		if (metrics != null) {
+			metrics.record(Operation.SEARCH, start);
+		}
+		return found;
 	}
 	
 	/**
@@ -218,14 +592,17 @@ public class Trie {
 	 * @return true|false
 	 */
 	public boolean search(String word, boolean doPreprocess) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 		if (doPreprocess) {
 			word = preprocessWord(word);
 		}
 		Node t = searchNode(word, false);
-		if (t != null && t.isLeaf())
-			return true;
-		else
-			return false;
+		boolean found = t != null && t.isLeaf();
+		if (metrics != null) {
+			metrics.record(Operation.SEARCH, start);
+		}
+		return found;
 	}
 
 	/**
@@ -235,43 +612,188 @@ public class Trie {
 	 * @return how many words starting with prefix
 	 */
 	public int countWordStartsWith(String prefix) {
-		
-		prefix = preprocessWord(prefix);
-		
-		if (!startsWith(prefix, false)) {
-			return 0;
+		return countWordStartsWith((CharSequence) prefix);
+	}
+
+	/**
+	 * Return how many words starting with prefix, without allocating.
+	 *
+	 * @param prefix
+	 * @return how many words starting with prefix
+	 */
+	public int countWordStartsWith(CharSequence prefix) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node node = descend(prefix);
+		int count = node == null ? 0 : node.getCount();
+		if (metrics != null) {
+			metrics.record(Operation.COUNT_WORD_STARTS_WITH, start);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns for each word if it is in the trie. The words are looked up in
+	 * sorted order, so neighbouring words share the descent of their common
+	 * prefix.
+	 *
+	 * @param words
+	 * @return at i, if the i-th word of the collection is in the trie
+	 */
+	public boolean[] searchAll(Collection<? extends CharSequence> words) {
+		return searchAll(words, null);
+	}
+
+	/**
+	 * Returns for each word if it is in the trie, splitting the batch over a
+	 * fork-join pool. The trie must not be modified meanwhile.
+	 *
+	 * @param words
+	 * @param pool
+	 *            the pool to run on, null to run in the calling thread
+	 * @return at i, if the i-th word of the collection is in the trie
+	 */
+	public boolean[] searchAll(Collection<? extends CharSequence> words, ForkJoinPool pool) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node[] nodes = BatchLookup.lookup(root, normalizeAll(words), pool);
+		boolean[] found = new boolean[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			found[i] = nodes[i] != null && nodes[i].isLeaf();
+		}
+		if (metrics != null) {
+			metrics.record(Operation.SEARCH_ALL, start);
+		}
+		return found;
+	}
+
+	/**
+	 * Return for each prefix how many words start with it. The prefixes are
+	 * looked up in sorted order, so neighbouring prefixes share the descent
+	 * of their common prefix.
+	 *
+	 * @param prefixes
+	 * @return at i, how many words start with the i-th prefix of the
+	 *         collection
+	 */
+	public int[] countWordStartsWithAll(Collection<? extends CharSequence> prefixes) {
+		return countWordStartsWithAll(prefixes, null);
+	}
+
+	/**
+	 * Return for each prefix how many words start with it, splitting the
+	 * batch over a fork-join pool. The trie must not be modified meanwhile.
+	 *
+	 * @param prefixes
+	 * @param pool
+	 *            the pool to run on, null to run in the calling thread
+	 * @return at i, how many words start with the i-th prefix of the
+	 *         collection
+	 */
+	public int[] countWordStartsWithAll(Collection<? extends CharSequence> prefixes, ForkJoinPool pool) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node[] nodes = BatchLookup.lookup(root, normalizeAll(prefixes), pool);
+		int[] counts = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			counts[i] = nodes[i] == null ? 0 : nodes[i].getCount();
 		}
-		return (searchNode(prefix, false).getCount());
+		if (metrics != null) {
+			metrics.record(Operation.COUNT_WORD_STARTS_WITH_ALL, start);
+		}
+		return counts;
 	}
 
 	/**
-	 * Return words starting with prefix.
+	 * Normalize each key of a batch.
+	 *
+	 * @param keys
+	 * @return the normalized keys, in the order of the collection
+	 */
+	private String[] normalizeAll(Collection<? extends CharSequence> keys) {
+		String[] normalized = new String[keys.size()];
+		int i = 0;
+		for (CharSequence key : keys) {
+			normalized[i++] = normalizer.normalize(key);
+		}
+		return normalized;
+	}
+
+	/**
+	 * Return a cursor for an incremental prefix, starting empty: each char
+	 * typed or erased moves it by one node, so an autocomplete does not walk
+	 * the whole prefix at every keystroke.
+	 *
+	 * @return a new cursor
+	 */
+	public TrieCursor cursor() {
+		return new TrieCursor(this, root, normalizer);
+	}
+
+	/**
+	 * Return words starting with prefix. The Stream is lazy: words are
+	 * produced while it is consumed, so limit or findFirst stop the
+	 * traversal early. It is sized, and once made parallel it is split
+	 * between the children of the nodes, balanced on their word counts.
+	 *
+	 * The latency recorded by the metrics is the one of the prefix lookup
+	 * only, since the words are enumerated later.
 	 * 
 	 * @param prefix
 	 * @return a Stream containing words starting with prefix
 	 */
 	public Stream<String> getWordStartsWith(String prefix) {
-		
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+
 		prefix = preprocessWord(prefix);
-		
-		if (!startsWith(prefix, false)) {
-			return Stream.empty();
+
+		Node node = searchNode(prefix, false);
+		Stream<String> words = node == null ? Stream.empty()
+				: StreamSupport.stream(new TrieSpliterator(node, prefix, false), false);
+		if (metrics != null) {
+			metrics.record(Operation.GET_WORD_STARTS_WITH, start);
+		}
+		return words;
+	}
+
+	/**
+	 * Return at most limit words starting with prefix, without visiting the
+	 * rest of the trie.
+	 *
+	 * @param prefix
+	 * @param limit
+	 * @return a list containing words starting with prefix
+	 */
+	public List<String> getWordStartsWith(String prefix, int limit) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		List<String> words = new ArrayList<String>();
+		Iterator<String> iterator = wordIterator(prefix);
+		while (words.size() < limit && iterator.hasNext()) {
+			words.add(iterator.next());
+		}
+		if (metrics != null) {
+			metrics.record(Operation.GET_WORD_STARTS_WITH, start);
 		}
+		return words;
+	}
 
-		Stream<Node> leafNodes = getLeafNodes(searchNode(prefix, false));
+	/**
+	 * Return a lazy iterator over the words starting with prefix.
+	 *
+	 * @param prefix
+	 * @return an Iterator over the words starting with prefix
+	 */
+	public Iterator<String> wordIterator(String prefix) {
 
-		return leafNodes.map(node -> {
-			Node currentParent = node.getParent();
-			StringBuilder wordBuilder = new StringBuilder();
-			while (currentParent != null) {
-				if (currentParent.getParent() != null) {
-					wordBuilder.append(currentParent.getC());
-				}
-				currentParent = currentParent.getParent();
-			}
-			return wordBuilder.reverse().append(node.getC()).toString();
-		});
+		prefix = preprocessWord(prefix);
 
+		Node node = searchNode(prefix, false);
+		if (node == null) {
+			return Collections.emptyIterator();
+		}
+		return new PrefixIterator(node, prefix, false);
 	}
 
 	/**
@@ -307,11 +829,12 @@ public class Trie {
 		
 		List<String> words = new LinkedList<String>();
 
-		if (!startsWith(prefix, false)) {
+		Node start = searchNode(prefix, false);
+		if (start == null) {
 			return null;
 		}
 
-		List<Node> leafNodes = getLeafNodesJava7(searchNode(prefix, false));
+		List<Node> leafNodes = getLeafNodesJava7(start);
 
 		for (Node node : leafNodes) {
 			Node currentParent = node.getParent();
@@ -353,24 +876,173 @@ public class Trie {
 		return leafNodes;
 	}
 
+	/**
+	 * Return the k words starting with prefix, prefix included, having the
+	 * highest weight, from the highest to the lowest. Ties are broken in
+	 * alphabetical order.
+	 *
+	 * It is a best-first search: every node is ranked by the maximum weight
+	 * of the words below it, so only the nodes leading to the k best words
+	 * (and their siblings) are visited, whatever the number of words below
+	 * the prefix.
+	 *
+	 * @param prefix
+	 * @param k
+	 * @return a list containing at most k words
+	 */
+	public List<String> topK(String prefix, int k) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+
+		prefix = preprocessWord(prefix);
+
+		List<String> words = new ArrayList<String>(Math.max(k, 0));
+		Node node = searchNode(prefix, false);
+		if (node != null && k > 0) {
+			words = topK(node, prefix, k);
+		}
+		if (metrics != null) {
+			metrics.record(Operation.TOP_K, start);
+		}
+		return words;
+	}
+
+	/**
+	 * Best-first search of the k heaviest words below node.
+	 *
+	 * @param node
+	 * @param prefix
+	 *            the word of node
+	 * @param k
+	 * @return a list containing at most k words
+	 */
+	List<String> topK(Node node, String prefix, int k) {
+		List<String> words = new ArrayList<String>(k);
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+		queue.add(new Candidate(node, prefix, node.getMaxWeight()));
+		while (!queue.isEmpty() && words.size() < k) {
+			Candidate candidate = queue.poll();
+			if (candidate.node == null) {
+				words.add(candidate.word);
+				continue;
+			}
+			if (candidate.node.isLeaf()) {
+				queue.add(new Candidate(null, candidate.word, candidate.node.getWeight()));
+			}
+			for (Node child : candidate.node.children.values()) {
+				queue.add(new Candidate(child, candidate.word + child.getC(), child.getMaxWeight()));
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * A node to expand or, when node is null, a word found by
+	 * {@link #topK(Node, String, int)}.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+
+		private final Node node;
+		private final String word;
+		// weight of the word, or maximum weight below the node
+		private final long weight;
+
+		Candidate(Node node, String word, long weight) {
+			this.node = node;
+			this.word = word;
+			this.weight = weight;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			if (weight != other.weight) {
+				return weight > other.weight ? -1 : 1;
+			}
+			// the words below a node come after its prefix
+			return word.compareTo(other.word);
+		}
+	}
+
+	/**
+	 * Return a session for a Levenshtein search whose query is typed one
+	 * char at a time, starting empty: each char only extends the rows of the
+	 * nodes already reached instead of searching again from the root.
+	 *
+	 * @param maxDistance
+	 * @return a new session
+	 */
+	public FuzzySession fuzzySession(int maxDistance) {
+		return new FuzzySession(this, root, normalizer, maxDistance);
+	}
+
 	/**
 	 * Returns the word most similar to the target word.
 	 * @param word
 	 * @param maxDistance
-	 * @return
+	 * @return the closest word, null if no word is within maxDistance
 	 */
 	public String similarity(String word, int maxDistance) {
-		Map.Entry<String, Integer> min = null;
+		return nearest(word, maxDistance).orElse(null);
+	}
 
-		Map<String, Integer> results = getSimilarityMap(word, maxDistance);
+	/**
+	 * Returns the word closest to the target word, using Levenshtein
+	 * distance. Among words at the same distance the first in alphabetical
+	 * order is returned.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @return the closest word, if any is within maxDistance
+	 */
+	public Optional<String> nearest(String word, int maxDistance) {
+		List<String> words = nearest(word, maxDistance, 1);
+		return words.isEmpty() ? Optional.empty() : Optional.of(words.get(0));
+	}
 
-		for (Map.Entry<String, Integer> el : results.entrySet()) {
-			if (min == null || el.getValue() < min.getValue()) {
-				min = el;
-			}
+	/**
+	 * Returns the n words closest to the target word, using Levenshtein
+	 * distance, ordered by distance and then alphabetically.
+	 *
+	 * Unlike {@link #getSimilarityMap(String, int)} the trie is explored by
+	 * increasing distance: the search is run with a maximum distance of 0,
+	 * 1, 2... up to maxDistance, stopping at the first one that finds n
+	 * words. Since a branch is pruned as soon as its row exceeds the current
+	 * distance, close matches are found visiting a small part of the nodes
+	 * needed for maxDistance.
+	 *
+	 * @param word
+	 * @param maxDistance
+	 * @param n
+	 * @return a list containing at most n words
+	 */
+	public List<String> nearest(String word, int maxDistance, int n) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 
+		word = preprocessWord(word);
+
+		List<String> words = new ArrayList<String>(Math.max(n, 0));
+		long visited = 0;
+		for (int distance = 0; n > 0 && distance <= maxDistance; distance++) {
+			SimilaritySearch search = new SimilaritySearch(word, distance);
+			for (Node child : root.children.values()) {
+				searchSimilar(search, child, 0);
+			}
+			visited += search.getVisited();
+			if (search.getResults().size() >= n || distance == maxDistance) {
+				List<Map.Entry<String, Integer>> results = new ArrayList<>(search.getResults().entrySet());
+				results.sort(Map.Entry.<String, Integer> comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+				for (int i = 0; i < n && i < results.size(); i++) {
+					words.add(results.get(i).getKey());
+				}
+				break;
+			}
+		}
+		if (metrics != null) {
+			metrics.record(Operation.NEAREST, start);
+			metrics.recordNodesVisited(visited);
 		}
-		return min.getKey();
+		return words;
 	}
 
 	/**
@@ -383,129 +1055,85 @@ public class Trie {
 	 * @param maxDistance
 	 */
 	public Map<String, Integer> getSimilarityMap(String word, int maxDistance) {
+		TrieMetrics metrics = this.metrics;
+		long start = metrics == null ? 0 : System.nanoTime();
 
-		Map<String, Integer> results = new HashMap<>();
 		word = preprocessWord(word);
 
-		int size = word.length();
-
-		// build first row
-		Vector<Integer> currentRow = new Vector<Integer>(size + 1);
-
-		for (int i = 0; i <= size; ++i) {
-			currentRow.insertElementAt(i, i);
-		}
+		SimilaritySearch search = new SimilaritySearch(word, maxDistance);
 
 		// recursively search each branch of the trie
-		for (Map.Entry<Character, Node> entry : root.children.entrySet()) {
-			results.putAll(RecursiveLevenshteinDistance(entry.getValue(), entry.getValue().getC(), word, currentRow,
-					results, maxDistance));
+		for (Node child : root.children.values()) {
+			searchSimilar(search, child, 0);
 		}
 
-		return results;
+		if (metrics != null) {
+			metrics.record(Operation.SIMILARITY, start);
+			metrics.recordNodesVisited(search.getVisited());
+		}
+		return search.getResults();
 
 	}
 
 	/**
-	 * 
+	 * Search the words below node, node included, that are less than the
+	 * given maximum distance from the target word.
+	 *
 	 * @param node
 	 * @param letter
+	 *            the char of node
 	 * @param word
 	 * @param previousRow
+	 *            the row of the parent of node
 	 * @param results
 	 * @param maxDistance
-	 * @return
+	 * @return results, with the words found added
+	 * @deprecated use {@link #getSimilarityMap(String, int)}
 	 */
+	@Deprecated
 	public Map<String, Integer> RecursiveLevenshteinDistance(Node node, char letter, String word,
 			Vector<Integer> previousRow, Map<String, Integer> results, int maxDistance) {
-		
-		//System.out.println("trie letter "+letter);
-		//System.out.print("previous ");
-		//printVector(previousRow);
-		
-		int columns = previousRow.size();
-		Vector<Integer> currentRow = new Vector<Integer>(previousRow.size());
-		currentRow.add(0, previousRow.get(0) + 1);
-		// Build one row for the letter, with a column for each letter in the
-		// target word, plus one for the empty string at column 0
-		// Calculate the min cost of insertion, deletion, match or substution
-		int insertCost, deleteCost, replaceCost;
-		for (int i = 1; i < columns; i++) {
-			insertCost = currentRow.get(i - 1) + 1;
-			deleteCost = previousRow.get(i) + 1;
-			if (word.charAt(i - 1) != letter) {
-				replaceCost = previousRow.get(i - 1) + 1;
-			} else {
-				replaceCost = previousRow.get(i - 1);
-			}
 
-			currentRow.add(i, Math.min(insertCost, Math.min(deleteCost, replaceCost)));
-			//printVector(currentRow);
+		SimilaritySearch search = new SimilaritySearch(word, maxDistance);
+		int[] row = new int[previousRow.size()];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = previousRow.get(i);
 		}
-		
-		//System.out.print("currentRow ");
-		//printVector(currentRow);
-		
-		// If the last entry in the row indicates the optimal cost is less than
-		// the maximum distance, and there is a word in this trie node, then add
-		// it.
-		if (currentRow.lastElement() <= maxDistance && node.isLeaf()) {
-			Node currentParent = node.getParent();
-			StringBuilder wordBuilder = new StringBuilder();
-			while (currentParent != null) {
-				if (currentParent.getParent() != null) {
-					wordBuilder.append(currentParent.getC());
-				}
-				currentParent = currentParent.getParent();
-			}
-			results.put(wordBuilder.reverse().append(node.getC()).toString(), currentRow.lastElement());
+		// the path of the parent of node
+		StringBuilder path = new StringBuilder();
+		for (Node parent = node.getParent(); parent != null && !parent.isRoot(); parent = parent.getParent()) {
+			path.append(parent.getC());
 		}
-
-		// If any entries in the row are less than the maximum distance, then
-		// recursively search each branch of the trie.
-		Object obj = Collections.min(currentRow);
-		Integer i = new Integer((int) obj);
-		if (i.intValue() <= maxDistance) {
-			for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
-				results.putAll(RecursiveLevenshteinDistance(entry.getValue(), entry.getValue().getC(), word, currentRow,
-						results, maxDistance));
-			}
-		}
-
+		search.setPrefix(path.reverse(), row);
+		searchSimilar(search, node, path.length());
+		results.putAll(search.getResults());
 		return results;
-
-	}
-
-	/**
-	 * Encode the word and lowerCase if the word is case-sensitive
-	 * @param word
-	 * @return
-	 */
-	private String preprocessWord(String word) {
-		// Encode String
-		String w = encodeWord(word);
-		// Case sensitive
-		return caseSensitive(w);
 	}
 
 	/**
-	 * Encode String
-	 * 
-	 * @param word
-	 * @return word encoded
+	 * Build the row of node, at depth + 1, from the row of its parent, then
+	 * recursively search its children.
+	 *
+	 * @param search
+	 * @param node
+	 * @param depth
+	 *            depth of the parent of node
 	 */
-	private String encodeWord(String word) {
-		byte wordBytes[] = word.getBytes(this.getCharset());
-		return new String(wordBytes, this.getCharset());
+	private void searchSimilar(SimilaritySearch search, Node node, int depth) {
+		if (search.visit(node.getC(), depth, node.isLeaf())) {
+			for (Node child : node.children.values()) {
+				searchSimilar(search, child, depth + 1);
+			}
+		}
 	}
 
 	/**
-	 * 
+	 * Encode the word and lowerCase if the word is case-sensitive
 	 * @param word
 	 * @return
 	 */
-	private String caseSensitive(String word) {
-		return this.caseSensitive ? word : word.toLowerCase();
+	private String preprocessWord(String word) {
+		return normalizer.normalize(word);
 	}
 	/**
 	 * Set to unvisited all the Tries's node.
@@ -578,6 +1206,176 @@ public class Trie {
 		}
 	}
 	
+	/**
+	 * Return an immutable double-array copy of the trie, for dictionaries
+	 * that are built once and then only queried. Later changes to this trie
+	 * are not reflected in the copy.
+	 *
+	 * @return a FrozenTrie containing the words of the trie
+	 */
+	public FrozenTrie freeze() {
+		return new FrozenTrie(root, numOfwords, caseSensitive, charset);
+	}
+
+	/**
+	 * Return an immutable minimal word graph of the trie, where the nodes
+	 * sharing the same suffixes are merged. Later changes to this trie are
+	 * not reflected in the copy.
+	 *
+	 * @return a Dawg containing the words of the trie
+	 */
+	public Dawg toDawg() {
+		return new Dawg(root, numOfwords, caseSensitive, charset);
+	}
+
+	/**
+	 * Write a binary snapshot of the trie, to be opened later with
+	 * {@link #open(Path)} without replaying the words.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void save(Path path) throws IOException {
+		MappedTrie.save(path, root, numOfwords, caseSensitive, charset);
+	}
+
+	/**
+	 * Map a snapshot written by {@link #save(Path)} and answer the queries
+	 * straight from the mapped file.
+	 *
+	 * @param path
+	 * @return a read-only trie backed by the file
+	 * @throws IOException
+	 */
+	public static MappedTrie open(Path path) throws IOException {
+		return MappedTrie.open(path);
+	}
+
+	/**
+	 * Enable or disable the metrics of the operations. Enabling them starts
+	 * from empty histograms; while they are disabled the operations measure
+	 * nothing.
+	 *
+	 * @param enabled
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		if (enabled != isMetricsEnabled()) {
+			metrics = enabled ? new TrieMetrics() : null;
+		}
+	}
+
+	public boolean isMetricsEnabled() {
+		return metrics != null;
+	}
+
+	/**
+	 * Return a snapshot of the structure of the trie and of the metrics of
+	 * the operations, if enabled. The structure is collected visiting every
+	 * node, so it must not run while the trie is modified.
+	 *
+	 * @return the statistics of the trie
+	 */
+	public TrieStats stats() {
+		long nodes = 0;
+		long bytes = NODE_BYTES + childMapType.estimateBytes(root.children.size());
+		List<Long> nodesPerDepth = new ArrayList<Long>();
+		nodesPerDepth.add(1L);
+		// visit level by level
+		List<Node> level = new ArrayList<Node>(root.children.values());
+		while (!level.isEmpty()) {
+			nodesPerDepth.add((long) level.size());
+			List<Node> next = new ArrayList<Node>();
+			for (Node node : level) {
+				nodes++;
+				bytes += NODE_BYTES + childMapType.estimateBytes(node.children.size());
+				next.addAll(node.children.values());
+			}
+			level = next;
+		}
+		long[] depths = new long[nodesPerDepth.size()];
+		for (int i = 0; i < depths.length; i++) {
+			depths[i] = nodesPerDepth.get(i);
+		}
+		TrieMetrics metrics = this.metrics;
+		TrieStats stats = new TrieStats(numOfwords, nodes, depths, bytes,
+				metrics == null ? null : metrics.latencies(), metrics == null ? null : metrics.nodesVisited());
+		lastStats = stats;
+		return stats;
+	}
+
+	/**
+	 * @return the last snapshot taken by {@link #stats()}, null if none
+	 */
+	TrieStats lastStats() {
+		return lastStats;
+	}
+
+	/**
+	 * @return the metrics of the operations, null if disabled
+	 */
+	TrieMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return the root, whose children are the first chars of the words
+	 */
+	Node root() {
+		return root;
+	}
+
+	/**
+	 * Detach the words starting with c.
+	 *
+	 * @param c
+	 *            a first char, as stored in the trie
+	 * @return the node of c, null if no word starts with c
+	 */
+	Node detach(char c) {
+		Node node = root.children.remove(c);
+		if (node != null) {
+			numOfwords -= node.getCount();
+		}
+		return node;
+	}
+
+	/**
+	 * Attach the words below a node detached from a trie with the same
+	 * normalization. No word of this trie may start with the char of node.
+	 *
+	 * @param node
+	 *            the node of a first char, null to attach nothing
+	 */
+	void attach(Node node) {
+		if (node != null) {
+			node.setParent(root);
+			root.children.put(node.getC(), node);
+			numOfwords += node.getCount();
+		}
+	}
+
+	/**
+	 * @return the normalizer of the keys
+	 */
+	KeyNormalizer normalizer() {
+		return normalizer;
+	}
+
+	/**
+	 * Register a {@link TrieMXBean} of this trie in the platform MBean
+	 * server, as ug.algo.trie:type=Trie,name=name.
+	 *
+	 * @param name
+	 * @return the name of the registered MBean
+	 * @throws JMException
+	 *             if the MBean cannot be registered
+	 */
+	public ObjectName registerMBean(String name) throws JMException {
+		ObjectName objectName = new ObjectName("ug.algo.trie:type=Trie,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new TrieMonitor(this), objectName);
+		return objectName;
+	}
+
 	public int getNumberOfWords() {
 		return numOfwords;
 	}
@@ -592,6 +1390,9 @@ public class Trie {
 
 	private void setCaseSensitive(boolean caseSensitive) {
 		this.caseSensitive = caseSensitive;
+		if (charset != null) {
+			normalizer = new KeyNormalizer(caseSensitive, charset);
+		}
 	}
 
 	public Charset getCharset() {
@@ -600,6 +1401,11 @@ public class Trie {
 
 	public void setCharset(Charset charset) {
 		this.charset = charset;
+		normalizer = new KeyNormalizer(caseSensitive, charset);
+	}
+
+	public ChildMapType getChildMapType() {
+		return childMapType;
 	}
 	
 	public void printVector(Vector<Integer> vec){
@@ -0,0 +1,138 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.objects.AbstractObject2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.nio.charset.Charset;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A Trie mapping each word to an int, stored unboxed on the node where the
+ * word ends. A word not in the map has the default return value, 0 unless
+ * set with {@link #defaultReturnValue(int)}. Values wrap around on
+ * overflow, as ints do.
+ *
+ * @author Umberto
+ *
+ */
+public class Trie2IntMap extends AbstractTrie2PrimitiveMap {
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public Trie2IntMap(boolean caseSensitive, Charset charset) {
+		this(caseSensitive, charset, ChildMapType.AVL);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param childMapType
+	 *            the map holding the children of the nodes
+	 */
+	public Trie2IntMap(boolean caseSensitive, Charset charset, ChildMapType childMapType) {
+		super(caseSensitive, charset, childMapType);
+	}
+
+	public int defaultReturnValue() {
+		return (int) defRetValue;
+	}
+
+	public void defaultReturnValue(int value) {
+		this.defRetValue = value;
+	}
+
+	/**
+	 * Return the value of a word.
+	 *
+	 * @param word
+	 * @return the value, the default return value if the word is not in the
+	 *         map
+	 */
+	public int getInt(CharSequence word) {
+		return (int) getValue(word);
+	}
+
+	/**
+	 * Map a word to a value.
+	 *
+	 * @param word
+	 * @param value
+	 * @return the previous value, the default return value if the word was
+	 *         not in the map
+	 */
+	public int put(CharSequence word, int value) {
+		return (int) putValue(word, value, false);
+	}
+
+	/**
+	 * Adds increment to the value of a word. A word not in the map is added
+	 * with the default return value plus increment, so with the default
+	 * return value 0 this counts occurrences.
+	 *
+	 * @param word
+	 * @param increment
+	 * @return the previous value, the default return value if the word was
+	 *         not in the map
+	 */
+	public int addTo(CharSequence word, int increment) {
+		// the long sum narrows to the int one
+		return (int) putValue(word, increment, true);
+	}
+
+	/**
+	 * Map a word to value if it is not in the map, otherwise to the result of
+	 * function applied to its value and value.
+	 *
+	 * @param word
+	 * @param value
+	 * @param function
+	 * @return the new value
+	 */
+	public int mergeInt(CharSequence word, int value, IntBinaryOperator function) {
+		return (int) mergeValue(word, value, (previous, v) -> function.applyAsInt((int) previous, (int) v));
+	}
+
+	/**
+	 * Removes a word and its value.
+	 *
+	 * @param word
+	 * @return the value, the default return value if the word was not in the
+	 *         map
+	 */
+	public int removeInt(CharSequence word) {
+		return (int) removeValue(word);
+	}
+
+	/**
+	 * Return the words starting with prefix, the prefix itself included, with
+	 * their values. The Stream is lazy and sized.
+	 *
+	 * @param prefix
+	 * @return a Stream of the entries of the words starting with prefix
+	 */
+	public Stream<Object2IntMap.Entry<String>> entriesWithPrefix(CharSequence prefix) {
+		return stream(prefix,
+				(key, node) -> new AbstractObject2IntMap.BasicEntry<String>(key.toString(), (int) node.value));
+	}
+
+	/**
+	 * Return the values of the words starting with prefix, the prefix itself
+	 * included. The Stream is lazy and sized.
+	 *
+	 * @param prefix
+	 * @return an IntStream of the values of the words starting with prefix
+	 */
+	public IntStream valuesWithPrefix(CharSequence prefix) {
+		return stream(prefix, (key, node) -> node).mapToInt(node -> (int) node.value);
+	}
+}
@@ -0,0 +1,119 @@
+package ug.algo.trie;
+
+import it.unimi.dsi.fastutil.objects.AbstractObject2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
+import java.nio.charset.Charset;
+import java.util.function.LongBinaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A Trie mapping each word to a long, for counters that may overflow an int
+ * or for ids and timestamps. A word not in the map has the default return
+ * value, 0 unless set with {@link #defaultReturnValue(long)}.
+ *
+ * @author Umberto
+ *
+ */
+public class Trie2LongMap extends AbstractTrie2PrimitiveMap {
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public Trie2LongMap(boolean caseSensitive, Charset charset) {
+		this(caseSensitive, charset, ChildMapType.AVL);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param childMapType
+	 *            the map holding the children of the nodes
+	 */
+	public Trie2LongMap(boolean caseSensitive, Charset charset, ChildMapType childMapType) {
+		super(caseSensitive, charset, childMapType);
+	}
+
+	public long defaultReturnValue() {
+		return defRetValue;
+	}
+
+	public void defaultReturnValue(long value) {
+		this.defRetValue = value;
+	}
+
+	/**
+	 * @param word
+	 * @return the value, the default return value if the word is not in the
+	 *         map
+	 */
+	public long getLong(CharSequence word) {
+		return getValue(word);
+	}
+
+	/**
+	 * @param word
+	 * @param value
+	 * @return the previous value, the default return value if the word was
+	 *         not in the map
+	 */
+	public long put(CharSequence word, long value) {
+		return putValue(word, value, false);
+	}
+
+	/**
+	 * Adds increment to the value of a word, see
+	 * {@link Trie2IntMap#addTo(CharSequence, int)}.
+	 *
+	 * @param word
+	 * @param increment
+	 * @return the previous value, the default return value if the word was
+	 *         not in the map
+	 */
+	public long addTo(CharSequence word, long increment) {
+		return putValue(word, increment, true);
+	}
+
+	/**
+	 * @param word
+	 * @param value
+	 * @param function
+	 * @return the new value
+	 */
+	public long mergeLong(CharSequence word, long value, LongBinaryOperator function) {
+		return mergeValue(word, value, function);
+	}
+
+	/**
+	 * @param word
+	 * @return the value, the default return value if the word was not in the
+	 *         map
+	 */
+	public long removeLong(CharSequence word) {
+		return removeValue(word);
+	}
+
+	/**
+	 * @param prefix
+	 * @return a Stream of the entries of the words starting with prefix
+	 */
+	public Stream<Object2LongMap.Entry<String>> entriesWithPrefix(CharSequence prefix) {
+		return stream(prefix, (key, node) -> new AbstractObject2LongMap.BasicEntry<String>(key.toString(), node.value));
+	}
+
+	/**
+	 * @param prefix
+	 * @return a LongStream of the values of the words starting with prefix
+	 */
+	public LongStream valuesWithPrefix(CharSequence prefix) {
+		return stream(prefix, (key, node) -> node).mapToLong(node -> node.value);
+	}
+}
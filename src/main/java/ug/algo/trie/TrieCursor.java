@@ -0,0 +1,231 @@
+package ug.algo.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import ug.algo.trie.TrieStats.Operation;
+
+/**
+ * A position in a {@link Trie} for incremental autocomplete: the prefix is
+ * typed one char at a time with {@link #push(char)} and erased with
+ * {@link #pop()}, and the cursor keeps the node of every char of the prefix,
+ * so a keystroke costs one child lookup (push) or nothing (pop), and
+ * {@link #count()}, {@link #completions()} and {@link #topK(int)} start from
+ * the current node without walking the prefix again.
+ *
+ * Chars typed past the last word of the prefix are remembered, so erasing
+ * them goes back to a valid prefix. The answers are the same as those of
+ * the Trie methods called with the prefix. A cursor must be reset after the
+ * trie is modified, and it is not thread safe.
+ *
+ * @author Umberto
+ *
+ */
+public class TrieCursor {
+
+	private final Trie trie;
+	private final KeyNormalizer normalizer;
+	// chars as typed, and normalized
+	private final StringBuilder typed = new StringBuilder();
+	private final StringBuilder prefix = new StringBuilder();
+	// node of each matched char of the normalized prefix, the root at 0
+	private Node[] path = new Node[16];
+	private int matched;
+
+	TrieCursor(Trie trie, Node root, KeyNormalizer normalizer) {
+		this.trie = trie;
+		this.normalizer = normalizer;
+		this.path[0] = root;
+		this.matched = 0;
+	}
+
+	/**
+	 * Type a char at the end of the prefix.
+	 *
+	 * @param c
+	 * @return this cursor
+	 */
+	public TrieCursor push(char c) {
+		int last = typed.length() - 1;
+		typed.append(c);
+		if (Character.isLowSurrogate(c) && last >= 0 && Character.isHighSurrogate(typed.charAt(last))) {
+			// the high surrogate was normalized as unpaired
+			truncate(prefix.length() - 1);
+			descend(last);
+		}
+		descend(last + 1);
+		return this;
+	}
+
+	/**
+	 * Type chars at the end of the prefix.
+	 *
+	 * @param chars
+	 * @return this cursor
+	 */
+	public TrieCursor push(CharSequence chars) {
+		for (int i = 0; i < chars.length(); i++) {
+			push(chars.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * Erase the last char of the prefix.
+	 *
+	 * @return false if the prefix was empty
+	 */
+	public boolean pop() {
+		int last = typed.length() - 1;
+		if (last < 0) {
+			return false;
+		}
+		if (last > 0 && Character.isLowSurrogate(typed.charAt(last))
+				&& Character.isHighSurrogate(typed.charAt(last - 1))) {
+			// the high surrogate is unpaired again
+			truncate(prefix.length() - (normalizer.isDropped(typed, last) ? 1 : 2));
+			typed.setLength(last);
+			descend(last - 1);
+		} else {
+			truncate(prefix.length() - 1);
+			typed.setLength(last);
+		}
+		return true;
+	}
+
+	/**
+	 * Erase the whole prefix.
+	 */
+	public void reset() {
+		truncate(0);
+		typed.setLength(0);
+	}
+
+	/**
+	 * Normalize the typed char at i and follow it if the prefix before it is
+	 * in the trie. A dropped char adds nothing to the prefix.
+	 *
+	 * @param i
+	 */
+	private void descend(int i) {
+		if (normalizer.isDropped(typed, i)) {
+			return;
+		}
+		char c = normalizer.charAt(typed, i);
+		int depth = prefix.length();
+		prefix.append(c);
+		if (matched == depth) {
+			Node child = path[depth].children.get(c);
+			if (child != null) {
+				if (depth + 1 == path.length) {
+					path = Arrays.copyOf(path, path.length * 2);
+				}
+				path[++matched] = child;
+			}
+		}
+	}
+
+	/**
+	 * Keep the first length chars of the normalized prefix.
+	 *
+	 * @param length
+	 */
+	private void truncate(int length) {
+		prefix.setLength(length);
+		matched = Math.min(matched, length);
+	}
+
+	/**
+	 * @return the node of the prefix, null if the prefix is empty or not in
+	 *         the trie
+	 */
+	private Node node() {
+		int length = prefix.length();
+		return length > 0 && matched == length ? path[length] : null;
+	}
+
+	/**
+	 * @return the prefix, normalized
+	 */
+	public String getPrefix() {
+		return prefix.toString();
+	}
+
+	/**
+	 * Returns if there is any word in the trie that starts with the prefix,
+	 * as {@link Trie#startsWith(String)}.
+	 *
+	 * @return true|false
+	 */
+	public boolean startsWith() {
+		return node() != null;
+	}
+
+	/**
+	 * Returns if the prefix is a word of the trie, as
+	 * {@link Trie#search(String)}.
+	 *
+	 * @return true|false
+	 */
+	public boolean isWord() {
+		Node node = node();
+		return node != null && node.isLeaf();
+	}
+
+	/**
+	 * Return how many words start with the prefix, as
+	 * {@link Trie#countWordStartsWith(String)}, in O(1).
+	 *
+	 * @return how many words starting with the prefix
+	 */
+	public int count() {
+		TrieMetrics metrics = trie.metrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node node = node();
+		int count = node == null ? 0 : node.getCount();
+		if (metrics != null) {
+			metrics.record(Operation.COUNT_WORD_STARTS_WITH, start);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the words starting with the prefix, the prefix excluded, as
+	 * {@link Trie#getWordStartsWith(String)}. The Stream is lazy and sized.
+	 *
+	 * @return a Stream containing words starting with the prefix
+	 */
+	public Stream<String> completions() {
+		TrieMetrics metrics = trie.metrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node node = node();
+		Stream<String> words = node == null ? Stream.empty()
+				: StreamSupport.stream(new TrieSpliterator(node, prefix.toString(), false), false);
+		if (metrics != null) {
+			metrics.record(Operation.GET_WORD_STARTS_WITH, start);
+		}
+		return words;
+	}
+
+	/**
+	 * Return the k words starting with the prefix, prefix included, having
+	 * the highest weight, as {@link Trie#topK(String, int)}.
+	 *
+	 * @param k
+	 * @return a list containing at most k words
+	 */
+	public List<String> topK(int k) {
+		TrieMetrics metrics = trie.metrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+		Node node = node();
+		List<String> words = node == null || k <= 0 ? new ArrayList<String>(0)
+				: trie.topK(node, prefix.toString(), k);
+		if (metrics != null) {
+			metrics.record(Operation.TOP_K, start);
+		}
+		return words;
+	}
+}
@@ -0,0 +1,56 @@
+package ug.algo.trie;
+
+import java.util.Map;
+
+/**
+ * Management interface of a {@link Trie}, registered with
+ * {@link Trie#registerMBean(String)}.
+ *
+ * The operation attributes are live and empty while metrics are disabled.
+ * The structure attributes come from the last {@link Trie#stats()}, since
+ * visiting the nodes from the JMX thread could race with the updates; they
+ * are -1 until the first snapshot.
+ *
+ * @author Umberto
+ *
+ */
+public interface TrieMXBean {
+
+	int getNumberOfWords();
+
+	boolean isMetricsEnabled();
+
+	void setMetricsEnabled(boolean enabled);
+
+	long getNumberOfNodes();
+
+	int getMaxDepth();
+
+	long getEstimatedBytes();
+
+	/**
+	 * @return the number of calls of each operation
+	 */
+	Map<String, Long> getOperationCounts();
+
+	/**
+	 * @return the mean latency in nanoseconds of each operation
+	 */
+	Map<String, Double> getMeanLatencies();
+
+	/**
+	 * @return the 99th percentile of the latency in nanoseconds of each
+	 *         operation
+	 */
+	Map<String, Long> getP99Latencies();
+
+	/**
+	 * @return the maximum latency in nanoseconds of each operation
+	 */
+	Map<String, Long> getMaxLatencies();
+
+	/**
+	 * @return the mean number of nodes visited by a similarity search
+	 */
+	double getMeanSimilarityNodesVisited();
+}
@@ -0,0 +1,174 @@
+package ug.algo.trie;
+
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * A Trie mapping each word to a value, stored on the node where the word
+ * ends, so that a word and its payload are held once. Words are normalized
+ * as in {@link Trie}; null values are allowed, as in a HashMap.
+ *
+ * For int and long values use {@link Trie2IntMap} and {@link Trie2LongMap},
+ * which do not box them.
+ *
+ * @author Umberto
+ *
+ * @param <V>
+ *            the class of the values
+ */
+public class TrieMap<V> extends AbstractTrieMap<TrieMap.ValueNode<V>> {
+
+	/**
+	 * A node with the value of the word ending at it.
+	 */
+	static final class ValueNode<V> extends AbstractTrieMap.MapNode<ValueNode<V>> {
+
+		V value;
+
+		ValueNode(ChildMapType childMapType) {
+			super(childMapType);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 */
+	public TrieMap(boolean caseSensitive, Charset charset) {
+		this(caseSensitive, charset, ChildMapType.AVL);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param caseSensitive
+	 *            set if this is a case sensitive trie
+	 * @param charset
+	 * @param childMapType
+	 *            the map holding the children of the nodes
+	 */
+	public TrieMap(boolean caseSensitive, Charset charset, ChildMapType childMapType) {
+		super(caseSensitive, charset, childMapType);
+	}
+
+	@Override
+	ValueNode<V> newNode(ChildMapType childMapType) {
+		return new ValueNode<V>(childMapType);
+	}
+
+	/**
+	 * Return the value of a word.
+	 *
+	 * @param word
+	 * @return the value, null if the word is not in the map
+	 */
+	public V get(CharSequence word) {
+		ValueNode<V> node = findKey(word);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Return the value of a word, or defaultValue if the word is not in the
+	 * map.
+	 *
+	 * @param word
+	 * @param defaultValue
+	 * @return the value
+	 */
+	public V getOrDefault(CharSequence word, V defaultValue) {
+		ValueNode<V> node = findKey(word);
+		return node == null ? defaultValue : node.value;
+	}
+
+	/**
+	 * Map a word to a value.
+	 *
+	 * @param word
+	 * @param value
+	 * @return the previous value, null if the word was not in the map
+	 */
+	public V put(CharSequence word, V value) {
+		ValueNode<V> node = findKey(word);
+		if (node == null) {
+			node = insert(word);
+		}
+		V previous = node.value;
+		node.value = value;
+		return previous;
+	}
+
+	/**
+	 * Removes a word and its value.
+	 *
+	 * @param word
+	 * @return the value, null if the word was not in the map
+	 */
+	public V remove(CharSequence word) {
+		ValueNode<V> node = findKey(word);
+		if (node == null) {
+			return null;
+		}
+		V previous = node.value;
+		delete(word);
+		node.value = null;
+		return previous;
+	}
+
+	/**
+	 * Map a word to value if it is not in the map or its value is null,
+	 * otherwise to the result of function applied to its value and value, as
+	 * {@link Map#merge(Object, Object, BiFunction)}: if the result is null the
+	 * word is removed.
+	 *
+	 * @param word
+	 * @param value
+	 * @param function
+	 * @return the new value, null if the word was removed
+	 */
+	public V merge(CharSequence word, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(function);
+		ValueNode<V> node = findKey(word);
+		if (node == null) {
+			node = insert(word);
+			node.value = value;
+			return value;
+		}
+		V merged = node.value == null ? value : function.apply(node.value, value);
+		if (merged == null) {
+			remove(word);
+		} else {
+			node.value = merged;
+		}
+		return merged;
+	}
+
+	/**
+	 * Return the words starting with prefix, the prefix itself included, with
+	 * their values. The Stream is lazy and sized.
+	 *
+	 * @param prefix
+	 * @return a Stream of the entries of the words starting with prefix
+	 */
+	public Stream<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix) {
+		return stream(prefix, (key, node) -> new AbstractMap.SimpleImmutableEntry<String, V>(key.toString(), node.value));
+	}
+
+	/**
+	 * Return the values of the words starting with prefix, the prefix itself
+	 * included. The Stream is lazy and sized.
+	 *
+	 * @param prefix
+	 * @return a Stream of the values of the words starting with prefix
+	 */
+	public Stream<V> valuesWithPrefix(CharSequence prefix) {
+		return stream(prefix, (key, node) -> node.value);
+	}
+}
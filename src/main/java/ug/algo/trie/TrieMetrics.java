@@ -0,0 +1,61 @@
+package ug.algo.trie;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import ug.algo.trie.TrieStats.Operation;
+
+/**
+ * Metrics of a {@link Trie}: a latency histogram per operation and a
+ * histogram of the nodes visited by the similarity searches. A trie
+ * without metrics holds no instance of this class, so the operations only
+ * pay a null check.
+ *
+ * @author Umberto
+ *
+ */
+class TrieMetrics {
+
+	private final Histogram[] latencies;
+	private final Histogram nodesVisited = new Histogram();
+
+	TrieMetrics() {
+		latencies = new Histogram[Operation.values().length];
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * Record an operation started at start.
+	 *
+	 * @param operation
+	 * @param start
+	 *            the value of System.nanoTime() when the operation started
+	 */
+	void record(Operation operation, long start) {
+		latencies[operation.ordinal()].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Record the nodes visited by a similarity search.
+	 *
+	 * @param nodes
+	 */
+	void recordNodesVisited(long nodes) {
+		nodesVisited.record(nodes);
+	}
+
+	Map<Operation, TrieStats.Distribution> latencies() {
+		Map<Operation, TrieStats.Distribution> snapshot = new EnumMap<Operation, TrieStats.Distribution>(
+				Operation.class);
+		for (Operation operation : Operation.values()) {
+			snapshot.put(operation, latencies[operation.ordinal()].snapshot());
+		}
+		return snapshot;
+	}
+
+	TrieStats.Distribution nodesVisited() {
+		return nodesVisited.snapshot();
+	}
+}
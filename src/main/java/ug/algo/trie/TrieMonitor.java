@@ -0,0 +1,95 @@
+package ug.algo.trie;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import ug.algo.trie.TrieStats.Distribution;
+import ug.algo.trie.TrieStats.Operation;
+
+/**
+ * The {@link TrieMXBean} of a trie.
+ *
+ * @author Umberto
+ *
+ */
+class TrieMonitor implements TrieMXBean {
+
+	private final Trie trie;
+
+	TrieMonitor(Trie trie) {
+		this.trie = trie;
+	}
+
+	@Override
+	public int getNumberOfWords() {
+		return trie.getNumberOfWords();
+	}
+
+	@Override
+	public boolean isMetricsEnabled() {
+		return trie.isMetricsEnabled();
+	}
+
+	@Override
+	public void setMetricsEnabled(boolean enabled) {
+		trie.setMetricsEnabled(enabled);
+	}
+
+	@Override
+	public long getNumberOfNodes() {
+		TrieStats stats = trie.lastStats();
+		return stats == null ? -1 : stats.getNumberOfNodes();
+	}
+
+	@Override
+	public int getMaxDepth() {
+		TrieStats stats = trie.lastStats();
+		return stats == null ? -1 : stats.getMaxDepth();
+	}
+
+	@Override
+	public long getEstimatedBytes() {
+		TrieStats stats = trie.lastStats();
+		return stats == null ? -1 : stats.getEstimatedBytes();
+	}
+
+	@Override
+	public Map<String, Long> getOperationCounts() {
+		return latencies(Distribution::getCount);
+	}
+
+	@Override
+	public Map<String, Double> getMeanLatencies() {
+		return latencies(Distribution::getMean);
+	}
+
+	@Override
+	public Map<String, Long> getP99Latencies() {
+		return latencies(distribution -> distribution.getValueAtPercentile(99));
+	}
+
+	@Override
+	public Map<String, Long> getMaxLatencies() {
+		return latencies(Distribution::getMax);
+	}
+
+	@Override
+	public double getMeanSimilarityNodesVisited() {
+		TrieMetrics metrics = trie.metrics();
+		return metrics == null ? 0 : metrics.nodesVisited().getMean();
+	}
+
+	private <T> Map<String, T> latencies(Function<Distribution, T> value) {
+		TrieMetrics metrics = trie.metrics();
+		if (metrics == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, T> values = new LinkedHashMap<String, T>();
+		for (Map.Entry<Operation, Distribution> entry : metrics.latencies().entrySet()) {
+			values.put(entry.getKey().name(), value.apply(entry.getValue()));
+		}
+		return values;
+	}
+}
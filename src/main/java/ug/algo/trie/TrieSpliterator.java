@@ -0,0 +1,137 @@
+package ug.algo.trie;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the words below a node, in depth-first order, that can be
+ * split for parallel streams.
+ *
+ * It holds a sequence of subtrees, each traversed with a
+ * {@link PrefixIterator}, and of single words. It is split at child
+ * boundaries: the sequence is cut where the word counts of the subtrees reach
+ * half of the total, and a sequence made of one subtree is first replaced by
+ * the word of its root and its children. Since the count of a node is the
+ * number of words below it, the size is always exact.
+ *
+ * @author Umberto
+ *
+ */
+class TrieSpliterator implements Spliterator<String> {
+
+	/**
+	 * A subtree, its root included, or a single word when node is null.
+	 */
+	private static final class Part {
+
+		private final Node node;
+		private final String word;
+
+		Part(Node node, String word) {
+			this.node = node;
+			this.word = word;
+		}
+
+		long size() {
+			return node == null ? 1 : node.getCount();
+		}
+	}
+
+	private final ArrayDeque<Part> parts;
+	private PrefixIterator current;
+	private long size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param start
+	 *            the node to start from
+	 * @param prefix
+	 *            the word of start
+	 * @param includeStart
+	 *            if the word of start, when it is a word, is returned too
+	 */
+	TrieSpliterator(Node start, String prefix, boolean includeStart) {
+		this.parts = new ArrayDeque<Part>();
+		this.size = 0;
+		if (includeStart && start.isLeaf()) {
+			parts.add(new Part(null, prefix));
+			size++;
+		}
+		for (Node child : start.children.values()) {
+			Part part = new Part(child, prefix + child.getC());
+			parts.add(part);
+			size += part.size();
+		}
+	}
+
+	private TrieSpliterator(ArrayDeque<Part> parts, long size) {
+		this.parts = parts;
+		this.size = size;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super String> action) {
+		while (true) {
+			if (current != null && current.hasNext()) {
+				size--;
+				action.accept(current.next());
+				return true;
+			}
+			current = null;
+			Part part = parts.poll();
+			if (part == null) {
+				return false;
+			}
+			if (part.node == null) {
+				size--;
+				action.accept(part.word);
+				return true;
+			}
+			current = new PrefixIterator(part.node, part.word, true);
+		}
+	}
+
+	@Override
+	public Spliterator<String> trySplit() {
+		if (current != null) {
+			// a subtree is being traversed
+			return null;
+		}
+		// a single subtree is replaced by its root word and its children
+		while (parts.size() == 1 && parts.peek().node != null && !parts.peek().node.children.isEmpty()) {
+			Part part = parts.poll();
+			if (part.node.isLeaf()) {
+				parts.add(new Part(null, part.word));
+			}
+			for (Node child : part.node.children.values()) {
+				parts.add(new Part(child, part.word + child.getC()));
+			}
+		}
+		if (parts.size() < 2) {
+			return null;
+		}
+		// cut where the first half of the words ends
+		ArrayDeque<Part> prefix = new ArrayDeque<Part>();
+		long prefixSize = 0;
+		do {
+			Part part = parts.poll();
+			prefix.add(part);
+			prefixSize += part.size();
+		} while (parts.size() > 1 && prefixSize + parts.peek().size() / 2 <= size / 2);
+		size -= prefixSize;
+		return new TrieSpliterator(prefix, prefixSize);
+	}
+
+	@Override
+	public long estimateSize() {
+		return size;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+	}
+
+}
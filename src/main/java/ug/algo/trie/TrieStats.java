@@ -0,0 +1,189 @@
+package ug.algo.trie;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Snapshot of a {@link Trie}: its structure (nodes, depths, estimated
+ * bytes) and, when metrics are enabled, the number and latency of the
+ * operations and the nodes visited by the similarity searches.
+ *
+ * @author Umberto
+ *
+ */
+public final class TrieStats {
+
+	/**
+	 * The operations measured by the metrics. The batch operations (the ones
+	 * ending with _ALL) are measured once per batch.
+	 */
+	public enum Operation {
+		ADD, REMOVE, SEARCH, STARTS_WITH, COUNT_WORD_STARTS_WITH, GET_WORD_STARTS_WITH, TOP_K, SIMILARITY, NEAREST,
+		SEARCH_ALL, COUNT_WORD_STARTS_WITH_ALL, ADD_ALL
+	}
+
+	/**
+	 * Distribution of the values recorded by a histogram, each known within
+	 * 1/16 of itself.
+	 */
+	public static final class Distribution {
+
+		private final long[] buckets;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Distribution(long[] buckets, long count, long sum, long max) {
+			this.buckets = buckets;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Return the value below which percentile percent of the values
+		 * fall.
+		 *
+		 * @param percentile
+		 *            between 0 and 100
+		 * @return the value at percentile, 0 if nothing was recorded
+		 */
+		public long getValueAtPercentile(double percentile) {
+			long total = 0;
+			for (long bucket : buckets) {
+				total += bucket;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank) {
+					return Math.min(Histogram.highestValue(i), max);
+				}
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + count + ", mean=" + String.format("%.1f", getMean()) + ", p50="
+					+ getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) + ", max=" + max;
+		}
+	}
+
+	private final int numberOfWords;
+	private final long numberOfNodes;
+	private final long[] nodesPerDepth;
+	private final long estimatedBytes;
+	private final Map<Operation, Distribution> latencies;
+	private final Distribution similarityNodesVisited;
+
+	TrieStats(int numberOfWords, long numberOfNodes, long[] nodesPerDepth, long estimatedBytes,
+			Map<Operation, Distribution> latencies, Distribution similarityNodesVisited) {
+		this.numberOfWords = numberOfWords;
+		this.numberOfNodes = numberOfNodes;
+		this.nodesPerDepth = nodesPerDepth;
+		this.estimatedBytes = estimatedBytes;
+		this.latencies = latencies == null ? Collections.<Operation, Distribution> emptyMap()
+				: Collections.unmodifiableMap(new EnumMap<Operation, Distribution>(latencies));
+		this.similarityNodesVisited = similarityNodesVisited;
+	}
+
+	public int getNumberOfWords() {
+		return numberOfWords;
+	}
+
+	/**
+	 * @return the number of nodes, the root excluded
+	 */
+	public long getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	/**
+	 * @return the number of nodes at each depth, the root being at depth 0
+	 */
+	public long[] getNodesPerDepth() {
+		return nodesPerDepth.clone();
+	}
+
+	/**
+	 * @return the depth of the deepest node, that is the length of the
+	 *         longest word
+	 */
+	public int getMaxDepth() {
+		return nodesPerDepth.length - 1;
+	}
+
+	/**
+	 * @return an estimate of the bytes retained by the nodes and their
+	 *         children maps, assuming compressed references
+	 */
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	/**
+	 * @return if the snapshot contains the metrics of the operations
+	 */
+	public boolean isMetricsEnabled() {
+		return similarityNodesVisited != null;
+	}
+
+	/**
+	 * @return the latencies in nanoseconds of the operations, empty if
+	 *         metrics are disabled
+	 */
+	public Map<Operation, Distribution> getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * @param operation
+	 * @return the latencies in nanoseconds of operation, null if metrics are
+	 *         disabled
+	 */
+	public Distribution getLatency(Operation operation) {
+		return latencies.get(operation);
+	}
+
+	/**
+	 * @return the nodes visited by each similarity search (getSimilarityMap,
+	 *         nearest and similarity), null if metrics are disabled
+	 */
+	public Distribution getSimilarityNodesVisited() {
+		return similarityNodesVisited;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("words=").append(numberOfWords).append(", nodes=").append(numberOfNodes).append(", maxDepth=")
+				.append(getMaxDepth()).append(", estimatedBytes=").append(estimatedBytes)
+				.append(", nodesPerDepth=").append(Arrays.toString(nodesPerDepth));
+		for (Map.Entry<Operation, Distribution> entry : latencies.entrySet()) {
+			sb.append('\n').append(entry.getKey()).append(" (ns): ").append(entry.getValue());
+		}
+		if (similarityNodesVisited != null) {
+			sb.append("\nnodes visited by similarity: ").append(similarityNodesVisited);
+		}
+		return sb.toString();
+	}
+}
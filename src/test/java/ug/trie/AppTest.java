@@ -1,11 +1,38 @@
 package ug.trie;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import ug.algo.trie.ChildMapType;
+import ug.algo.trie.Dawg;
+import ug.algo.trie.FuzzySession;
+import ug.algo.trie.FrozenTrie;
+import ug.algo.trie.MappedTrie;
 import ug.algo.trie.Trie;
+import ug.algo.trie.TrieCursor;
+import ug.algo.trie.TrieStats;
 
 /**
  * Unit test for simple App.
@@ -110,6 +137,18 @@ public class AppTest extends TestCase {
 		assertTrue(trie.getNumberOfWords() == 0);
 	}
 
+	public void testRemovePrefix() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		trie.add("walking");
+		trie.add("walks");
+		assertFalse(trie.remove("walk"));
+		assertFalse(trie.remove("wa"));
+		assertTrue(trie.getNumberOfWords() == 2);
+		assertTrue(trie.countWordStartsWith("wal") == 2);
+		assertTrue(trie.getWordStartsWith("wal").toArray().length == 2);
+		assertTrue(trie.getWordStartsWith("walk").count() == 2);
+	}
+
 	public void testCaseSensitive() {
 		Trie trie = new Trie(true, StandardCharsets.UTF_8);
 		trie.add("umberto");
@@ -119,4 +158,591 @@ public class AppTest extends TestCase {
 		assertTrue(trie.countWordStartsWith("ma") == 1);
 	}
 
+	public void testFreeze() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		FrozenTrie frozen = trie.freeze();
+		trie.remove("Jack");
+
+		assertTrue(frozen.getNumberOfWords() == 6);
+		assertTrue(frozen.search("jack"));
+		assertTrue(frozen.search("JOHNNY"));
+		assertFalse(frozen.search("joh"));
+		assertTrue(frozen.startsWith("joh"));
+		assertFalse(frozen.startsWith("jx"));
+		assertTrue(frozen.countWordStartsWith("j") == 6);
+		assertTrue(frozen.countWordStartsWith("john") == 3);
+		assertTrue(frozen.countWordStartsWith("ja") == 2);
+		assertEquals(Arrays.asList("joe", "john", "johnny", "johny"),
+				frozen.getWordStartsWith("jo").collect(Collectors.toList()));
+	}
+
+	public void testSaveAndOpen() throws IOException {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		Path snapshot = Files.createTempFile("trie", ".bin");
+		try {
+			trie.save(snapshot);
+			MappedTrie mapped = Trie.open(snapshot);
+
+			assertTrue(mapped.getNumberOfWords() == 6);
+			assertFalse(mapped.isCaseSensitive());
+			assertEquals(StandardCharsets.UTF_8, mapped.getCharset());
+			assertTrue(mapped.search("JACK"));
+			assertFalse(mapped.search("joh"));
+			assertTrue(mapped.startsWith("joh"));
+			assertFalse(mapped.startsWith("jx"));
+			assertTrue(mapped.countWordStartsWith("j") == 6);
+			assertTrue(mapped.countWordStartsWith("john") == 3);
+			assertEquals(Arrays.asList("joe", "john", "johnny", "johny"),
+					mapped.getWordStartsWith("jo").collect(Collectors.toList()));
+		} finally {
+			Files.delete(snapshot);
+		}
+	}
+
+	public void testOpenCorruptSnapshot() throws IOException {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		Path snapshot = Files.createTempFile("trie", ".bin");
+		try {
+			trie.save(snapshot);
+			byte[] bytes = Files.readAllBytes(snapshot);
+
+			// charset name length read as negative, or past the end
+			byte[] corrupt = bytes.clone();
+			corrupt[20] = (byte) 0xFF;
+			corrupt[21] = (byte) 0xFF;
+			assertCorrupt(snapshot, corrupt);
+			corrupt = bytes.clone();
+			corrupt[20] = 0x01;
+			assertCorrupt(snapshot, corrupt);
+
+			// number of nodes overflowing the offsets, or none
+			corrupt = bytes.clone();
+			corrupt[16] = 0x7F;
+			corrupt[17] = (byte) 0xFF;
+			corrupt[18] = (byte) 0xFF;
+			corrupt[19] = (byte) 0xFF;
+			assertCorrupt(snapshot, corrupt);
+			corrupt = bytes.clone();
+			corrupt[16] = (byte) 0x80;
+			assertCorrupt(snapshot, corrupt);
+
+			// illegal and unsupported charset names
+			corrupt = bytes.clone();
+			corrupt[25] = '?';
+			assertCorrupt(snapshot, corrupt);
+			corrupt = bytes.clone();
+			corrupt[22] = 'X';
+			assertCorrupt(snapshot, corrupt);
+		} finally {
+			Files.delete(snapshot);
+		}
+	}
+
+	private static void assertCorrupt(Path snapshot, byte[] bytes) throws IOException {
+		Files.write(snapshot, bytes);
+		try {
+			Trie.open(snapshot);
+			fail("corrupt snapshot opened");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testBulkLoad() {
+		List<String> words = Arrays.asList("Jack", "Jane", "Joe", "John", "John", "Johnny", "Johny");
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		trie.bulkLoad(words.iterator());
+		assertTrue(trie.getNumberOfWords() == 6);
+		assertTrue(trie.countWordStartsWith("J") == 6);
+		assertTrue(trie.countWordStartsWith("Ja") == 2);
+		assertTrue(trie.countWordStartsWith("John") == 3);
+		assertTrue(trie.search("John"));
+		assertFalse(trie.search("Joh"));
+		trie.remove("John");
+		assertTrue(trie.countWordStartsWith("John") == 2);
+
+		// out of order words are added one by one
+		Trie unsorted = new Trie(true, StandardCharsets.UTF_8);
+		unsorted.bulkLoad(Arrays.asList("Joe", "John", "Jack", "Johny", "Jane").iterator());
+		assertTrue(unsorted.getNumberOfWords() == 5);
+		assertTrue(unsorted.countWordStartsWith("J") == 5);
+		assertTrue(unsorted.countWordStartsWith("Jo") == 3);
+		assertTrue(unsorted.countWordStartsWith("Ja") == 2);
+	}
+
+	public void testTopK() {
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		trie.add("Joe", 5);
+		trie.add("John", 10);
+		trie.add("Johny", 3);
+		trie.add("Johnny", 7);
+		trie.add("Jane", 7);
+		trie.add("Jack");
+		assertEquals(Arrays.asList("John", "Jane", "Johnny"), trie.topK("J", 3));
+		assertEquals(Arrays.asList("John", "Johnny", "Joe", "Johny"), trie.topK("Jo", 10));
+		assertEquals(Arrays.asList("Jane", "Jack"), trie.topK("Ja", 2));
+		assertTrue(trie.topK("X", 2).isEmpty());
+
+		trie.add("Jack", 8);
+		trie.remove("John");
+		assertEquals(Arrays.asList("Jack", "Jane", "Johnny"), trie.topK("J", 3));
+		trie.add("Johnny", 1);
+		assertEquals(Arrays.asList("Joe", "Johny", "Johnny"), trie.topK("Jo", 3));
+	}
+
+	public void testSimilarityMap() {
+		List<String> words = Arrays.asList("Joe", "John", "Johny", "Johnny", "Jane", "Jack", "rap", "rapid", "trap",
+				"wrap", "ape", "r");
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		for (String word : words) {
+			trie.add(word);
+		}
+		for (String target : Arrays.asList("Jane", "Johnn", "rap", "", "xyz")) {
+			for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+				Map<String, Integer> expected = new HashMap<String, Integer>();
+				for (String word : words) {
+					int distance = levenshtein(word, target);
+					if (distance <= maxDistance) {
+						expected.put(word, distance);
+					}
+				}
+				assertEquals(expected, trie.getSimilarityMap(target, maxDistance));
+			}
+		}
+		assertEquals("Jane", trie.similarity("Jame", 1));
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					d[i][j] = i + j;
+				} else {
+					int replace = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+					d[i][j] = Math.min(replace, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+
+	public void testNearest() {
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		assertEquals(Optional.of("John"), trie.nearest("Johm", 2));
+		assertEquals(Optional.of("Joe"), trie.nearest("Joh", 2));
+		assertEquals(Optional.empty(), trie.nearest("xyz", 1));
+		assertNull(trie.similarity("xyz", 1));
+		// ties are broken alphabetically
+		assertEquals(Arrays.asList("Jack", "Jane"), trie.nearest("Jace", 1, 2));
+		assertEquals(Arrays.asList("Johnny", "Johny", "John"), trie.nearest("Johnny", 2, 5));
+		assertEquals(Arrays.asList("Joe", "Jack", "Jane", "John"), trie.nearest("J", 3, 10));
+	}
+
+	public void testGetWordStartsWith() {
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		assertEquals(Arrays.asList("Joe", "John", "Johnny", "Johny"),
+				trie.getWordStartsWith("Jo").collect(Collectors.toList()));
+		assertEquals(trie.getWordStartsWithJava7("J"), trie.getWordStartsWith("J").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("Jack", "Jane", "Joe"), trie.getWordStartsWith("J", 3));
+		assertEquals(Arrays.asList("Jack", "Jane"), trie.getWordStartsWith("J").limit(2).collect(Collectors.toList()));
+		assertTrue(trie.getWordStartsWith("Johny").count() == 0);
+		assertFalse(trie.wordIterator("X").hasNext());
+	}
+
+	public void testParallelGetWordStartsWith() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		List<String> words = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			words.add("w" + Integer.toString(i * 7919, 36));
+		}
+		for (String word : words) {
+			trie.add(word);
+		}
+		Collections.sort(words);
+		Spliterator<String> spliterator = trie.getWordStartsWith("w").spliterator();
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+		assertTrue(spliterator.estimateSize() == 5000);
+		Spliterator<String> first = spliterator.trySplit();
+		assertNotNull(first);
+		assertTrue(first.estimateSize() + spliterator.estimateSize() == 5000);
+
+		assertEquals(words, trie.getWordStartsWith("w").parallel().collect(Collectors.toList()));
+		assertTrue(trie.getWordStartsWith("w1").parallel().filter(w -> w.endsWith("a")).count() == words.stream()
+				.filter(w -> w.startsWith("w1") && w.endsWith("a")).count());
+	}
+
+	public void testChildMapTypes() throws IOException {
+		List<String> words = Arrays.asList("Joe", "John", "Johny", "Johnny", "Jane", "Jack", "Jan");
+		for (ChildMapType type : ChildMapType.values()) {
+			Trie trie = new Trie(true, StandardCharsets.UTF_8, type);
+			for (String word : words) {
+				trie.add(word);
+			}
+			assertEquals(type, trie.getChildMapType());
+			assertTrue(trie.search("Johnny"));
+			assertFalse(trie.search("Joh"));
+			assertTrue(trie.countWordStartsWith("Ja") == 3);
+			assertTrue(trie.remove("Jan"));
+			assertTrue(trie.countWordStartsWith("Ja") == 2);
+			assertEquals(Optional.of("Jane"), trie.nearest("Jame", 1));
+
+			List<String> found = trie.getWordStartsWith("J").collect(Collectors.toList());
+			if (!type.isSorted()) {
+				Collections.sort(found);
+			}
+			assertEquals(Arrays.asList("Jack", "Jane", "Joe", "John", "Johnny", "Johny"), found);
+
+			assertTrue(trie.freeze().countWordStartsWith("Jo") == 4);
+			Path snapshot = Files.createTempFile("trie", ".bin");
+			try {
+				trie.save(snapshot);
+				assertEquals(Arrays.asList("John", "Johnny", "Johny"),
+						Trie.open(snapshot).getWordStartsWith("Joh").collect(Collectors.toList()));
+			} finally {
+				Files.delete(snapshot);
+			}
+		}
+	}
+
+	public void testStats() throws Exception {
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Jane");
+		assertFalse(trie.isMetricsEnabled());
+		TrieStats stats = trie.stats();
+		assertFalse(stats.isMetricsEnabled());
+		assertTrue(stats.getLatencies().isEmpty());
+		assertTrue(stats.getNumberOfWords() == 3);
+		// J, a, o, n, e, e, h, n
+		assertTrue(stats.getNumberOfNodes() == 8);
+		assertEquals("[1, 1, 2, 3, 2]", Arrays.toString(stats.getNodesPerDepth()));
+		assertTrue(stats.getMaxDepth() == 4);
+		assertTrue(stats.getEstimatedBytes() > 0);
+
+		trie.setMetricsEnabled(true);
+		trie.add("Jack");
+		assertTrue(trie.search("Joe"));
+		assertFalse(trie.search("Jo"));
+		assertTrue(trie.countWordStartsWith("J") == 4);
+		trie.getSimilarityMap("Jane", 1);
+		assertEquals(Optional.of("John"), trie.nearest("Johm", 1));
+		assertTrue(trie.remove("Jack"));
+		// records no STARTS_WITH of its own lookup
+		assertTrue(trie.getWordStartsWithJava7("Jo").size() == 2);
+
+		stats = trie.stats();
+		assertTrue(stats.isMetricsEnabled());
+		assertTrue(stats.getLatency(TrieStats.Operation.ADD).getCount() == 1);
+		assertTrue(stats.getLatency(TrieStats.Operation.SEARCH).getCount() == 2);
+		assertTrue(stats.getLatency(TrieStats.Operation.COUNT_WORD_STARTS_WITH).getCount() == 1);
+		assertTrue(stats.getLatency(TrieStats.Operation.REMOVE).getCount() == 1);
+		assertTrue(stats.getLatency(TrieStats.Operation.STARTS_WITH).getCount() == 0);
+		TrieStats.Distribution search = stats.getLatency(TrieStats.Operation.SEARCH);
+		assertTrue(search.getValueAtPercentile(50) <= search.getValueAtPercentile(100));
+		assertTrue(search.getValueAtPercentile(100) == search.getMax());
+		// getSimilarityMap and nearest
+		assertTrue(stats.getSimilarityNodesVisited().getCount() == 2);
+		assertTrue(stats.getSimilarityNodesVisited().getMax() > 0);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = trie.registerMBean("testStats");
+		try {
+			assertEquals(3, server.getAttribute(name, "NumberOfWords"));
+			assertEquals(8L, server.getAttribute(name, "NumberOfNodes"));
+			assertEquals(true, server.getAttribute(name, "MetricsEnabled"));
+			server.setAttribute(name, new Attribute("MetricsEnabled", false));
+			assertFalse(trie.isMetricsEnabled());
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+	public void testCharSequenceKeys() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		trie.add(new StringBuilder("JOHN"));
+		trie.add("Joe");
+		StringBuilder key = new StringBuilder("jO");
+		assertTrue(trie.startsWith(key));
+		assertFalse(trie.search(key));
+		assertTrue(trie.countWordStartsWith(key) == 2);
+		key.append("hN");
+		assertTrue(trie.search(key));
+		assertTrue(trie.search("john"));
+		assertFalse(trie.search(new StringBuilder()));
+		assertTrue(trie.countWordStartsWith(new StringBuilder()) == 0);
+
+		// chars the charset cannot encode are read back as '?'
+		Trie latin = new Trie(true, StandardCharsets.ISO_8859_1);
+		latin.add("\u0142\u00f3d\u017a");
+		assertTrue(latin.search("?\u00f3d?"));
+		assertTrue(latin.search(new StringBuilder("\u0141\u00f3d\u017a")));
+		assertFalse(latin.search("\u00f3d?"));
+
+		// unpaired surrogates are read back as '?' as well
+		Trie unicode = new Trie(true, StandardCharsets.UTF_8);
+		unicode.add("a\ud83d\ude00");
+		unicode.add("b\ud83d");
+		assertTrue(unicode.search(new StringBuilder("a\ud83d\ude00")));
+		assertTrue(unicode.search("b?"));
+	}
+
+	public void testKeyNormalization() {
+		// UTF-16 and UTF-32 read an unpaired surrogate back as U+FFFD
+		for (Charset charset : new Charset[] { StandardCharsets.UTF_16, Charset.forName("UTF-32") }) {
+			Trie trie = new Trie(true, charset);
+			trie.add("a\ud800b");
+			assertTrue(trie.search("a\ufffdb"));
+			assertFalse(trie.search("a?b"));
+		}
+
+		// a pair the charset cannot encode is read back as a single '?'
+		Trie latin = new Trie(false, StandardCharsets.ISO_8859_1);
+		latin.add("A\ud83d\ude00B");
+		assertEquals(Arrays.asList("a?b"), latin.getWordStartsWith("a").collect(Collectors.toList()));
+		assertTrue(latin.search("a?b"));
+		assertTrue(latin.search(new StringBuilder("a\ud83d\ude00b")));
+		assertTrue(latin.countWordStartsWith("a\ud83d\ude00") == 1);
+		assertEquals(Collections.singletonMap("a?b", 0), latin.getSimilarityMap("A\ud83d\ude00B", 0));
+		assertTrue(latin.remove("a\ud83d\ude00b"));
+		assertTrue(latin.getNumberOfWords() == 0);
+
+		// case folding goes by code point, without locale or context
+		Trie folded = new Trie(false, StandardCharsets.UTF_8);
+		folded.add("\ud801\udc00");
+		assertTrue(folded.search("\ud801\udc28"));
+		folded.add("\u0130");
+		assertTrue(folded.search("i"));
+		folded.add("\u039f\u0394\u039f\u03a3");
+		assertTrue(folded.search("\u03bf\u03b4\u03bf\u03c3"));
+		assertFalse(folded.search("\u03bf\u03b4\u03bf\u03c2"));
+	}
+
+	public void testToDawg() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		List<String> words = Arrays.asList("Jump", "Jumping", "Jumps", "Walk", "Walking", "Walks", "Talk", "Talking",
+				"Talks", "Tap");
+		for (String word : words) {
+			trie.add(word);
+		}
+		Dawg dawg = trie.toDawg();
+
+		assertTrue(dawg.getNumberOfWords() == 10);
+		assertTrue(dawg.getNumberOfTrieNodes() == 26);
+		// the endings of Jump, Walk and Talk are shared
+		assertTrue(dawg.getNumberOfStates() == 13);
+		assertEquals(0.5, dawg.getReduction(), 1e-9);
+
+		for (String word : words) {
+			assertTrue(dawg.search(word));
+		}
+		assertFalse(dawg.search("Walkin"));
+		assertFalse(dawg.search("Jumpalk"));
+		assertTrue(dawg.startsWith("TALKI"));
+		assertFalse(dawg.startsWith(""));
+		assertTrue(dawg.countWordStartsWith("t") == 4);
+		assertTrue(dawg.countWordStartsWith("walk") == 3);
+		assertTrue(dawg.countWordStartsWith("x") == 0);
+		assertEquals(Arrays.asList("walking", "walks"), dawg.getWordStartsWith("Walk").collect(Collectors.toList()));
+		assertTrue(dawg.getWordStartsWith("ta").count() == 4);
+		assertEquals(trie.getWordStartsWith("").collect(Collectors.toList()),
+				dawg.getWordStartsWith("").collect(Collectors.toList()));
+		assertEquals(trie.getSimilarityMap("Talkin", 2), dawg.getSimilarityMap("Talkin", 2));
+		assertEquals(trie.getSimilarityMap("Tap", 1), dawg.getSimilarityMap("tap", 1));
+	}
+
+	public void testBatch() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		trie.add("Walk");
+		trie.add("Talk");
+		trie.addAll(Arrays.asList("Walking", "walks", "Talking", "walk", "Talks", "", "Jump"));
+		assertTrue(trie.getNumberOfWords() == 7);
+		assertTrue(trie.countWordStartsWith("walk") == 3);
+		assertTrue(trie.countWordStartsWith("t") == 3);
+		assertEquals(Arrays.asList("walking", "walks"), trie.getWordStartsWith("walk").collect(Collectors.toList()));
+
+		List<String> words = Arrays.asList("walks", "Talk", "walk", "wal", "jumps", "", "JUMP", "talking");
+		boolean[] found = trie.searchAll(words);
+		assertTrue(Arrays.equals(new boolean[] { true, true, true, false, false, false, true, true }, found));
+		int[] counts = trie.countWordStartsWithAll(words);
+		assertTrue(Arrays.equals(new int[] { 1, 3, 3, 3, 0, 0, 1, 1 }, counts));
+
+		// the same answers as the single key methods, also over a pool
+		Trie empty = new Trie(false, StandardCharsets.UTF_8);
+		List<String> many = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			many.add("w" + (i * 7919 % 10007));
+		}
+		empty.addAll(many);
+		assertTrue(empty.getNumberOfWords() == 5000);
+		List<String> queries = new ArrayList<String>();
+		for (int i = 0; i < 3000; i++) {
+			queries.add("w" + (i * 31 % 2000));
+		}
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			found = empty.searchAll(queries, pool);
+			counts = empty.countWordStartsWithAll(queries, pool);
+		} finally {
+			pool.shutdown();
+		}
+		for (int i = 0; i < queries.size(); i++) {
+			assertTrue(found[i] == empty.search(queries.get(i)));
+			assertTrue(counts[i] == empty.countWordStartsWith(queries.get(i)));
+		}
+	}
+
+	public void testCursor() {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		String[] words = { "Walk", "Walking", "Walks", "Talk", "Talking", "Talks", "Tap", "Jump" };
+		for (int i = 0; i < words.length; i++) {
+			trie.add(words[i], i);
+		}
+		TrieCursor cursor = trie.cursor();
+		assertFalse(cursor.startsWith());
+		assertTrue(cursor.count() == 0);
+		assertTrue(cursor.completions().count() == 0);
+
+		cursor.push('T');
+		assertEquals("t", cursor.getPrefix());
+		assertTrue(cursor.count() == 4);
+		cursor.push("AL");
+		assertTrue(cursor.count() == 3);
+		assertFalse(cursor.isWord());
+		cursor.push('k');
+		assertTrue(cursor.isWord());
+		assertEquals(trie.getWordStartsWith("talk").collect(Collectors.toList()),
+				cursor.completions().collect(Collectors.toList()));
+		assertEquals(trie.topK("talk", 2), cursor.topK(2));
+
+		// past the last word and back
+		cursor.push("ed");
+		assertFalse(cursor.startsWith());
+		assertTrue(cursor.count() == 0);
+		assertTrue(cursor.topK(3).isEmpty());
+		assertTrue(cursor.pop());
+		assertFalse(cursor.startsWith());
+		assertTrue(cursor.pop());
+		assertTrue(cursor.isWord());
+		assertEquals("talk", cursor.getPrefix());
+
+		while (cursor.pop()) {
+			if (cursor.getPrefix().length() > 0) {
+				assertTrue(cursor.count() == trie.countWordStartsWith(cursor.getPrefix()));
+			}
+		}
+		assertEquals("", cursor.getPrefix());
+		assertFalse(cursor.pop());
+		cursor.push("wal");
+		assertEquals(Arrays.asList("walk", "walking", "walks"), cursor.completions().collect(Collectors.toList()));
+
+		cursor.reset();
+		cursor.push('j');
+		assertEquals(Arrays.asList("jump"), cursor.topK(5));
+
+		// a surrogate pair is normalized as a whole
+		trie.add("a\uD83D\uDE00");
+		cursor.reset();
+		cursor.push('a').push('\uD83D');
+		assertFalse(cursor.startsWith());
+		cursor.push('\uDE00');
+		assertTrue(cursor.isWord());
+		cursor.pop();
+		assertFalse(cursor.startsWith());
+
+		// a pair the charset cannot encode is a single '?'
+		Trie latin = new Trie(false, StandardCharsets.ISO_8859_1);
+		latin.add("a?b");
+		cursor = latin.cursor();
+		cursor.push("a\ud83d");
+		assertEquals("a?", cursor.getPrefix());
+		cursor.push('\ude00');
+		assertEquals("a?", cursor.getPrefix());
+		cursor.push('b');
+		assertTrue(cursor.isWord());
+		cursor.pop();
+		cursor.pop();
+		assertEquals("a?", cursor.getPrefix());
+		assertTrue(cursor.startsWith());
+	}
+
+	public void testFuzzySession() throws IOException {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		for (String word : new String[] { "John", "Jon", "Joan", "Jonah", "Jonas", "Johnny", "Bon", "Don", "Jo" }) {
+			trie.add(word);
+		}
+		FuzzySession session = trie.fuzzySession(1);
+		assertEquals(trie.getSimilarityMap("", 1), session.getSimilarityMap());
+		String query = "Jonhny";
+		for (int i = 0; i < query.length(); i++) {
+			session.push(query.charAt(i));
+			String typed = query.substring(0, i + 1);
+			assertEquals(typed.toLowerCase(), session.getQuery());
+			assertEquals(trie.getSimilarityMap(typed, 1), session.getSimilarityMap());
+		}
+		// backspace goes back to the rows of the shorter query
+		int entries = session.getNumberOfEntries();
+		session.pop();
+		session.pop();
+		assertEquals(trie.getSimilarityMap("jonh", 1), session.getSimilarityMap());
+		assertTrue(session.getSimilarityMap().containsKey("jon"));
+		session.push("ny");
+		assertEquals(entries, session.getNumberOfEntries());
+		assertEquals(trie.getSimilarityMap("jonhny", 1), session.getSimilarityMap());
+		session.reset();
+		assertFalse(session.pop());
+		session.push("don");
+		assertEquals(trie.getSimilarityMap("don", 1), session.getSimilarityMap());
+
+		// the same words as a new search, on a real dictionary
+		Trie dictionary = new Trie(false, StandardCharsets.UTF_8);
+		dictionary.bulkLoad(Files.readAllLines(Paths.get("Input/words.txt"), StandardCharsets.UTF_8).iterator());
+		FuzzySession words = dictionary.fuzzySession(2);
+		for (String typed : new String[] { "i", "in", "int", "intr", "intre", "intres", "intrest" }) {
+			words.push(typed.charAt(typed.length() - 1));
+			assertEquals(dictionary.getSimilarityMap(typed, 2), words.getSimilarityMap());
+		}
+		words.pop();
+		words.pop();
+		assertEquals(dictionary.getSimilarityMap("intre", 2), words.getSimilarityMap());
+
+		// a pair the charset cannot encode is a single '?'
+		Trie latin = new Trie(false, StandardCharsets.ISO_8859_1);
+		latin.add("a?b");
+		FuzzySession single = latin.fuzzySession(0);
+		single.push("a\ud83d\ude00b");
+		assertEquals("a?b", single.getQuery());
+		assertEquals(Collections.singletonMap("a?b", 0), single.getSimilarityMap());
+		single.pop();
+		single.pop();
+		assertEquals("a?", single.getQuery());
+	}
+
 }
@@ -0,0 +1,103 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.ArrayTrie;
+
+/**
+ * Unit test for ArrayTrie.
+ */
+public class ArrayTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public ArrayTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ArrayTrieTest.class);
+	}
+
+	public void testBasic() {
+		ArrayTrie trie = new ArrayTrie(false, StandardCharsets.UTF_8);
+		trie.add("hack");
+		trie.add("hackerrank");
+		trie.add("Hack");
+		assertTrue(trie.countWordStartsWith("hac") == 2);
+		assertTrue(trie.countWordStartsWith("hak") == 0);
+		assertTrue(trie.search("HACK"));
+		assertFalse(trie.search("hacker"));
+		assertTrue(trie.startsWith("hacker"));
+		assertTrue(trie.getNumberOfWords() == 2);
+	}
+
+	public void testNormalization() {
+		// the keys are normalized as in Trie, whatever the locale
+		ArrayTrie trie = new ArrayTrie(false, StandardCharsets.UTF_8);
+		trie.add("\u0130stanbul");
+		trie.add("\u039f\u0394\u039f\u03a3");
+		assertTrue(trie.search("istanbul"));
+		assertTrue(trie.search("\u03bf\u03b4\u03bf\u03c3"));
+
+		ArrayTrie latin = new ArrayTrie(true, StandardCharsets.ISO_8859_1);
+		latin.add("a\ud83d\ude00");
+		assertTrue(latin.search("a?"));
+		assertTrue(latin.countWordStartsWith("a\ud83d\ude00") == 1);
+	}
+
+	public void testRemove() {
+		ArrayTrie trie = new ArrayTrie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		int nodes = trie.getNumberOfNodes();
+
+		assertFalse(trie.remove("Jo"));
+		assertTrue(trie.remove("Johnny"));
+		assertTrue(trie.countWordStartsWith("John") == 2);
+		assertTrue(trie.remove("Jack"));
+		assertTrue(trie.countWordStartsWith("Ja") == 1);
+		assertTrue(trie.remove("John"));
+		assertTrue(trie.countWordStartsWith("John") == 1);
+		assertTrue(trie.search("Johny"));
+		assertFalse(trie.search("John"));
+
+		// freed nodes are reused
+		trie.add("Johnny");
+		trie.add("Jack");
+		trie.add("John");
+		assertTrue(trie.getNumberOfNodes() == nodes);
+		assertTrue(trie.getNumberOfWords() == 6);
+	}
+
+	public void testGetWordStartsWith() {
+		ArrayTrie trie = new ArrayTrie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		assertEquals(Arrays.asList("Joe", "John", "Johnny", "Johny"),
+				trie.getWordStartsWith("Jo").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("Johnny", "Johny"), trie.getWordStartsWith("John").collect(Collectors.toList()));
+		assertTrue(trie.getWordStartsWith("Johny").count() == 0);
+		assertTrue(trie.getWordStartsWith("X").count() == 0);
+	}
+
+}
@@ -0,0 +1,157 @@
+package ug.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.ByteTrie;
+
+/**
+ * Unit test for ByteTrie.
+ */
+public class ByteTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public ByteTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ByteTrieTest.class);
+	}
+
+	public void testBasic() {
+		ByteTrie trie = new ByteTrie(false, StandardCharsets.UTF_8);
+		trie.add("hack");
+		trie.add("hackerrank");
+		trie.add("Hack");
+		assertTrue(trie.countWordStartsWith("hac") == 2);
+		assertTrue(trie.countWordStartsWith("hak") == 0);
+		assertTrue(trie.search("HACK"));
+		assertFalse(trie.search("hacker"));
+		assertTrue(trie.startsWith("hacker"));
+		assertFalse(trie.startsWith(""));
+		assertTrue(trie.getNumberOfWords() == 2);
+	}
+
+	public void testBytes() {
+		ByteTrie trie = new ByteTrie(false, StandardCharsets.UTF_8);
+		trie.add("café".getBytes(StandardCharsets.UTF_8));
+		trie.add("CAFE".getBytes(StandardCharsets.US_ASCII));
+		trie.add(ByteBuffer.wrap("Naïve".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(trie.getNumberOfWords() == 3);
+
+		assertTrue(trie.search("CAFÉ"));
+		assertTrue(trie.search("CafÉ".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(trie.search("cafe".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(trie.countWordStartsWith("CAF".getBytes(StandardCharsets.UTF_8)) == 2);
+		assertTrue(trie.search("naïve"));
+
+		// the position of the buffers is left unchanged
+		ByteBuffer direct = ByteBuffer.allocateDirect(16);
+		direct.put("xxNAÏVE".getBytes(StandardCharsets.UTF_8));
+		direct.flip();
+		direct.position(2);
+		assertTrue(trie.search(direct));
+		assertTrue(direct.position() == 2);
+		direct.limit(4);
+		assertTrue(trie.startsWith(direct));
+		assertTrue(trie.countWordStartsWith(direct) == 1);
+		ByteBuffer heap = ByteBuffer.wrap("xcafe".getBytes(StandardCharsets.UTF_8), 1, 4);
+		assertTrue(trie.search(heap.slice()));
+		assertTrue(trie.search(heap));
+
+		// a case sensitive trie takes the bytes as they are
+		ByteTrie exact = new ByteTrie(true, StandardCharsets.UTF_8);
+		exact.add(new byte[] { 'a', (byte) 0xff });
+		assertTrue(exact.search(new byte[] { 'a', (byte) 0xff }));
+		assertFalse(exact.search(new byte[] { 'A', (byte) 0xff }));
+	}
+
+	public void testCharsets() {
+		ByteTrie latin = new ByteTrie(true, StandardCharsets.ISO_8859_1);
+		latin.add("łódź");
+		assertTrue(latin.search("?ód?"));
+		assertTrue(latin.search(new byte[] { '?', (byte) 0xf3, 'd', '?' }));
+		assertTrue(latin.getNumberOfNodes() == 5);
+		// a pair the charset cannot encode is a single '?'
+		latin.add("a😀");
+		assertTrue(latin.search("a?"));
+		assertTrue(latin.search(new StringBuilder("a😀")));
+		assertFalse(latin.search("a??"));
+
+		ByteTrie utf8 = new ByteTrie(true, StandardCharsets.UTF_8);
+		utf8.add("a😀");
+		utf8.add("€");
+		assertTrue(utf8.getNumberOfNodes() == 1 + 5 + 3);
+		assertTrue(utf8.search(new StringBuilder("a😀")));
+		assertTrue(utf8.search("€"));
+		assertFalse(utf8.search("₭"));
+
+		ByteTrie utf16 = new ByteTrie(false, StandardCharsets.UTF_16BE);
+		utf16.add("Łab");
+		assertTrue(utf16.search("łAB"));
+		assertTrue(utf16.search("łAB".getBytes(StandardCharsets.UTF_16BE)));
+		assertEquals(Arrays.asList("łab"), utf16.getWordStartsWith("Ł").collect(Collectors.toList()));
+	}
+
+	public void testRemove() {
+		ByteTrie trie = new ByteTrie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		int nodes = trie.getNumberOfNodes();
+
+		assertFalse(trie.remove("Jo"));
+		assertTrue(trie.remove("Johnny"));
+		assertTrue(trie.countWordStartsWith("John") == 2);
+		assertTrue(trie.remove("Jack".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(trie.countWordStartsWith("Ja") == 1);
+		assertTrue(trie.remove("John"));
+		assertTrue(trie.countWordStartsWith("John") == 1);
+		assertTrue(trie.search("Johny"));
+		assertFalse(trie.search("John"));
+
+		// freed nodes are reused
+		trie.add("Johnny");
+		trie.add("Jack");
+		trie.add("John");
+		assertTrue(trie.getNumberOfNodes() == nodes);
+		assertTrue(trie.getNumberOfWords() == 6);
+	}
+
+	public void testGetWordStartsWith() {
+		ByteTrie trie = new ByteTrie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		trie.add("Jörg");
+		assertEquals(Arrays.asList("Joe", "John", "Johnny", "Johny"),
+				trie.getWordStartsWith("Jo").collect(Collectors.toList()));
+		// in the order of the UTF-8 bytes
+		assertEquals(Arrays.asList("Jack", "Jane", "Joe", "John", "Johnny", "Johny", "Jörg"),
+				trie.getWordStartsWith("J").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("Johnny", "Johny"), trie.getWordStartsWith("John").collect(Collectors.toList()));
+		assertTrue(trie.getWordStartsWith("Johny").count() == 0);
+		assertTrue(trie.getWordStartsWith("X").count() == 0);
+		assertTrue(trie.getWordStartsWith("").count() == 0);
+	}
+
+}
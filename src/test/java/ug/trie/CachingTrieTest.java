@@ -0,0 +1,119 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.CachingTrie;
+import ug.algo.trie.Trie;
+import ug.algo.trie.TrieStats.Operation;
+
+/**
+ * Unit test for CachingTrie.
+ */
+public class CachingTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public CachingTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(CachingTrieTest.class);
+	}
+
+	private static CachingTrie newCache(int capacity) {
+		Trie trie = new Trie(false, StandardCharsets.UTF_8);
+		for (String word : new String[] { "Walk", "Walking", "Walks", "Talk", "Talking", "Talks", "Tap" }) {
+			trie.add(word);
+		}
+		return new CachingTrie(trie, capacity);
+	}
+
+	public void testHits() {
+		CachingTrie cache = newCache(16);
+		assertTrue(cache.countWordStartsWith("walk") == 3);
+		assertTrue(cache.countWordStartsWith("WALK") == 3);
+		assertEquals(1, cache.getMisses(Operation.COUNT_WORD_STARTS_WITH));
+		assertEquals(1, cache.getHits(Operation.COUNT_WORD_STARTS_WITH));
+
+		assertEquals(Arrays.asList("walking", "walks"), cache.getWordStartsWith("Walk").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("walking", "walks"), cache.getWordStartsWith("walk").collect(Collectors.toList()));
+		assertEquals(cache.getTrie().getSimilarityMap("tak", 1), cache.getSimilarityMap("tak", 1));
+		assertEquals(cache.getTrie().getSimilarityMap("tak", 1), cache.getSimilarityMap("TAK", 1));
+		// the maximum distance is part of the key
+		assertEquals(cache.getTrie().getSimilarityMap("tak", 2), cache.getSimilarityMap("tak", 2));
+
+		assertEquals(3, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		assertEquals(3.0 / 7, cache.getHitRate(), 1e-9);
+		assertEquals(4, cache.size());
+	}
+
+	public void testInvalidation() {
+		CachingTrie cache = newCache(16);
+		cache.countWordStartsWith("walk");
+		cache.countWordStartsWith("talk");
+		cache.countWordStartsWith("wa");
+		cache.getWordStartsWith("walk");
+		cache.getWordStartsWith("walker");
+		cache.getSimilarityMap("walkes", 1);
+		cache.getSimilarityMap("tap", 1);
+		assertEquals(7, cache.size());
+
+		// only the results on the path of walker, or near it, are dropped
+		cache.add("Walker");
+		assertEquals(4, cache.getInvalidations());
+		assertTrue(cache.countWordStartsWith("walk") == 4);
+		assertTrue(cache.countWordStartsWith("wa") == 4);
+		assertEquals(Arrays.asList("walker", "walking", "walks"),
+				cache.getWordStartsWith("walk").collect(Collectors.toList()));
+		assertTrue(cache.getSimilarityMap("walkes", 1).containsKey("walker"));
+		// the prefix itself is not in getWordStartsWith
+		assertTrue(cache.getWordStartsWith("walker").count() == 0);
+		assertTrue(cache.countWordStartsWith("talk") == 3);
+		assertEquals(2, cache.getHits(Operation.COUNT_WORD_STARTS_WITH) + cache.getHits(Operation.GET_WORD_STARTS_WITH));
+
+		// adding a word already there changes nothing
+		long invalidations = cache.getInvalidations();
+		cache.add("walker");
+		assertEquals(invalidations, cache.getInvalidations());
+
+		assertTrue(cache.remove("tap"));
+		assertFalse(cache.remove("tap"));
+		// a prefix of a word is not a word
+		invalidations = cache.getInvalidations();
+		assertFalse(cache.remove("walki"));
+		assertEquals(invalidations, cache.getInvalidations());
+		assertTrue(cache.getSimilarityMap("tap", 1).isEmpty());
+
+		cache.addAll(Arrays.asList("talkie", "walk"));
+		assertTrue(cache.countWordStartsWith("talk") == 4);
+		assertTrue(cache.countWordStartsWith("walk") == 4);
+	}
+
+	public void testEviction() {
+		CachingTrie cache = newCache(2);
+		cache.countWordStartsWith("w");
+		cache.countWordStartsWith("t");
+		cache.countWordStartsWith("w");
+		// t is the least recently used
+		cache.countWordStartsWith("ta");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		cache.countWordStartsWith("w");
+		assertEquals(2, cache.getHits());
+		cache.countWordStartsWith("t");
+		assertEquals(4, cache.getMisses());
+	}
+}
@@ -0,0 +1,107 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.ConcurrentTrie;
+
+/**
+ * Unit test for ConcurrentTrie.
+ */
+public class ConcurrentTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public ConcurrentTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ConcurrentTrieTest.class);
+	}
+
+	public void testRemove() {
+		ConcurrentTrie trie = new ConcurrentTrie(true, StandardCharsets.UTF_8);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		trie.add("Jack");
+		assertTrue(trie.getNumberOfWords() == 6);
+		assertTrue(trie.countWordStartsWith("J") == 6);
+
+		assertFalse(trie.remove("Jo"));
+		assertTrue(trie.remove("Johnny"));
+		assertTrue(trie.countWordStartsWith("John") == 2);
+		assertTrue(trie.remove("Jack"));
+		assertFalse(trie.startsWith("Jac"));
+		assertTrue(trie.countWordStartsWith("Ja") == 1);
+		assertTrue(trie.getWordStartsWith("Jo").count() == 3);
+		assertTrue(trie.getNumberOfWords() == 4);
+	}
+
+	public void testNormalization() {
+		// the keys are normalized as in Trie
+		ConcurrentTrie trie = new ConcurrentTrie(false, StandardCharsets.ISO_8859_1);
+		trie.add("A\ud83d\ude00");
+		trie.add("\u00c9t\u00c9");
+		assertTrue(trie.search("a?"));
+		assertFalse(trie.startsWith("a??"));
+		assertTrue(trie.search("\u00e9t\u00e9"));
+
+		ConcurrentTrie unicode = new ConcurrentTrie(false, StandardCharsets.UTF_8);
+		unicode.add("\u0130");
+		assertTrue(unicode.search("i"));
+	}
+
+	public void testConcurrentUpdates() throws InterruptedException {
+		final ConcurrentTrie trie = new ConcurrentTrie(false, StandardCharsets.UTF_8);
+		final int threads = 4;
+		final int words = 2000;
+		// every thread adds the same words, then removes the same words
+		runConcurrently(threads, () -> {
+			for (int i = 0; i < words; i++) {
+				trie.add("w" + i);
+				trie.add("w" + i + "x");
+			}
+		});
+		runConcurrently(threads, () -> {
+			for (int i = 0; i < words; i += 2) {
+				trie.remove("w" + i + "x");
+			}
+		});
+
+		assertTrue(trie.getNumberOfWords() == words + words / 2);
+		assertTrue(trie.countWordStartsWith("w") == words + words / 2);
+		assertTrue(trie.countWordStartsWith("w10") == 1 + 10 + 5 + 100 + 50);
+		assertTrue(trie.search("w1x"));
+		assertFalse(trie.search("w2x"));
+		assertTrue(trie.getWordStartsWith("w").count() == words + words / 2);
+	}
+
+	private static void runConcurrently(int threads, Runnable task) throws InterruptedException {
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			workers.add(new Thread(task));
+		}
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+
+}
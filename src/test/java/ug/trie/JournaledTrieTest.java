@@ -0,0 +1,166 @@
+package ug.trie;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.JournaledTrie;
+import ug.algo.trie.JournaledTrie.SyncPolicy;
+import ug.algo.trie.Trie;
+
+/**
+ * Unit test for JournaledTrie.
+ */
+public class JournaledTrieTest extends TestCase {
+
+	private Path directory;
+
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public JournaledTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(JournaledTrieTest.class);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("journal");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		for (String name : new String[] { "journal", "checkpoint", "checkpoint.tmp", "journal.old" }) {
+			Files.deleteIfExists(directory.resolve(name));
+		}
+		Files.delete(directory);
+	}
+
+	private JournaledTrie open(SyncPolicy syncPolicy, int batchSize, int checkpointInterval) throws IOException {
+		return JournaledTrie.open(directory, new Trie(false, StandardCharsets.UTF_8), syncPolicy, batchSize,
+				checkpointInterval);
+	}
+
+	public void testRecovery() throws IOException {
+		JournaledTrie journaled = open(SyncPolicy.COMMIT, 4, 1000);
+		journaled.add("John");
+		journaled.add("Johnny", 7);
+		journaled.add("Jane", -3);
+		journaled.add("JOHN");
+		journaled.addAll(Arrays.asList("Jack", "Joe", "Jane"));
+		assertTrue(journaled.remove("Jack"));
+		assertFalse(journaled.remove("Jill"));
+		assertTrue(journaled.getJournalRecords() == 6);
+		journaled.close();
+
+		journaled = open(SyncPolicy.COMMIT, 4, 1000);
+		Trie trie = journaled.getTrie();
+		assertTrue(journaled.getReplayedRecords() == 6);
+		assertTrue(trie.getNumberOfWords() == 4);
+		assertTrue(journaled.search("john"));
+		assertFalse(journaled.search("jack"));
+		assertEquals("johnny", trie.topK("j", 4).get(0));
+		assertEquals("jane", trie.topK("j", 4).get(3));
+
+		// buffered records are lost by a crash
+		journaled.add("Jill");
+		journaled.add("Jim");
+		journaled.commit();
+		journaled.add("Joan");
+		journaled = open(SyncPolicy.COMMIT, 4, 1000);
+		assertTrue(journaled.getReplayedRecords() == 8);
+		assertTrue(journaled.search("jim"));
+		assertFalse(journaled.search("joan"));
+		journaled.close();
+	}
+
+	public void testCheckpoint() throws IOException {
+		JournaledTrie journaled = open(SyncPolicy.NEVER, 3, 10);
+		for (int i = 0; i < 25; i++) {
+			journaled.add("word" + i, i);
+		}
+		assertTrue(journaled.getGeneration() == 2);
+		assertTrue(journaled.getJournalRecords() == 5);
+		journaled.close();
+
+		journaled = open(SyncPolicy.NEVER, 3, 10);
+		Trie trie = journaled.getTrie();
+		assertTrue(journaled.getGeneration() == 2);
+		assertTrue(journaled.getReplayedRecords() == 5);
+		assertTrue(trie.getNumberOfWords() == 25);
+		assertTrue(trie.countWordStartsWith("word1") == 11);
+		assertEquals(Arrays.asList("word24", "word23", "word22"), trie.topK("word", 3));
+		assertEquals(Arrays.asList("word19", "word18"), trie.topK("word1", 2));
+
+		// a checkpoint of a case sensitive trie cannot be read by another one
+		journaled.checkpoint();
+		journaled.close();
+		try {
+			JournaledTrie.open(directory, new Trie(true, StandardCharsets.UTF_8));
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	public void testStaleJournal() throws IOException {
+		JournaledTrie journaled = open(SyncPolicy.ALWAYS, 100, 1000);
+		journaled.add("Walk");
+		journaled.add("Talk");
+		Files.copy(directory.resolve("journal"), directory.resolve("journal.old"));
+		journaled.remove("Walk");
+		journaled.checkpoint();
+		journaled.close();
+
+		// a crash before the journal was emptied
+		Files.move(directory.resolve("journal.old"), directory.resolve("journal"),
+				StandardCopyOption.REPLACE_EXISTING);
+		journaled = open(SyncPolicy.ALWAYS, 100, 1000);
+		assertTrue(journaled.getReplayedRecords() == 0);
+		assertFalse(journaled.search("walk"));
+		assertTrue(journaled.search("talk"));
+		journaled.close();
+	}
+
+	public void testTornRecord() throws IOException {
+		JournaledTrie journaled = open(SyncPolicy.ALWAYS, 100, 1000);
+		journaled.add("Walk");
+		journaled.add("Walking");
+		journaled.add("Talk");
+		journaled.close();
+
+		// the last record lost its checksum
+		Path journal = directory.resolve("journal");
+		try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 2);
+		}
+		journaled = open(SyncPolicy.ALWAYS, 100, 1000);
+		assertTrue(journaled.getReplayedRecords() == 2);
+		assertTrue(journaled.search("walking"));
+		assertFalse(journaled.search("talk"));
+
+		// new records follow the last valid one
+		journaled.add("Tap");
+		journaled.close();
+		journaled = open(SyncPolicy.ALWAYS, 100, 1000);
+		assertTrue(journaled.getReplayedRecords() == 3);
+		assertTrue(journaled.search("tap"));
+		journaled.close();
+	}
+}
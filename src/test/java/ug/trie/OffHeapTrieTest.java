@@ -0,0 +1,145 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.OffHeapTrie;
+
+/**
+ * Unit test for OffHeapTrie.
+ */
+public class OffHeapTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public OffHeapTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(OffHeapTrieTest.class);
+	}
+
+	private static OffHeapTrie newTrie() {
+		OffHeapTrie trie = new OffHeapTrie(true, StandardCharsets.UTF_8, 4);
+		trie.add("Joe");
+		trie.add("John");
+		trie.add("Johny");
+		trie.add("Johnny");
+		trie.add("Jane");
+		trie.add("Jack");
+		return trie;
+	}
+
+	public void testBasic() {
+		OffHeapTrie trie = new OffHeapTrie(false, StandardCharsets.UTF_8);
+		trie.add("hack");
+		trie.add("hackerrank");
+		trie.add("Hack");
+		assertTrue(trie.countWordStartsWith("hac") == 2);
+		assertTrue(trie.countWordStartsWith("hak") == 0);
+		assertTrue(trie.search("HACK"));
+		assertFalse(trie.search("hacker"));
+		assertTrue(trie.startsWith("hacker"));
+		assertFalse(trie.startsWith(""));
+		assertTrue(trie.getNumberOfWords() == 2);
+	}
+
+	public void testRemove() {
+		OffHeapTrie trie = newTrie();
+		int nodes = trie.getNumberOfNodes();
+
+		assertFalse(trie.remove("Jo"));
+		assertTrue(trie.remove("Johnny"));
+		assertTrue(trie.countWordStartsWith("John") == 2);
+		assertTrue(trie.remove("Jack"));
+		assertTrue(trie.countWordStartsWith("Ja") == 1);
+		assertTrue(trie.remove("John"));
+		assertTrue(trie.countWordStartsWith("John") == 1);
+		assertTrue(trie.search("Johny"));
+		assertFalse(trie.search("John"));
+
+		// freed nodes are reused
+		trie.add("Johnny");
+		trie.add("Jack");
+		trie.add("John");
+		assertTrue(trie.getNumberOfNodes() == nodes);
+		assertTrue(trie.getNumberOfWords() == 6);
+	}
+
+	public void testGetWordStartsWith() {
+		OffHeapTrie trie = newTrie();
+		assertEquals(Arrays.asList("Joe", "John", "Johnny", "Johny"),
+				trie.getWordStartsWith("Jo").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("Johnny", "Johny"), trie.getWordStartsWith("John").collect(Collectors.toList()));
+		assertTrue(trie.getWordStartsWith("J").count() == 6);
+		assertTrue(trie.getWordStartsWith("Johny").count() == 0);
+		assertTrue(trie.getWordStartsWith("X").count() == 0);
+	}
+
+	public void testTopK() {
+		OffHeapTrie trie = newTrie();
+		trie.add("Johnny", 10);
+		trie.add("Jack", 5);
+		trie.add("Jane", 5);
+		assertEquals(Arrays.asList("Johnny", "Jack", "Jane"), trie.topK("J", 3));
+		assertEquals(Arrays.asList("Johnny", "John"), trie.topK("John", 2));
+
+		// the weight of a removed word is forgotten
+		trie.remove("Johnny");
+		trie.add("Johnny");
+		assertEquals(Arrays.asList("Jack", "Jane", "Joe"), trie.topK("J", 3));
+		assertTrue(trie.topK("J", 0).isEmpty());
+	}
+
+	public void testSimilarity() {
+		OffHeapTrie trie = newTrie();
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		expected.put("John", 1);
+		expected.put("Johny", 0);
+		expected.put("Johnny", 1);
+		assertEquals(expected, trie.getSimilarityMap("Johny", 1));
+	}
+
+	public void testCompact() {
+		OffHeapTrie trie = new OffHeapTrie(false, StandardCharsets.UTF_8, 4);
+		for (char c = 'a'; c <= 'z'; c++) {
+			for (char d = 'a'; d <= 'z'; d++) {
+				trie.add("" + c + d + "word", c * d);
+			}
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			for (char d = 'b'; d <= 'z'; d++) {
+				trie.remove("" + c + d + "word");
+			}
+		}
+		long used = trie.getUsedBytes();
+		assertTrue(trie.getAllocatedBytes() > used);
+
+		trie.compact();
+		assertTrue(trie.getUsedBytes() < used);
+		assertTrue(trie.getAllocatedBytes() == trie.getUsedBytes());
+		assertTrue(trie.getNumberOfWords() == 26);
+		assertTrue(trie.getNumberOfNodes() == 1 + 26 * 6);
+		assertTrue(trie.search("zaword"));
+		assertFalse(trie.search("zbword"));
+		assertEquals(Arrays.asList("zaword"), trie.topK("z", 1));
+
+		// the compacted arenas grow again
+		trie.add("zbword");
+		assertTrue(trie.countWordStartsWith("z") == 2);
+		assertEquals(Arrays.asList("zaword", "zbword"), trie.getWordStartsWith("z").collect(Collectors.toList()));
+	}
+}
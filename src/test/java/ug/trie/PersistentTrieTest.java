@@ -0,0 +1,109 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.PersistentTrie;
+
+/**
+ * Unit test for PersistentTrie.
+ */
+public class PersistentTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public PersistentTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(PersistentTrieTest.class);
+	}
+
+	public void testBasic() {
+		PersistentTrie trie = new PersistentTrie(false, StandardCharsets.UTF_8);
+		trie.add("hack");
+		trie.add("hackerrank");
+		trie.add("Hack");
+		assertTrue(trie.countWordStartsWith("hac") == 2);
+		assertTrue(trie.countWordStartsWith("hak") == 0);
+		assertTrue(trie.search("HACK"));
+		assertFalse(trie.search("hacker"));
+		assertTrue(trie.startsWith("hacker"));
+		assertFalse(trie.startsWith(""));
+		assertTrue(trie.getNumberOfWords() == 2);
+		assertEquals(Arrays.asList("hackerrank"), trie.getWordStartsWith("hack").collect(Collectors.toList()));
+
+		assertTrue(trie.remove("hackerrank"));
+		assertFalse(trie.remove("hackerrank"));
+		assertFalse(trie.startsWith("hacke"));
+		assertTrue(trie.search("hack"));
+		assertTrue(trie.getNumberOfWords() == 1);
+	}
+
+	public void testSnapshot() {
+		PersistentTrie trie = new PersistentTrie(true, StandardCharsets.UTF_8);
+		trie.add("car");
+		trie.add("cart");
+		trie.add("dog");
+		PersistentTrie.Snapshot before = trie.snapshot();
+
+		trie.add("cat");
+		trie.remove("cart");
+		trie.remove("dog");
+
+		assertTrue(before.getNumberOfWords() == 3);
+		assertTrue(before.search("cart"));
+		assertTrue(before.search("dog"));
+		assertFalse(before.search("cat"));
+		assertTrue(before.countWordStartsWith("ca") == 2);
+		assertEquals(Arrays.asList("car", "cart"), before.getWordStartsWith("c").collect(Collectors.toList()));
+
+		PersistentTrie.Snapshot after = trie.snapshot();
+		assertTrue(after.getNumberOfWords() == 2);
+		assertFalse(after.search("cart"));
+		assertFalse(after.startsWith("d"));
+		assertEquals(Arrays.asList("car", "cat"), after.getWordStartsWith("c").collect(Collectors.toList()));
+
+		Map<String, Integer> similar = before.getSimilarityMap("cat", 1);
+		assertEquals(2, similar.size());
+		assertEquals(Integer.valueOf(1), similar.get("car"));
+		assertEquals(Integer.valueOf(1), similar.get("cart"));
+	}
+
+	public void testConcurrentWriters() throws InterruptedException {
+		final PersistentTrie trie = new PersistentTrie(true, StandardCharsets.UTF_8);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						trie.add("w" + id + "-" + i);
+						PersistentTrie.Snapshot snapshot = trie.snapshot();
+						// a snapshot is always consistent
+						assertTrue(snapshot.countWordStartsWith("w") == snapshot.getNumberOfWords());
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(trie.getNumberOfWords() == 4000);
+		assertTrue(trie.getWordStartsWith("w").count() == 4000);
+	}
+}
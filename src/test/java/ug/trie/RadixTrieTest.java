@@ -0,0 +1,107 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.RadixTrie;
+import ug.algo.trie.Trie;
+
+/**
+ * Unit test for RadixTrie.
+ */
+public class RadixTrieTest extends TestCase {
+
+	private static final String[] WORDS = { "Joe", "John", "Johny", "Johnny", "Jane", "Jack", "romane", "romanus",
+			"romulus", "rubens", "ruber", "rubicon", "rubicundus" };
+
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public RadixTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(RadixTrieTest.class);
+	}
+
+	public void testBasic() {
+		RadixTrie trie = new RadixTrie(true, StandardCharsets.UTF_8);
+		for (String word : WORDS) {
+			trie.add(word);
+		}
+		trie.add("Jo");
+		assertTrue(trie.getNumberOfWords() == WORDS.length + 1);
+		assertTrue(trie.search("Jo"));
+		assertFalse(trie.search("Joh"));
+		assertTrue(trie.startsWith("Joh"));
+		assertTrue(trie.countWordStartsWith("Jo") == 5);
+		assertTrue(trie.countWordStartsWith("rub") == 4);
+		assertTrue(trie.countWordStartsWith("rubi") == 2);
+		assertTrue(trie.countWordStartsWith("rubx") == 0);
+		assertEquals(Arrays.asList("Joe", "John", "Johnny", "Johny"),
+				trie.getWordStartsWith("Jo").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("rubicon", "rubicundus"),
+				trie.getWordStartsWith("rubi").collect(Collectors.toList()));
+	}
+
+	public void testNormalization() {
+		// the keys are normalized as in Trie: a case insensitive radix trie
+		// and a Trie hold the same words
+		String[] words = { "\u0130stanbul", "\u039f\u0394\u039f\u03a3", "\ud801\udc00x", "b\ud800" };
+		RadixTrie trie = new RadixTrie(false, StandardCharsets.UTF_16);
+		Trie reference = new Trie(false, StandardCharsets.UTF_16);
+		for (String word : words) {
+			trie.add(word);
+			reference.add(word);
+		}
+		for (String prefix : new String[] { "i", "\u03bf", "\ud801\udc28", "b" }) {
+			assertEquals(reference.getWordStartsWith(prefix).collect(Collectors.toList()),
+					trie.getWordStartsWith(prefix).collect(Collectors.toList()));
+		}
+		assertTrue(trie.search("b\ufffd"));
+	}
+
+	public void testRemoveMergesNodes() {
+		RadixTrie trie = new RadixTrie(true, StandardCharsets.UTF_8);
+		trie.add("romane");
+		int nodes = trie.getNumberOfNodes();
+		trie.add("romanus");
+		trie.add("roman");
+		assertTrue(trie.getNumberOfNodes() == nodes + 2);
+
+		assertTrue(trie.remove("roman"));
+		assertFalse(trie.remove("roman"));
+		assertTrue(trie.remove("romanus"));
+		assertTrue(trie.getNumberOfNodes() == nodes);
+		assertTrue(trie.search("romane"));
+		assertTrue(trie.countWordStartsWith("rom") == 1);
+		assertTrue(trie.remove("romane"));
+		assertTrue(trie.getNumberOfNodes() == 0);
+		assertTrue(trie.getNumberOfWords() == 0);
+	}
+
+	public void testSimilarity() {
+		RadixTrie radix = new RadixTrie(true, StandardCharsets.UTF_8);
+		Trie trie = new Trie(true, StandardCharsets.UTF_8);
+		for (String word : WORDS) {
+			radix.add(word);
+			trie.add(word);
+		}
+		assertEquals(trie.getSimilarityMap("Jane", 2), radix.getSimilarityMap("Jane", 2));
+		assertEquals(trie.getSimilarityMap("rubens", 3), radix.getSimilarityMap("rubens", 3));
+		assertEquals("rubicon", radix.similarity("rubicom", 1));
+		assertNull(radix.similarity("xyz", 1));
+	}
+
+}
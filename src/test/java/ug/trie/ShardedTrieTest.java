@@ -0,0 +1,143 @@
+package ug.trie;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.ShardedTrie;
+import ug.algo.trie.Trie;
+
+/**
+ * Unit test for ShardedTrie.
+ */
+public class ShardedTrieTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public ShardedTrieTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ShardedTrieTest.class);
+	}
+
+	public void testBasic() {
+		ShardedTrie trie = new ShardedTrie(false, StandardCharsets.UTF_8, 3);
+		for (String word : new String[] { "Walk", "Walking", "Walks", "Talk", "Talking", "Talks", "Apple", "Tap" }) {
+			trie.add(word);
+		}
+		assertTrue(trie.getNumberOfWords() == 8);
+		assertTrue(trie.search("WALK"));
+		assertFalse(trie.search("wal"));
+		assertTrue(trie.startsWith("app"));
+		assertFalse(trie.startsWith(""));
+		assertTrue(trie.countWordStartsWith("ta") == 4);
+		assertEquals(Arrays.asList("walking", "walks"), trie.getWordStartsWith("walk").collect(Collectors.toList()));
+
+		Trie single = new Trie(false, StandardCharsets.UTF_8);
+		for (String word : new String[] { "Walk", "Walking", "Walks", "Talk", "Talking", "Talks", "Apple", "Tap" }) {
+			single.add(word);
+		}
+		assertEquals(single.getSimilarityMap("talk", 2), trie.getSimilarityMap("talk", 2));
+
+		assertTrue(trie.remove("walks"));
+		assertFalse(trie.remove("walks"));
+		// a prefix of a word is not a word
+		assertFalse(trie.remove("walki"));
+		assertTrue(trie.countWordStartsWith("w") == 2);
+	}
+
+	public void testRebalanceSupplementary() {
+		ShardedTrie trie = new ShardedTrie(true, StandardCharsets.UTF_8, 2);
+		for (int i = 0; i < 5; i++) {
+			trie.add("a" + i);
+		}
+		// the first char of these words is a high surrogate
+		for (int i = 0; i < 10; i++) {
+			trie.add("\uD83D\uDE00x" + i);
+		}
+		Map<Character, Integer> ranges = trie.getShardRanges();
+		// fullwidth A, above the surrogates: its shard grows until a
+		// rebalance moves the surrogate words
+		for (int i = 0; i < 1100; i++) {
+			trie.add("\uFF21" + i);
+		}
+		assertFalse(ranges.equals(trie.getShardRanges()));
+		assertTrue(trie.getNumberOfWords() == 1115);
+		assertTrue(trie.search("\uD83D\uDE00x3"));
+		assertTrue(trie.countWordStartsWith("\uD83D\uDE00") == 10);
+		assertTrue(trie.countWordStartsWith("a") == 5);
+		assertTrue(trie.countWordStartsWith("\uFF21") == 1100);
+		int total = 0;
+		for (int size : trie.getShardSizes()) {
+			total += size;
+		}
+		assertTrue(total == 1115);
+		assertTrue(trie.remove("\uD83D\uDE00x3"));
+		assertFalse(trie.search("\uD83D\uDE00x3"));
+	}
+
+	public void testLoadAndRebalance() throws IOException {
+		List<String> words = Files.readAllLines(Paths.get("Input/words.txt"), StandardCharsets.UTF_8);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ShardedTrie trie = new ShardedTrie(true, StandardCharsets.UTF_8, 4, executor);
+			// the ranges are chosen from the batch
+			trie.addAll(words.subList(0, 100000));
+			for (int size : trie.getShardSizes()) {
+				assertTrue(size < ShardedTrie.REBALANCE_FACTOR * 100000 / 4);
+			}
+
+			// words starting with s only: the shard of s grows until a
+			// rebalance
+			List<String> s = new ArrayList<String>();
+			for (String word : words.subList(100000, words.size())) {
+				if (word.startsWith("s")) {
+					s.add(word);
+				}
+			}
+			trie.addAll(s);
+			Trie single = new Trie(true, StandardCharsets.UTF_8);
+			single.addAll(words.subList(0, 100000));
+			single.addAll(s);
+			assertEquals(single.getNumberOfWords(), trie.getNumberOfWords());
+			int total = 0;
+			for (int size : trie.getShardSizes()) {
+				total += size;
+			}
+			assertEquals(trie.getNumberOfWords(), total);
+			// the shard of s has been split
+			for (int size : trie.getShardSizes()) {
+				assertTrue(size < ShardedTrie.REBALANCE_FACTOR * total / 4);
+			}
+			assertEquals(trie.getNumberOfShards(), trie.getShardRanges().size());
+
+			for (String prefix : new String[] { "a", "ma", "s", "st", "zy", "x" }) {
+				assertEquals(single.countWordStartsWith(prefix), trie.countWordStartsWith(prefix));
+				assertEquals(single.getWordStartsWith(prefix).collect(Collectors.toList()),
+						trie.getWordStartsWith(prefix).collect(Collectors.toList()));
+			}
+			assertEquals(single.getSimilarityMap("strang", 2), trie.getSimilarityMap("strang", 2));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package ug.trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import ug.algo.trie.ChildMapType;
+import ug.algo.trie.Trie2IntMap;
+import ug.algo.trie.Trie2LongMap;
+import ug.algo.trie.TrieMap;
+
+/**
+ * Unit test for TrieMap, Trie2IntMap and Trie2LongMap.
+ */
+public class TrieMapTest extends TestCase {
+	/**
+	 * Create the test case
+	 *
+	 * @param testName
+	 *            name of the test case
+	 */
+	public TrieMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * @return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(TrieMapTest.class);
+	}
+
+	public void testTrieMap() {
+		TrieMap<String> map = new TrieMap<String>(false, StandardCharsets.UTF_8);
+		assertNull(map.put("Walk", "v1"));
+		assertNull(map.put("walks", "v2"));
+		assertNull(map.put("Walking", "v3"));
+		assertNull(map.put("talk", "v4"));
+		assertEquals("v1", map.put("WALK", "v5"));
+		assertTrue(map.size() == 4);
+		assertEquals("v5", map.get("walk"));
+		assertNull(map.get("wal"));
+		assertFalse(map.containsKey("wal"));
+		assertEquals("none", map.getOrDefault("run", "none"));
+		assertTrue(map.countKeysStartingWith("walk") == 3);
+
+		// the prefix itself is included
+		assertEquals(Arrays.asList("walk", "walking", "walks"),
+				map.keysWithPrefix("Walk").collect(Collectors.toList()));
+		assertEquals(Arrays.asList("v5", "v3", "v2"), map.valuesWithPrefix("walk").collect(Collectors.toList()));
+		Map<String, String> entries = map.entriesWithPrefix("")
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		assertEquals(4, entries.size());
+		assertEquals("v4", entries.get("talk"));
+		assertTrue(map.valuesWithPrefix("x").count() == 0);
+
+		assertEquals("v5x", map.merge("walk", "x", String::concat));
+		assertEquals("y", map.merge("run", "y", String::concat));
+		assertNull(map.merge("run", "z", (a, b) -> null));
+		assertFalse(map.containsKey("run"));
+
+		assertEquals("v3", map.remove("walking"));
+		assertNull(map.remove("walking"));
+		assertTrue(map.countKeysStartingWith("walk") == 2);
+		assertEquals("v2", map.remove("walks"));
+		assertEquals(Arrays.asList("walk"), map.keysWithPrefix("w").collect(Collectors.toList()));
+		assertTrue(map.size() == 2);
+
+		// the empty word is a key
+		map.put("", "empty");
+		assertEquals("empty", map.get(""));
+		assertTrue(map.size() == 3);
+	}
+
+	public void testTrie2IntMap() {
+		Trie2IntMap map = new Trie2IntMap(true, StandardCharsets.UTF_8, ChildMapType.OPEN_HASH);
+		for (String word : "the cat and the dog and the bird".split(" ")) {
+			map.addTo(word, 1);
+		}
+		assertTrue(map.size() == 5);
+		assertEquals(3, map.getInt("the"));
+		assertEquals(2, map.getInt("and"));
+		assertEquals(0, map.getInt("fish"));
+		map.defaultReturnValue(-1);
+		assertEquals(-1, map.getInt("fish"));
+		assertEquals(-1, map.put("fish", 7));
+		assertEquals(7, map.put("fish", 8));
+		assertEquals(10, map.mergeInt("fish", 2, Integer::sum));
+		assertEquals(4, map.mergeInt("cow", 4, Integer::sum));
+		assertEquals(10, map.removeInt("fish"));
+		assertEquals(-1, map.removeInt("fish"));
+		assertTrue(map.valuesWithPrefix("").sum() == 3 + 1 + 2 + 1 + 1 + 4);
+
+		Map<String, Integer> entries = map.entriesWithPrefix("")
+				.collect(Collectors.toMap(Map.Entry::getKey, Object2IntMap.Entry::getIntValue));
+		assertEquals(Integer.valueOf(1), entries.get("cat"));
+		assertEquals(Integer.valueOf(4), entries.get("cow"));
+
+		// int values wrap around as ints do
+		map.put("max", Integer.MAX_VALUE);
+		assertEquals(Integer.MAX_VALUE, map.addTo("max", 1));
+		assertEquals(Integer.MIN_VALUE, map.getInt("max"));
+		assertEquals(Integer.MIN_VALUE + 1, map.mergeInt("max", 1, Integer::sum));
+	}
+
+	public void testTrie2LongMap() {
+		Trie2LongMap map = new Trie2LongMap(false, StandardCharsets.UTF_8);
+		map.put("Alpha", 1L << 40);
+		map.addTo("alphabet", 5);
+		map.addTo("ALPHABET", 5);
+		assertEquals(1L << 40, map.getLong("ALPHA"));
+		assertEquals(10, map.getLong("alphabet"));
+		assertEquals((1L << 40) + 10, map.valuesWithPrefix("alp").sum());
+		assertEquals(Long.MAX_VALUE, map.mergeLong("alpha", Long.MAX_VALUE, Math::max));
+		assertEquals(10, map.removeLong("alphabet"));
+		assertTrue(map.size() == 1);
+	}
+}